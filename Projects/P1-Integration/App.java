@@ -5,7 +5,7 @@ import java.util.Scanner;
  */
 public class App {
     public static void main(String[] args) {
-        IterableSortedCollection<Song> tree = new IterableRedBlackTree<>(); 
+        IterableSortedCollection<Song> tree = new KeyedSortedCollection<>(Song::getDanceability);
         BackendInterface backend = new Backend(tree);
         Scanner in = new Scanner(System.in);
         FrontendInterface frontend = new Frontend(in,backend);
@@ -35,6 +35,9 @@ public class BSTRotation<T extends Comparable<T>> extends BinarySearchTree<T> {
     if (child.parent() != parent) {
       throw new IllegalArgumentException("Incorrect relationship!");
     }
+    if (TreeStats.ENABLED) {
+      this.statRotations++;
+    }
     
     //The right child logic branch (rotate to left)
     if (child.isRightChild()) {
@@ -92,6 +95,10 @@ public class BSTRotation<T extends Comparable<T>> extends BinarySearchTree<T> {
       }
 
     }
+    
+    //Only the two rotated nodes changed their subtrees (parent is now below child)
+    parent.updateSubtreeSize();
+    child.updateSubtreeSize();
   }
   
   
@@ -0,0 +1,950 @@
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * This is a B-Tree (more precisely a B+ Tree) implementation of IterableSortedCollection. All
+ * values are stored in the leaves, in one contiguous array per leaf, and the leaves are linked
+ * to each other in sorted order. A range scan therefore seeks its start point once and then
+ * reads whole arrays one leaf after the other. Inner nodes only hold separator values that
+ * guide the search, plus the number of values below them for rank and select.
+ *
+ * Equal values are kept as separate entries, and like IterableRedBlackTree the iterator
+ * returns the most recently inserted of several equal values first, so the two trees can be
+ * used interchangeably (e.g. in the Backend constructor).
+ */
+public class BTree<T extends Comparable<T>> implements IterableSortedCollection<T> {
+
+  //Order used by the constructor without arguments
+  private static final int DEFAULT_ORDER = 64;
+
+  //Maximum number of values in a leaf and of children of an inner node
+  private final int order;
+  //The root node, or null when the tree is empty
+  private Node root = null;
+
+  private Comparable<T> min = null; //minimum for the iterator, or null if no minimum is set.
+  private Comparable<T> max = null; //maximum for the iterator, or null if no maximum is set.
+
+
+
+
+  /**
+   * Creates a new empty tree of the default order.
+   */
+  public BTree() {
+    this(DEFAULT_ORDER);
+  }
+
+
+
+
+  /**
+   * Creates a new empty tree of the provided order.
+   * @param order the maximum number of values in a leaf and of children of an inner node
+   * @throws IllegalArgumentException if order is smaller than 3
+   */
+  public BTree(int order) throws IllegalArgumentException {
+    if (order < 3) {
+      throw new IllegalArgumentException("Order must be at least 3!");
+    }
+    this.order = order;
+  }
+
+
+
+
+  /**
+   * The common part of leaves and inner nodes. One spare slot is allocated in keys, so a node
+   * can hold one entry too many for a moment before it is split.
+   */
+  private abstract class Node {
+    // the values (leaf) or separators (inner node), in ascending order
+    Object[] keys;
+    // number of used slots in keys
+    int count = 0;
+    // number of values in the subtree rooted at this node
+    int size = 0;
+    // the parent of this node, or null for the root
+    Inner parent = null;
+  }
+
+
+
+
+  /**
+   * A leaf holding up to order values, linked to its neighbours in sorted order.
+   */
+  private class Leaf extends Node {
+    Leaf prev = null;
+    Leaf next = null;
+
+    Leaf() {
+      this.keys = new Object[order + 1];
+    }
+  }
+
+
+
+
+  /**
+   * An inner node with up to order children. Every value below child i is smaller than or
+   * equal to keys[i], and every value below child i + 1 is larger than or equal to keys[i].
+   */
+  private class Inner extends Node {
+    Node[] children;
+
+    Inner() {
+      this.keys = new Object[order];
+      this.children = newChildren(order + 1);
+    }
+  }
+
+
+
+
+  /**
+   * Creates an array for the children of an inner node. Node depends on T, so its arrays
+   * cannot be created directly and are created through reflection instead.
+   * @param length the length of the array
+   * @return a new array of length nulls
+   */
+  @SuppressWarnings("unchecked")
+  private Node[] newChildren(int length) {
+    return (Node[]) Array.newInstance(BTree.Node.class, length);
+  }
+
+
+
+
+  /**
+   * Inserts a new data value into the sorted collection.
+   * @param data the new value being inserted
+   * @throws NullPointerException if data argument is null, we do not allow
+   * null values to be stored within a SortedCollection
+   */
+  @Override
+  public void insert(T data) throws NullPointerException {
+
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+
+    if (this.root == null) {
+      this.root = new Leaf();
+    }
+
+    //New values go before every equal value, so the latest comes first
+    Leaf leaf = this.findLeaf(data, false);
+    int position = this.lowerBound(leaf, data, false);
+    System.arraycopy(leaf.keys, position, leaf.keys, position + 1, leaf.count - position);
+    leaf.keys[position] = data;
+    leaf.count++;
+    for (Node node = leaf; node != null; node = node.parent) {
+      node.size++;
+    }
+
+    if (leaf.count > this.order) {
+      this.splitLeaf(leaf);
+    }
+  }
+
+
+
+
+  /**
+   * Walks down from the root to the leaf where the search for data should start.
+   * @param data the value to search for
+   * @param inclusive false to find the first place of data (before equal values),
+   *     true to find the place right after the last equal value
+   * @return the leaf found
+   */
+  private Leaf findLeaf(Comparable<T> data, boolean inclusive) {
+    Node node = this.root;
+    while (node instanceof BTree.Inner) {
+      Inner inner = (Inner) node;
+      node = inner.children[this.lowerBound(inner, data, inclusive)];
+    }
+    return (Leaf) node;
+  }
+
+
+
+
+  /**
+   * Finds the first position in the keys of node whose key is larger than or equal to data
+   * (or strictly larger than data when inclusive is true), by a binary search over the
+   * count keys of the node, so a node of the default order takes about 6 comparisons
+   * instead of up to 64.
+   * @param node the node to search
+   * @param data the value to compare against
+   * @param inclusive whether keys equal to data should be skipped too
+   * @return the position found, which is node.count if every key is smaller
+   */
+  @SuppressWarnings("unchecked")
+  private int lowerBound(Node node, Comparable<T> data, boolean inclusive) {
+    Object[] keys = node.keys;
+    int low = 0;
+    int high = node.count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int compareValue = data.compareTo((T) keys[middle]);
+      if (compareValue < 0 || (!inclusive && compareValue == 0)) {
+        high = middle;
+      }
+      else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+
+
+
+  /**
+   * Splits a leaf that holds one value too many into two leaves, and adds the new right
+   * leaf to the parent.
+   * @param leaf the leaf to split
+   */
+  private void splitLeaf(Leaf leaf) {
+    Leaf right = new Leaf();
+    int half = leaf.count / 2;
+    right.count = leaf.count - half;
+    System.arraycopy(leaf.keys, half, right.keys, 0, right.count);
+    Arrays.fill(leaf.keys, half, leaf.count, null);
+    leaf.count = half;
+    leaf.size = half;
+    right.size = right.count;
+
+    //Link the new leaf into the chain of leaves
+    right.next = leaf.next;
+    right.prev = leaf;
+    if (leaf.next != null) {
+      leaf.next.prev = right;
+    }
+    leaf.next = right;
+
+    this.addChild(leaf, right.keys[0], right);
+  }
+
+
+
+
+  /**
+   * Adds right as the next sibling of left in left's parent, separated by separator, and
+   * splits the parent when it ends up with one child too many. A new root is created when
+   * left is the root.
+   * @param left the node that was split
+   * @param separator the separator between left and right
+   * @param right the new node holding the upper part of left
+   */
+  private void addChild(Node left, Object separator, Node right) {
+    Inner parent = left.parent;
+    if (parent == null) {
+      parent = new Inner();
+      parent.children[0] = left;
+      parent.size = left.size + right.size;
+      left.parent = parent;
+      this.root = parent;
+    }
+
+    int index = 0;
+    while (parent.children[index] != left) {
+      index++;
+    }
+    System.arraycopy(parent.keys, index, parent.keys, index + 1, parent.count - index);
+    System.arraycopy(parent.children, index + 1, parent.children, index + 2,
+        parent.count - index);
+    parent.keys[index] = separator;
+    parent.children[index + 1] = right;
+    parent.count++;
+    right.parent = parent;
+
+    if (parent.count + 1 > this.order) {
+      this.splitInner(parent);
+    }
+  }
+
+
+
+
+  /**
+   * Splits an inner node that has one child too many into two inner nodes, and moves the
+   * separator in the middle up into the parent.
+   * @param inner the inner node to split
+   */
+  private void splitInner(Inner inner) {
+    Inner right = new Inner();
+    int children = inner.count + 1;
+    int half = children / 2;
+
+    //Children from half on move right, together with the separators between them
+    right.count = children - half - 1;
+    System.arraycopy(inner.children, half, right.children, 0, children - half);
+    System.arraycopy(inner.keys, half, right.keys, 0, right.count);
+    Object separator = inner.keys[half - 1];
+    Arrays.fill(inner.children, half, children, null);
+    Arrays.fill(inner.keys, half - 1, inner.count, null);
+    inner.count = half - 1;
+
+    int movedSize = 0;
+    for (int i = 0; i <= right.count; i++) {
+      right.children[i].parent = right;
+      movedSize += right.children[i].size;
+    }
+    right.size = movedSize;
+    inner.size -= movedSize;
+
+    this.addChild(inner, separator, right);
+  }
+
+
+
+
+  /**
+   * Check whether data is stored in the tree.
+   * @param data the value to check for in the collection
+   * @return true if the collection contains data one or more times,
+   * and false otherwise
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean contains(Comparable<T> data) {
+    if (this.root == null) {
+      return false;
+    }
+    Leaf leaf = this.findLeaf(data, false);
+    int position = this.lowerBound(leaf, data, false);
+    //The first value that is not smaller may be in the next leaf
+    if (position == leaf.count) {
+      leaf = leaf.next;
+      position = 0;
+    }
+    return leaf != null && data.compareTo((T) leaf.keys[position]) == 0;
+  }
+
+
+
+
+  /**
+   * Counts the number of values in the collection, with each duplicate value
+   * being counted separately within the value returned.
+   * @return the number of values in the collection, including duplicates
+   */
+  @Override
+  public int size() {
+    return this.root == null ? 0 : this.root.size;
+  }
+
+
+
+
+  /**
+   * Checks if the collection is empty.
+   * @return true if the collection contains 0 values, false otherwise
+   */
+  @Override
+  public boolean isEmpty() {
+    return this.size() == 0;
+  }
+
+
+
+
+  /**
+   * Removes all values and duplicates from the collection.
+   */
+  @Override
+  public void clear() {
+    this.root = null;
+  }
+
+
+
+
+  /**
+   * Counts the number of values in the collection that are strictly smaller
+   * than data.
+   * @param data the value to rank
+   * @return the number of values smaller than data
+   * @throws NullPointerException if data is null
+   */
+  @Override
+  public int rank(Comparable<T> data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    return this.countBelow(data, false);
+  }
+
+
+
+
+  /**
+   * Counts the values smaller than (or equal to, if inclusive) data by adding
+   * up the sizes of the children left of the search path.
+   * @param data the value to compare against
+   * @param inclusive whether values equal to data should be counted too
+   * @return the number of values counted
+   */
+  private int countBelow(Comparable<T> data, boolean inclusive) {
+    int count = 0;
+    Node node = this.root;
+    while (node instanceof BTree.Inner) {
+      Inner inner = (Inner) node;
+      int index = this.lowerBound(inner, data, inclusive);
+      for (int i = 0; i < index; i++) {
+        count += inner.children[i].size;
+      }
+      node = inner.children[index];
+    }
+    return node == null ? 0 : count + this.lowerBound(node, data, inclusive);
+  }
+
+
+
+
+  /**
+   * Finds the value at the provided (zero-based) position in the sorted order
+   * of the collection.
+   * @param k the position of the value to find
+   * @return the k-th smallest value in the collection
+   * @throws IndexOutOfBoundsException if k is negative or not less than size()
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public T select(int k) throws IndexOutOfBoundsException {
+    if (k < 0 || k >= this.size()) {
+      throw new IndexOutOfBoundsException("No value at position " + k + "!");
+    }
+    Node node = this.root;
+    while (node instanceof BTree.Inner) {
+      Inner inner = (Inner) node;
+      int index = 0;
+      while (k >= inner.children[index].size) {
+        k -= inner.children[index].size;
+        index++;
+      }
+      node = inner.children[index];
+    }
+    return (T) node.keys[k];
+  }
+
+
+
+
+  /**
+   * Counts the number of values between min and max (including min and max
+   * themselves). A null min or max means that end of the range is unbounded.
+   * @param min the minimum value to count, or null for no minimum
+   * @param max the maximum value to count, or null for no maximum
+   * @return the number of values within the range
+   */
+  @Override
+  public int countInRange(Comparable<T> min, Comparable<T> max) {
+    int below = min == null ? 0 : this.countBelow(min, false);
+    int atMost = max == null ? this.size() : this.countBelow(max, true);
+    return Math.max(0, atMost - below);
+  }
+
+
+
+
+  /**
+   * Removes one occurrence of data from the tree, if it is stored in the tree.
+   * Leaves that become empty are unlinked, but leaves are not merged with their
+   * neighbours, so the height never grows beyond what the inserts built.
+   * @param data the value to remove
+   * @return true if a value was removed, false if data was not found
+   * @throws NullPointerException if data argument is null
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean remove(Comparable<T> data) throws NullPointerException {
+
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    if (this.root == null) {
+      return false;
+    }
+
+    Leaf leaf = this.findLeaf(data, false);
+    int position = this.lowerBound(leaf, data, false);
+    if (position == leaf.count) {
+      leaf = leaf.next;
+      position = 0;
+    }
+    if (leaf == null || data.compareTo((T) leaf.keys[position]) != 0) {
+      return false;
+    }
+    this.removeAt(leaf, position);
+    return true;
+  }
+
+
+
+
+  /**
+   * Removes every value between min and max (including min and max themselves)
+   * from the tree. A null min or max means that end of the range is unbounded.
+   * @param min the minimum value to remove, or null for no minimum
+   * @param max the maximum value to remove, or null for no maximum
+   * @return the number of values removed
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public int removeRange(Comparable<T> min, Comparable<T> max) {
+    int removed = 0;
+    while (this.root != null) {
+      Leaf leaf = this.firstLeaf(min);
+      int position = min == null ? 0 : this.lowerBound(leaf, min, false);
+      if (position == leaf.count) {
+        leaf = leaf.next;
+        position = 0;
+      }
+      if (leaf == null || leaf.count == 0
+          || (max != null && max.compareTo((T) leaf.keys[position]) < 0)) {
+        break;
+      }
+      this.removeAt(leaf, position);
+      removed++;
+    }
+    return removed;
+  }
+
+
+
+
+  /**
+   * @param min the lower bound, or null for the leftmost leaf
+   * @return the leaf where the search for min starts
+   */
+  private Leaf firstLeaf(Comparable<T> min) {
+    if (min != null) {
+      return this.findLeaf(min, false);
+    }
+    Node node = this.root;
+    while (node instanceof BTree.Inner) {
+      node = ((Inner) node).children[0];
+    }
+    return (Leaf) node;
+  }
+
+
+
+
+  /**
+   * Removes the value at a position of a leaf, and unlinks the leaf (and any inner node
+   * left without children) when it becomes empty.
+   * @param leaf the leaf holding the value
+   * @param position the position of the value in the leaf
+   */
+  private void removeAt(Leaf leaf, int position) {
+    System.arraycopy(leaf.keys, position + 1, leaf.keys, position, leaf.count - position - 1);
+    leaf.count--;
+    leaf.keys[leaf.count] = null;
+    for (Node node = leaf; node != null; node = node.parent) {
+      node.size--;
+    }
+    if (leaf.count > 0) {
+      return;
+    }
+
+    //Unlink the empty leaf from the chain of leaves
+    if (leaf.prev != null) {
+      leaf.prev.next = leaf.next;
+    }
+    if (leaf.next != null) {
+      leaf.next.prev = leaf.prev;
+    }
+
+    //Remove empty nodes from their parents, as far up as needed
+    Node empty = leaf;
+    while (empty.parent != null && empty.size == 0) {
+      Inner parent = empty.parent;
+      int index = 0;
+      while (parent.children[index] != empty) {
+        index++;
+      }
+      //Dropping the separator on the removed side keeps the others valid
+      int keyIndex = index == 0 ? 0 : index - 1;
+      if (parent.count > 0) {
+        System.arraycopy(parent.keys, keyIndex + 1, parent.keys, keyIndex,
+            parent.count - keyIndex - 1);
+        parent.keys[parent.count - 1] = null;
+      }
+      System.arraycopy(parent.children, index + 1, parent.children, index,
+          parent.count - index);
+      parent.children[parent.count] = null;
+      parent.count--;
+      empty = parent;
+    }
+
+    //Shrink the root while it has a single child
+    if (this.root.size == 0) {
+      this.root = null;
+      return;
+    }
+    while (this.root instanceof BTree.Inner && this.root.count == 0) {
+      this.root = ((Inner) this.root).children[0];
+      this.root.parent = null;
+    }
+  }
+
+
+
+
+  /**
+   * Allows setting the start (minimum) value of the iterator. When this method is called,
+   * every iterator created after it will use the minimum set by this method until this method
+   * is called again to set a new minimum value.
+   * @param min the minimum for iterators created for this tree, or null for no minimum
+   */
+  @Override
+  public void setIteratorMin(Comparable<T> min) {
+    this.min = min;
+  }
+
+
+
+
+  /**
+   * Allows setting the stop (maximum) value of the iterator. When this method is called,
+   * every iterator created after it will use the maximum set by this method until this method
+   * is called again to set a new maximum value.
+   * @param max the maximum for iterators created for this tree, or null for no maximum
+   */
+  @Override
+  public void setIteratorMax(Comparable<T> max) {
+    this.max = max;
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values stored in this tree, between the minimum set by
+   * setIteratorMin and the maximum set by setIteratorMax (including both themselves).
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new BTreeIterator(this.min, true, this.max, true, false);
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values between min and max in ascending order, using
+   * bounds of its own instead of the ones set by setIteratorMin and setIteratorMax.
+   * @param min the minimum of the range, or null for no minimum
+   * @param minInclusive whether values equal to min are returned
+   * @param max the maximum of the range, or null for no maximum
+   * @param maxInclusive whether values equal to max are returned
+   * @return an iterator over the values in the range
+   */
+  @Override
+  public Iterator<T> iterator(Comparable<T> min, boolean minInclusive,
+      Comparable<T> max, boolean maxInclusive) {
+    return new BTreeIterator(min, minInclusive, max, maxInclusive, false);
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values between min and max in descending order. It starts
+   * in the leaf holding the highest value of the range and follows the links backwards.
+   * @param min the minimum of the range, or null for no minimum
+   * @param minInclusive whether values equal to min are returned
+   * @param max the maximum of the range, or null for no maximum
+   * @param maxInclusive whether values equal to max are returned
+   * @return an iterator over the values in the range, highest first
+   */
+  @Override
+  public Iterator<T> descendingIterator(Comparable<T> min, boolean minInclusive,
+      Comparable<T> max, boolean maxInclusive) {
+    return new BTreeIterator(min, minInclusive, max, maxInclusive, true);
+  }
+
+
+
+
+  /**
+   * Nested class for Iterator objects created for this tree. The start point is found with
+   * one walk down from the root; after that the iterator reads each leaf's array in order
+   * and follows the links from leaf to leaf, forwards or (when descending) backwards.
+   */
+  private class BTreeIterator implements Iterator<T> {
+
+    // stores the stop point for the iterator: the maximum, or the minimum when descending
+    private final Comparable<T> stop;
+    // stores whether a value equal to the stop point is still returned
+    private final boolean stopInclusive;
+    // stores whether the iterator walks from the highest value down to the lowest
+    private final boolean descending;
+    // stores the leaf holding the next value, or null when done
+    private Leaf leaf = null;
+    // stores the position of the next value in leaf
+    private int position = 0;
+
+
+
+
+    /**
+     * Constructor for a new iterator over the values from min to max.
+     * @param min the minimum value of the range, or null for none
+     * @param minInclusive whether values equal to min are returned
+     * @param max the maximum value of the range, or null for none
+     * @param maxInclusive whether values equal to max are returned
+     * @param descending true to return the values from max down to min
+     */
+    BTreeIterator(Comparable<T> min, boolean minInclusive, Comparable<T> max,
+        boolean maxInclusive, boolean descending) {
+      this.descending = descending;
+      this.stop = descending ? min : max;
+      this.stopInclusive = descending ? minInclusive : maxInclusive;
+      if (root == null) {
+        return;
+      }
+      if (!descending) {
+        this.leaf = min == null ? firstLeaf(null) : findLeaf(min, !minInclusive);
+        this.position = min == null ? 0 : lowerBound(this.leaf, min, !minInclusive);
+      }
+      else if (max == null) {
+        Node node = root;
+        while (node instanceof BTree.Inner) {
+          node = ((Inner) node).children[node.count];
+        }
+        this.leaf = (Leaf) node;
+        this.position = this.leaf.count - 1;
+      }
+      else {
+        this.leaf = findLeaf(max, maxInclusive);
+        this.position = lowerBound(this.leaf, max, maxInclusive) - 1;
+      }
+      this.advance();
+    }
+
+
+
+
+    /**
+     * Moves on to the neighbouring leaf when the current one is used up, and stops
+     * the iterator once the next value is past the stop point.
+     */
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      if (this.position == this.leaf.count) {
+        this.leaf = this.leaf.next;
+        this.position = 0;
+      }
+      else if (this.position < 0) {
+        this.leaf = this.leaf.prev;
+        this.position = this.leaf == null ? 0 : this.leaf.count - 1;
+      }
+      if (this.leaf != null && this.stop != null) {
+        int compareValue = this.stop.compareTo((T) this.leaf.keys[this.position]);
+        if (this.descending) {
+          compareValue = -compareValue;
+        }
+        if (compareValue < 0 || (!this.stopInclusive && compareValue == 0)) {
+          this.leaf = null;
+        }
+      }
+    }
+
+
+
+
+    /**
+     * Returns true if the iterator has another value to return, and false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+      return this.leaf != null;
+    }
+
+
+
+
+    /**
+     * Returns the next value of the iterator.
+     * @throws NoSuchElementException if the iterator has no more values to return
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (this.leaf == null) {
+        throw new NoSuchElementException("No more elements in the iterator");
+      }
+      T result = (T) this.leaf.keys[this.position];
+      this.position += this.descending ? -1 : 1;
+      this.advance();
+      return result;
+    }
+  }
+
+
+
+
+  ///////////////////Testing////////////////////////////////////////////
+
+  /**
+   * Test for random inserts and removes against a sorted list, with small orders
+   * so that leaves and inner nodes are split and emptied often
+   */
+  @Test
+  public void testBTree1() {
+    for (int order = 3; order <= 6; order++) {
+      BTree<Integer> tree = new BTree<>(order);
+      List<Integer> expected = new ArrayList<>();
+      Random random = new Random(order);
+      for (int i = 0; i < 4000; i++) {
+        int value = random.nextInt(50);
+        if (random.nextInt(3) > 0) {
+          tree.insert(value);
+          int position = 0;
+          while (position < expected.size() && expected.get(position) < value) {
+            position++;
+          }
+          expected.add(position, value);
+        }
+        else {
+          Assertions.assertEquals(expected.remove((Integer) value), tree.remove(value));
+        }
+      }
+
+      //Same values, same order, same counts
+      Assertions.assertEquals(expected.size(), tree.size());
+      List<Integer> actual = new ArrayList<>();
+      for (Integer value : tree) {
+        actual.add(value);
+      }
+      Assertions.assertEquals(expected, actual);
+      for (int i = 0; i < expected.size(); i += 7) {
+        Assertions.assertEquals(expected.get(i), tree.select(i));
+      }
+      Assertions.assertEquals(expected.indexOf(25), tree.rank(25));
+      Assertions.assertEquals(expected.contains(25), tree.contains(25));
+    }
+  }
+
+
+
+
+  /**
+   * Test for iterators with a start and stop point, counts and range removal
+   */
+  @Test
+  public void testBTree2() {
+    BTree<String> tree = new BTree<>(3);
+    for (String value : new String[] {"a", "m", "m", "g", "z", "t", "t", "k"}) {
+      tree.insert(value);
+    }
+    tree.setIteratorMin("k");
+    tree.setIteratorMax("z");
+    String expected = "";
+    for (String value : tree) {
+      expected += value;
+    }
+    Assertions.assertEquals("kmmttz", expected);
+    Assertions.assertEquals(6, tree.countInRange("k", "z"));
+    Assertions.assertEquals(0, tree.countInRange("n", "s"));
+
+    Assertions.assertEquals(3, tree.removeRange("h", "s"));
+    Assertions.assertEquals(5, tree.size());
+    tree.setIteratorMin(null);
+    tree.setIteratorMax(null);
+    expected = "";
+    for (String value : tree) {
+      expected += value;
+    }
+    Assertions.assertEquals("agttz", expected);
+
+    Assertions.assertEquals(5, tree.removeRange(null, null));
+    Assertions.assertTrue(tree.isEmpty());
+    Assertions.assertFalse(tree.iterator().hasNext());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new BTree<Integer>(2));
+  }
+
+
+
+
+  /**
+   * Test for iterators with their own, possibly exclusive, bounds in both directions,
+   * against the values of a sorted list
+   */
+  @Test
+  public void testBTree4() {
+    BTree<Integer> tree = new BTree<>(3);
+    List<Integer> sorted = new ArrayList<>();
+    Random random = new Random(4);
+    for (int i = 0; i < 300; i++) {
+      int value = random.nextInt(40);
+      tree.insert(value);
+      sorted.add(value);
+    }
+    sorted.sort(null);
+
+    for (int min = -1; min <= 41; min += 3) {
+      for (int max = min - 2; max <= 41; max += 5) {
+        for (int flags = 0; flags < 4; flags++) {
+          boolean minInclusive = (flags & 1) != 0;
+          boolean maxInclusive = (flags & 2) != 0;
+          List<Integer> expected = new ArrayList<>();
+          for (Integer value : sorted) {
+            if ((value > min || (minInclusive && value == min))
+                && (value < max || (maxInclusive && value == max))) {
+              expected.add(value);
+            }
+          }
+          List<Integer> actual = new ArrayList<>();
+          tree.iterator(min, minInclusive, max, maxInclusive).forEachRemaining(actual::add);
+          Assertions.assertEquals(expected, actual);
+
+          actual.clear();
+          tree.descendingIterator(min, minInclusive, max, maxInclusive)
+              .forEachRemaining(value -> actual.add(0, value));
+          Assertions.assertEquals(expected, actual);
+        }
+      }
+    }
+
+    //Unbounded in both directions
+    List<Integer> actual = new ArrayList<>();
+    tree.descendingIterator(null, null).forEachRemaining(value -> actual.add(0, value));
+    Assertions.assertEquals(sorted, actual);
+  }
+
+
+
+
+  /**
+   * Test for using the tree in place of IterableRedBlackTree inside Backend
+   */
+  @Test
+  public void testBTree3() throws IOException {
+    Backend fromBTree = new Backend(new BTree<>(8));
+    Backend fromRBT = new Backend(new IterableRedBlackTree<>());
+    fromBTree.readData("songs.csv");
+    fromRBT.readData("songs.csv");
+
+    Assertions.assertEquals(fromRBT.getRange(60, 80), fromBTree.getRange(60, 80));
+    Assertions.assertEquals(fromRBT.filterSongs(100), fromBTree.filterSongs(100));
+    Assertions.assertEquals(fromRBT.fiveMost(), fromBTree.fiveMost());
+  }
+
+}
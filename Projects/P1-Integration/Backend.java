@@ -1,18 +1,59 @@
 
-import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.List;
 
 /**
  * A class to manage, arrange, and filter Song data. 
  */
 public class Backend implements BackendInterface {
+    // The columns of the csv file that readData uses, and their positions
+    private static final String[] COLUMNS = {"title", "artist", "top genre", "year",
+                                             "bpm", "nrgy", "dnce", "dB", "live"};
+    private static final int TITLE = 0, ARTIST = 1, GENRES = 2, YEAR = 3, BPM = 4,
+                             ENERGY = 5, DANCEABILITY = 6, LOUDNESS = 7, LIVENESS = 8;
+    // Number of chunks per thread when parsing in parallel, so that threads
+    // that finish early can take over chunks of the others
+    private static final int CHUNKS_PER_THREAD = 4;
+
     private IterableSortedCollection<Song> tree;
     private Integer bounds[];
     private Integer threshold;
+    // Every song, stored under its lower case title and its lower case artist
+    private RadixTrie<Song> names = new RadixTrie<Song>();
+    // Sorts songs by their integer attributes, reusing its buffers
+    private SongSorter sorter = new SongSorter();
+    // Columnar copy of every song that queries scan, or null to use the tree
+    private SongTable table = null;
+    // Results of getRange, filterSongs and fiveMost, or null to not cache them
+    private QueryCache cache = new QueryCache();
+    // Incremented whenever songs are added, which invalidates the cache
+    private long dataVersion = 0;
+    // Every song by danceability and bpm, used for queries with a speed
+    // filter, or null to scan the tree instead
+    private PrioritySearchTree<Song> speedIndex = null;
 
     /**
      * Backend constructor initializes the tree with the given argument and 
@@ -26,6 +67,50 @@ public class Backend implements BackendInterface {
         threshold = null;
     }
 
+    /**
+     * Backend constructor that also keeps every song in a columnar table.
+     * Songs are still inserted into the tree, but getRange, filterSongs and
+     * fiveMost are answered from the columns of the table and their bitmap
+     * indexes instead of iterating through the tree, with the same results.
+     * @param tree is the tree the Songs are to be stored in
+     * @param table is the table the Songs are also stored in, or null
+     */
+    public Backend(IterableSortedCollection<Song> tree, SongTable table) {
+        this(tree);
+        this.table = table;
+    }
+
+    /**
+     * Backend constructor that also sets the cache that the results of
+     * getRange, filterSongs and fiveMost are kept in, so that repeating a
+     * query does not scan the songs again.  Without this constructor, a
+     * cache with a budget of 16 MB is used.
+     * @param tree is the tree the Songs are to be stored in
+     * @param table is the table the Songs are also stored in, or null
+     * @param cache is the cache for query results, or null to not cache them
+     */
+    public Backend(IterableSortedCollection<Song> tree, SongTable table, QueryCache cache) {
+        this(tree, table);
+        this.cache = cache;
+    }
+
+    /**
+     * Backend constructor that also keeps every song in a priority search
+     * tree, keyed by danceability and heap ordered on bpm.  While a speed
+     * filter is set, getRange, filterSongs, fiveMost and topK find their
+     * songs in it, touching only the songs that pass the filter instead of
+     * every song in the danceability range, with the same results as the
+     * IterableRedBlackTree.
+     * @param tree is the tree the Songs are to be stored in
+     * @param speedIndex is the priority search tree the Songs are also
+     *     stored in, which must search by Song::getDanceability and
+     *     Song::getBPM, or null
+     */
+    public Backend(IterableSortedCollection<Song> tree, PrioritySearchTree<Song> speedIndex) {
+        this(tree);
+        this.speedIndex = speedIndex;
+    }
+
     /**
      * Loads data from the .csv file referenced by filename.  You can rely
      * on the exact headers found in the provided songs.csv, but you should
@@ -41,135 +126,194 @@ public class Backend implements BackendInterface {
      */
     @Override
     public void readData(String filename) throws IOException {
-        Scanner myScanner;
+        Reader reader;
         try {
-            // Create Scanner object with contents at filename as its input
-            myScanner = new Scanner(new File(filename));
+            // songs.csv is encoded in UTF-8, whatever the platform charset is
+            reader = new InputStreamReader(new FileInputStream(filename),
+                                           StandardCharsets.UTF_8);
         } catch (FileNotFoundException e) {
             throw new IOException("The file doesn't exist!");
         } 
 
-        // Check if the file at filename is empty
-        String header = myScanner.nextLine();
-        if (header.trim().equals("")) throw new IOException("The file is empty!");
+        addSongs(readSongs(reader));
+    }
 
-        // Get the header and create an array of the headers in order
-        String headers[] = lineDecomp(header);
+    /**
+     * Loads data from the .csv file referenced by filename, like readData,
+     * but parses the file on several threads.  The file is read into memory
+     * and split into chunks of whole records (line breaks inside quoted
+     * values do not split a record).  The chunks are parsed in parallel on
+     * a ForkJoinPool, and the songs of all chunks are then inserted into the
+     * tree as one batch, in the order of the file, so the tree ends up the
+     * same as after readData.
+     * @param filename is the name of the csv file to load data from
+     * @param threads is the number of threads that parse the file
+     * @throws IOException when there is trouble finding/reading file
+     * @throws IllegalArgumentException when threads is smaller than 1
+     */
+    public void readData(String filename, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("Threads must be at least 1!");
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(Paths.get(filename));
+        } catch (NoSuchFileException e) {
+            throw new IOException("The file doesn't exist!");
+        }
 
-        while (myScanner.hasNextLine()) {
-            // Extract the parameters from one line of the CSV file
-            String words[] = lineDecomp(myScanner.nextLine());
-            String title = words[argPosition(headers, "title")];
-            String artist = words[argPosition(headers, "artist")];
-            String genres = words[argPosition(headers, "top genre")];
-            int year = 
-                Integer.parseInt(words[argPosition(headers, "year")]);
-            int bpm = 
-                Integer.parseInt(words[argPosition(headers, "bpm")]);
-            int energy = 
-                Integer.parseInt(words[argPosition(headers, "nrgy")]);
-            int danceability = 
-                Integer.parseInt(words[argPosition(headers, "dnce")]);
-            int loudness = 
-                Integer.parseInt(words[argPosition(headers, "dB")]);
-            int liveness = 
-                Integer.parseInt(words[argPosition(headers, "live")]);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // Every chunk is parsed together with a copy of the header
+            int headerEnd = recordStart(bytes, 0, false);
+            int[] starts = chunkStarts(bytes, headerEnd, threads * CHUNKS_PER_THREAD, pool);
+            List<Callable<List<Song>>> parsers = new ArrayList<Callable<List<Song>>>();
+            for (int i = 0; i + 1 < starts.length; i++) {
+                int from = starts[i];
+                int to = starts[i + 1];
+                parsers.add(() -> readSongs(new InputStreamReader(new SequenceInputStream(
+                    new ByteArrayInputStream(bytes, 0, headerEnd),
+                    new ByteArrayInputStream(bytes, from, to - from)),
+                    StandardCharsets.UTF_8)));
+            }
 
-            Song s = new Song(title, 
-                              artist, 
-                              genres, 
-                              year, 
-                              bpm, 
-                              energy, 
-                              danceability,
-                              loudness, 
-                              liveness,
-                              (s1, s2) -> s1.getDanceability() - s2.getDanceability());
-            tree.insert(s);
+            List<Song> songs = new ArrayList<Song>();
+            for (List<Song> chunk : getAll(pool.invokeAll(parsers))) {
+                songs.addAll(chunk);
+            }
+            addSongs(songs);
+        } finally {
+            pool.shutdown();
         }
     }
 
     /**
-     * Private helper method to decompose a line of a CSV file into its 
-     * constituent comma-separated values. 
-     * Returns the values as an array of Strings.  
-     * @param line is the full line of the CSV file
-     * @return the values extracted from the line
+     * Private helper method to split the records after the header into
+     * chunks of about equal size.  The file is first cut at even distances.
+     * The quotes before each cut, counted in parallel, tell whether the cut
+     * is inside a quoted value, and each cut then moves forward to the start
+     * of the next record.
+     * @param bytes is the content of the file
+     * @param headerEnd is where the first record after the header starts
+     * @param chunks is the number of chunks to create
+     * @param pool is the pool the quotes are counted on
+     * @return the start of every chunk, followed by the end of the file
      */
-    private String[] lineDecomp(String line) {
-        ArrayList<String> words = new ArrayList<String>();
-        int numDQs = 0; // Refers to the number of double-quotations
-        // Refers to the accumulated String. This corresponds to a single value in the CSV
-        String acc = "";
-
+    private static int[] chunkStarts(byte[] bytes, int headerEnd, int chunks,
+                                     ForkJoinPool pool) throws IOException {
+        int[] cuts = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            cuts[i] = headerEnd + (int) ((long) (bytes.length - headerEnd) * i / chunks);
+        }
+        List<Callable<Integer>> counters = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < chunks; i++) {
+            int from = cuts[i];
+            int to = cuts[i + 1];
+            counters.add(() -> {
+                int quotes = 0;
+                for (int j = from; j < to; j++) {
+                    if (bytes[j] == '"') quotes++;
+                }
+                return quotes;
+            });
+        }
+        List<Integer> quotes = getAll(pool.invokeAll(counters));
 
-        for (int i = 0; i < line.length(); i++) {
-            String c = line.substring(i, i + 1); // A single character in the line of text 
+        int[] starts = cuts.clone();
+        // Every quote opens or closes a quoted value (a doubled quote does both)
+        boolean inQuotes = false;
+        for (int i = 1; i < chunks; i++) {
+            inQuotes ^= quotes.get(i - 1) % 2 == 1;
+            starts[i] = Math.max(starts[i - 1], recordStart(bytes, cuts[i], inQuotes));
+        }
+        return starts;
+    }
 
-            // If the character c is the last one in the line
-            if (i == line.length() - 1) { 
-                // The last character is a double quotation (") 
-                // and the number of double quotations is odd
-                if (c.equals("\"") && numDQs % 2 == 1) {
-                    words.add(acc); // Exclude the "
-                } else {
-                    acc += c;
-                    words.add(acc);
-                }
-                acc = ""; // Reset the accumulated value 
-            } else if (c.equals(",")) { // Character is a comma
-                if (numDQs % 2 == 0) {
-                    words.add(acc);
-                    acc = "";
-                    numDQs = 0;
-                } else {
-                    // If we have an odd number of DQs, the comma is part of the value
-                    acc += ",";
-                }
-            } else if (c.equals("\"")) { // Character is a double quotation mark
-                // Check if the character is followed by another double quotation mark
-                if (line.substring(i + 1, i + 2).equals("\"")) { 
-                    acc += "\"";
-                    numDQs += 2;
-                    i++;
-                } else {
-                    numDQs++;
-                }
-            } else { // Character is normal (not comma or double quotation)
-                acc += c;
+    /**
+     * Private helper method to find the start of the first record after a
+     * position of the file.  The bytes of quotes and line breaks never occur
+     * inside a multi-byte UTF-8 character, so the file can be scanned as
+     * bytes.
+     * @param bytes is the content of the file
+     * @param from is the position to search from
+     * @param inQuotes is true if from is inside a quoted value
+     * @return the position after the next line break outside of quotes, or
+     *     the end of the file if there is none
+     */
+    private static int recordStart(byte[] bytes, int from, boolean inQuotes) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes && (bytes[i] == '\n' || bytes[i] == '\r')) {
+                return i + 1;
             }
         }
-        // Add acc to words if acc isn't empty
-        if (!acc.equals("")) {
-            words.add(acc);
-            acc = "";
-        }
+        return bytes.length;
+    }
 
-        // Put the values in words into an array of Strings
-        String output[] = new String[words.size()];
-        for (int i = 0; i < words.size(); i++) {
-            output[i] = words.get(i);
+    /**
+     * Private helper method to wait for the results of tasks, passing on any
+     * exception that a task threw.
+     * @param futures is the tasks to wait for
+     * @return the results of the tasks, in order
+     */
+    private static <T> List<T> getAll(List<Future<T>> futures) throws IOException {
+        List<T> results = new ArrayList<T>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Loading was interrupted!");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
         }
-        return output;
+        return results;
     }
 
     /**
-     * Private helper method to return the index of the specified 
-     * header/argument name in the sequence of header values. 
-     * For example, if the header of the CSV file is title,age,bpm...
-     * then argPosition(headers, "title") should return 0,
-     * and argPosition(headers, "age") should return 1, and so on.
-     * @param headers is an array of the header fields of the CSV file
-     * @param argName is the name of the field concerned
-     * @return
+     * Private helper method to create a Song from every record of a csv
+     * file.  The header is read once, and the columns the songs need are
+     * found in it by name; the values of all other columns are skipped.
+     * @param reader is the content of the file, closed when done
+     * @return the songs, in the order of the file
+     * @throws IOException when there is trouble reading the file
      */
-    private int argPosition(String[] headers, String argName) {
-        for (int i = 0; i < headers.length; i++) {
-            if (argName.equals(headers[i])) {
-                return i;
+    private static List<Song> readSongs(Reader reader) throws IOException {
+        List<Song> songs = new ArrayList<Song>();
+        // The reader is closed even when the header cannot be read
+        try (Reader in = reader; CsvReader csv = new CsvReader(in, COLUMNS)) {
+            while (csv.next()) {
+                songs.add(new Song(csv.get(TITLE), 
+                                   csv.get(ARTIST), 
+                                   csv.get(GENRES), 
+                                   csv.getInt(YEAR), 
+                                   csv.getInt(BPM), 
+                                   csv.getInt(ENERGY), 
+                                   csv.getInt(DANCEABILITY),
+                                   csv.getInt(LOUDNESS), 
+                                   csv.getInt(LIVENESS),
+                                   (s1, s2) -> s1.getDanceability() - s2.getDanceability()));
             }
         }
-        return -1;
+        return songs;
+    }
+
+    /**
+     * Private helper method to add songs to the tree, as one batch, and to
+     * the title and artist index.  Cached query results become stale.
+     * @param songs is the songs to add
+     */
+    private void addSongs(List<Song> songs) {
+        for (Song s : songs) {
+            names.insert(s.getTitle().toLowerCase(Locale.ROOT), s);
+            names.insert(s.getArtist().toLowerCase(Locale.ROOT), s);
+        }
+        tree.insertAll(songs);
+        if (table != null) table.addAll(songs);
+        if (speedIndex != null) speedIndex.addAll(songs);
+        dataVersion++;
     }
 
     /**
@@ -196,21 +340,36 @@ public class Backend implements BackendInterface {
     public List<String> getRange(Integer low, Integer high) {
         bounds[0] = low;
         bounds[1] = high;
+        return cached(QueryCache.Kind.TITLES, this::getTitles);
+    }
 
-        // Configure the iterators
-        this.tree.setIteratorMin(boundingSong(bounds[0]));
-        this.tree.setIteratorMax(boundingSong(bounds[1]));
+    /**
+     * Private helper method to answer a query for the current bounds and
+     * threshold from the cache, or to run it and cache its result.
+     * @return the result, which must not be modified
+     */
+    private List<String> cached(QueryCache.Kind kind, Supplier<List<String>> query) {
+        if (cache == null) return query.get();
+        return cache.get(dataVersion, kind, bounds[0], bounds[1], threshold, query);
+    }
 
-        return getTitles();
+    /**
+     * @return the cache of query results, whose hit and miss counters show
+     *     how often it answered a query, or null if results are not cached
+     */
+    public QueryCache getCache() {
+        return cache;
     }
 
     /**
-     * Helper method creating a Song object used by the setIterator methods.
+     * Helper method creating the bound passed to the tree's iterator.  The
+     * bound compares songs by danceability alone, so no Song object needs to
+     * be created for it.
      */
-    private Comparable<Song> boundingSong(Integer danceabilityBound) {
-        if (danceabilityBound == null) return null;
-        return new Song(null, null, null, 0, 0, 0, danceabilityBound, 0, 0, 
-            (s1, s2) -> s1.getDanceability() - s2.getDanceability());
+    private Comparable<Song> danceabilityBound(Integer danceability) {
+        if (danceability == null) return null;
+        int bound = danceability;
+        return song -> Integer.compare(bound, song.getDanceability());
     }
 
     /**
@@ -235,17 +394,26 @@ public class Backend implements BackendInterface {
     @Override 
     public List<String> filterSongs(Integer threshold) {
         this.threshold = threshold;
-        return getTitles();
+        return cached(QueryCache.Kind.TITLES, this::getTitles);
     }
 
     /** 
      * Private helper method to collect and return all the Songs that fall 
-     * within the danceability bounds and the speed threshold. 
+     * within the danceability bounds and the speed threshold, from the
+     * priority search tree if there is one and a threshold is set.
      * @return a List of all the songs that satisfy these conditions
      */
     private List<Song> getSongs() {
+        if (speedIndex != null && threshold != null) {
+            return speedIndex.query(bounds[0], bounds[1], threshold);
+        }
         List<Song> songs = new ArrayList<Song>();
-        for (Song s : tree) {
+        // Each call passes its own bounds, so the tree-wide iterator
+        // bounds are never changed by this backend
+        Iterator<Song> inRange = tree.iterator(danceabilityBound(bounds[0]),
+                                               danceabilityBound(bounds[1]));
+        while (inRange.hasNext()) {
+            Song s = inRange.next();
             if (threshold == null) {
                 songs.add(s);
             } else if (s.getBPM() < threshold) {
@@ -258,10 +426,19 @@ public class Backend implements BackendInterface {
     /** 
      * Private helper method to collect and return all the titles of the Songs
      * that fall within the danceability bounds and the speed threshold. Uses
-     * the getSongs method, and extracts the title from each song. 
+     * the getSongs method, and extracts the title from each song, unless a
+     * table was passed to the constructor, whose columns are scanned instead.
      * @return a List of all the songs' titles that satisfy these conditions
      */
     private List<String> getTitles() {
+        if (table != null) {
+            int[] rows = table.select(bounds[0], bounds[1], threshold);
+            List<String> titles = new ArrayList<String>(rows.length);
+            for (int row : rows) {
+                titles.add(table.getTitle(row));
+            }
+            return titles;
+        }
         List<Song> songs = getSongs();
         List<String> titles = new ArrayList<String>(songs.size());
         for (Song s : songs) {
@@ -284,27 +461,103 @@ public class Backend implements BackendInterface {
      */
     @Override 
     public List<String> fiveMost() {
-        List<String> top5 = new ArrayList<String>(5);
-        List<Song> songs = getSongs();
+        return cached(QueryCache.Kind.FIVE_MOST, this::findFiveMost);
+    }
 
-        // Find the most recent, 2nd most recent, 3rd most recent, etc., 
-        // removing the chosen element from titles with each pass. 
-        // The code in the outer loop is run 5 times because we need to find and extract the top 
-        // song in the tree 5 times. 
-        for (int i = 0; i < 5; i++) {
-            int value = 0;
-            int index = -1;
-            for (int j = 0; j < songs.size(); j++) {
-                if (index == -1 || songs.get(j).getYear() > value) {
-                    value = songs.get(j).getYear();
-                    index = j;
-                }
+    /**
+     * Private helper method to find the titles that fiveMost returns, from
+     * the table if there is one, or else from the tree.
+     */
+    private List<String> findFiveMost() {
+        if (table != null) {
+            List<String> top5 = new ArrayList<String>(5);
+            int[] rows = table.select(bounds[0], bounds[1], threshold);
+            for (int row : table.mostRecent(rows, 5)) {
+                top5.add(table.getTitle(row));
             }
-            if (index != -1) {
-                top5.add(songs.remove(index).getTitle());
+            return top5;
+        }
+
+        return topK(5, Song::getYear, true);
+    }
+
+    /**
+     * Returns the titles of the k songs with the largest (or smallest)
+     * value of an attribute, among the songs that fall within the range of
+     * the most recent call to getRange and pass the filter of the most
+     * recent call to filterSongs.  The songs are streamed from the tree's
+     * iterator through a heap that holds at most k songs, so this takes
+     * O(n log k) time and does not collect the matching songs in a list.
+     * The exception is a backend with a priority search tree while a speed
+     * filter is set: the matching songs are then collected from that tree
+     * in one list first, since its query skips the songs that are too fast
+     * instead of visiting them, and that list is fed through the heap.
+     * Of several songs with the same value, the one found first in the
+     * tree comes first.
+     * @param k is the number of song titles to return at most
+     * @param attribute returns the value to rank each song by
+     * @param largest is true for the largest values, false for the smallest
+     * @return List of at most k song titles, best first
+     * @throws IllegalArgumentException when k is negative
+     */
+    @Override
+    public List<String> topK(int k, ToIntFunction<Song> attribute, boolean largest) {
+        TopK<Song> top = new TopK<Song>(k, largest);
+        Iterator<Song> inRange = speedIndex != null && threshold != null
+            ? getSongs().iterator()
+            : tree.iterator(danceabilityBound(bounds[0]), danceabilityBound(bounds[1]));
+        while (inRange.hasNext()) {
+            Song s = inRange.next();
+            if (threshold == null || s.getBPM() < threshold) {
+                top.offer(attribute.applyAsInt(s), s);
             }
         }
+        List<String> titles = new ArrayList<String>(top.size());
+        for (Song s : top.drain()) {
+            titles.add(s.getTitle());
+        }
+        return titles;
+    }
+
+    /**
+     * Returns every song in the tree, ordered by the provided integer
+     * attribute (e.g. Song::getYear or Song::getBPM).  This ignores the
+     * danceability range and the speed filter.  The songs are sorted by
+     * counting sort or radix sort, in time linear in the number of songs,
+     * and songs with equal values stay in the order of the tree.
+     * @param attribute returns the value to sort each song by
+     * @return List of all songs, ordered by attribute
+     */
+    public List<Song> sortedBy(ToIntFunction<Song> attribute) {
+        List<Song> songs = new ArrayList<Song>(tree.size());
+        Iterator<Song> all = tree.iterator(null, null);
+        while (all.hasNext()) {
+            songs.add(all.next());
+        }
+        return sorter.sort(songs, attribute);
+    }
 
-        return top5;
+    /**
+     * Retrieves a list of song titles for all songs whose title or artist
+     * starts with the specified prefix, ignoring case.  The songs are found
+     * through the trie filled by readData, so the search never scans the
+     * tree.  The titles are ordered by the title or artist that matched,
+     * and each song is listed only once.
+     *
+     * @param prefix is the start of the titles and artists to search for
+     * @return List of titles for all matching songs, or an empty list when
+     *     no such songs can be found
+     */
+    @Override
+    public List<String> search(String prefix) {
+        List<String> titles = new ArrayList<String>();
+        // A song may match by both its title and its artist
+        Set<Song> seen = Collections.newSetFromMap(new IdentityHashMap<Song, Boolean>());
+        for (Song s : names.withPrefix(prefix.toLowerCase(Locale.ROOT))) {
+            if (seen.add(s)) {
+                titles.add(s.getTitle());
+            }
+        }
+        return titles;
     }
 }
@@ -1,5 +1,6 @@
 import java.util.List;
 import java.io.IOException;
+import java.util.function.ToIntFunction;
 
 /**
  * BackendInterface - CS400 Project 1: iSongly
@@ -84,4 +85,35 @@ public interface BackendInterface {
      * @return List of five most recent song titles
      */
     public List<String> fiveMost();
+
+    /**
+     * Retrieves a list of song titles for all songs whose title or artist
+     * starts with the specified prefix, ignoring case.  This search is not
+     * affected by the danceability range or the speed filter.  The titles
+     * are ordered by the title or artist that matched, and each song is
+     * listed only once.
+     *
+     * @param prefix is the start of the titles and artists to search for
+     * @return List of titles for all matching songs, or an empty list when
+     *     no such songs can be found
+     */
+    public List<String> search(String prefix);
+
+    /**
+     * Returns a list of song titles representing the k songs with the
+     * largest (or smallest) value of the specified attribute, among the songs
+     * that fall within any attribute range specified by the most recent call
+     * to getRange, and conform to any filter set by the most recent call to
+     * filteredSongs.  The titles are ordered from the best value to the
+     * worst.  fiveMost is the same as topK(5, Song::getYear, true).
+     *
+     * If fewer than k such songs exist, return all of them.  And return an
+     * empty list when there are no such songs.
+     *
+     * @param k is the number of song titles to return at most
+     * @param attribute returns the value to rank each song by
+     * @param largest is true for the largest values, false for the smallest
+     * @return List of at most k song titles
+     */
+    public List<String> topK(int k, ToIntFunction<Song> attribute, boolean largest);
 }
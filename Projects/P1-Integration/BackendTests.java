@@ -2,6 +2,9 @@
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -130,4 +133,218 @@ public class BackendTests {
             b.filterSongs(149);
             Assertions.assertEquals(b.fiveMost().size(), 2, "Wrong number of songs!");
         }
+
+    /**
+     * Tests functionality of sortedBy method.
+     * Verifies that every song is returned, ordered by the requested
+     * attribute, whatever danceability range and speed threshold are set.
+     */
+    @Test
+        public void backendTest4() {
+            IterableSortedCollection<Song> tree = new Tree_Placeholder();
+            Backend b = new Backend(tree);
+            b.getRange(80, 90);
+            b.filterSongs(110);
+
+            // Years are 2017, 2015 and 2016, bpms are 148, 103 and 119
+            List<Song> byYear = b.sortedBy(Song::getYear);
+            Assertions.assertEquals(byYear.size(), 3, "Wrong number of songs!");
+            Assertions.assertEquals(byYear.get(0).getTitle(), "BO$$", "Wrong order!");
+            Assertions.assertEquals(byYear.get(2).getTitle(), "A L I E N S", "Wrong order!");
+            List<Song> byBPM = b.sortedBy(Song::getBPM);
+            Assertions.assertEquals(byBPM.get(1).getTitle(), "Cake By The Ocean", "Wrong order!");
+        }
+
+    /**
+     * Tests functionality of readData with several threads.
+     * Verifies that parsing in parallel loads the same songs in the same
+     * order as readData, also when quoted titles contain line breaks and
+     * commas that the chunks could be split at.
+     */
+    @Test
+        public void backendTest5() {
+            try {
+                Backend sequential = new Backend(new IterableRedBlackTree<>());
+                Backend parallel = new Backend(new IterableRedBlackTree<>());
+                sequential.readData("songs.csv");
+                parallel.readData("songs.csv", 3);
+                Assertions.assertEquals(sequential.getRange(null, null),
+                                        parallel.getRange(null, null), "Wrong songs!");
+
+                // Every other title spans two lines, the others are not ASCII
+                Path file = Files.createTempFile("songs", ".csv");
+                String csv = "title,artist,top genre,year,bpm,nrgy,dnce,dB,live\r\n";
+                for (int i = 0; i < 500; i++) {
+                    String title = i % 2 == 0 ? "\"Song\r\n" + i + ", \"\"live\"\"\"" : "Caf\u00e9 " + i;
+                    csv += title + ",Artist,pop,2010," + i + ",80," + (i % 7) + ",-5,10\r\n";
+                }
+                Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+                try {
+                    sequential = new Backend(new IterableRedBlackTree<>());
+                    parallel = new Backend(new IterableRedBlackTree<>());
+                    sequential.readData(file.toString());
+                    parallel.readData(file.toString(), 4);
+                    List<String> titles = sequential.getRange(null, null);
+                    Assertions.assertEquals(titles.size(), 500, "Wrong number of songs!");
+                    Assertions.assertTrue(titles.contains("Caf\u00e9 1"), "Wrong title!");
+                    Assertions.assertEquals(titles, parallel.getRange(null, null), "Wrong songs!");
+                } finally {
+                    Files.delete(file);
+                }
+            } catch (IOException e) {
+                Assertions.fail("IOException! Check that songs.csv file is present!");
+            }
+        }
+
+    /**
+     * Tests functionality of the backend with a SongTable.
+     * Verifies that scanning the columns of the table gives the same results
+     * as iterating through the tree, for several ranges and filters.
+     */
+    @Test
+        public void backendTest6() {
+            try {
+                Backend withTree = new Backend(new IterableRedBlackTree<>());
+                SongTable table = new SongTable();
+                Backend withTable = new Backend(new IterableRedBlackTree<>(), table);
+                withTree.readData("songs.csv");
+                withTable.readData("songs.csv");
+                Assertions.assertEquals(table.size(), 600, "Wrong number of songs!");
+
+                Integer[][] queries = {{null, null, null}, {70, 71, null}, {40, 80, 149},
+                                       {null, 50, 100}, {90, null, 60}, {null, null, 80},
+                                       {30, 90, 90}};
+                for (Integer[] query : queries) {
+                    Assertions.assertEquals(withTree.getRange(query[0], query[1]),
+                                            withTable.getRange(query[0], query[1]));
+                    Assertions.assertEquals(withTree.filterSongs(query[2]),
+                                            withTable.filterSongs(query[2]));
+                    Assertions.assertEquals(withTree.fiveMost(), withTable.fiveMost());
+                }
+                // The slowest songs are found through the bpm index
+                Assertions.assertEquals(SongTable.Plan.BITMAP, table.plan(null, null, 80));
+            } catch (IOException e) {
+                Assertions.fail("IOException! Check that songs.csv file is present!");
+            }
+        }
+
+    /**
+     * Tests functionality of topK method.
+     * Verifies that fiveMost is topK by year, and that topK returns the
+     * songs with the best values in order, within the range and filter.
+     */
+    @Test
+        public void backendTest7() {
+            try {
+                Backend b = new Backend(new IterableRedBlackTree<>());
+                b.readData("songs.csv");
+                b.getRange(40, 80);
+                b.filterSongs(149);
+                Assertions.assertEquals(b.fiveMost(), b.topK(5, Song::getYear, true));
+
+                // The range and filter still apply to every song that is ranked
+                List<String> all = b.getRange(60, 61);
+                List<String> quietFirst = b.topK(1000, Song::getLoudness, false);
+                Assertions.assertEquals(all.size(), quietFirst.size(), "Wrong number of songs!");
+                Assertions.assertTrue(all.containsAll(quietFirst), "Wrong songs!");
+                List<Song> byLoudness = b.sortedBy(Song::getLoudness);
+                Assertions.assertEquals(b.topK(0, Song::getYear, true).size(), 0);
+                Assertions.assertThrows(IllegalArgumentException.class,
+                                        () -> b.topK(-1, Song::getYear, true));
+                // A k far larger than the data returns every song
+                Assertions.assertEquals(quietFirst,
+                                        b.topK(2_000_000_000, Song::getLoudness, false));
+
+                // The quietest songs among all of them come first
+                b.getRange(null, null);
+                b.filterSongs(null);
+                Assertions.assertEquals(byLoudness.get(0).getTitle(),
+                                        b.topK(3, Song::getLoudness, false).get(0));
+            } catch (IOException e) {
+                Assertions.fail("IOException! Check that songs.csv file is present!");
+            }
+        }
+
+        /**
+         * Tests that repeated queries are answered from the cache, that the
+         * cached results match uncached ones, and that reading more data
+         * invalidates them.
+         */
+        @Test
+        public void backendTest8() {
+            try {
+                Backend cached = new Backend(new IterableRedBlackTree<>());
+                Backend uncached = new Backend(new IterableRedBlackTree<>(), null, null);
+                cached.readData("songs.csv");
+                uncached.readData("songs.csv");
+                QueryCache cache = cached.getCache();
+                Assertions.assertNull(uncached.getCache());
+
+                Assertions.assertEquals(uncached.getRange(40, 80), cached.getRange(40, 80));
+                Assertions.assertEquals(uncached.filterSongs(120), cached.filterSongs(120));
+                Assertions.assertEquals(uncached.fiveMost(), cached.fiveMost());
+                Assertions.assertEquals(0, cache.getHits());
+                Assertions.assertEquals(3, cache.getMisses());
+
+                // Same bounds, threshold and kind of query
+                Assertions.assertEquals(uncached.filterSongs(120), cached.getRange(40, 80));
+                Assertions.assertEquals(uncached.fiveMost(), cached.fiveMost());
+                Assertions.assertEquals(2, cache.getHits());
+
+                // Loading the file again doubles every result
+                int before = cached.getRange(40, 80).size();
+                cached.readData("songs.csv");
+                Assertions.assertEquals(2 * before, cached.getRange(40, 80).size());
+                Assertions.assertEquals(4, cache.getMisses());
+            } catch (IOException e) {
+                Assertions.fail("IOException! Check that songs.csv file is present!");
+            }
+        }
+
+        /**
+         * Tests that a backend with a priority search tree returns the same
+         * songs as one without, with and without a speed filter.
+         */
+        @Test
+        public void backendTest9() {
+            try {
+                Backend withTree = new Backend(new IterableRedBlackTree<>());
+                Backend withIndex = new Backend(new IterableRedBlackTree<>(),
+                    new PrioritySearchTree<Song>(Song::getDanceability, Song::getBPM));
+                withTree.readData("songs.csv");
+                withIndex.readData("songs.csv");
+
+                Integer[][] queries = {{null, null, null}, {40, 80, 149}, {null, 50, 100},
+                                       {90, null, 60}, {null, null, 80}, {70, 71, 1000}};
+                for (Integer[] query : queries) {
+                    Assertions.assertEquals(withTree.getRange(query[0], query[1]),
+                                            withIndex.getRange(query[0], query[1]));
+                    Assertions.assertEquals(withTree.filterSongs(query[2]),
+                                            withIndex.filterSongs(query[2]));
+                    Assertions.assertEquals(withTree.fiveMost(), withIndex.fiveMost());
+                    Assertions.assertEquals(withTree.topK(7, Song::getEnergy, false),
+                                            withIndex.topK(7, Song::getEnergy, false));
+                }
+            } catch (IOException e) {
+                Assertions.fail("IOException! Check that songs.csv file is present!");
+            }
+        }
+
+        /**
+         * Tests that readData decodes songs.csv as UTF-8, so titles and
+         * artists with characters outside of ASCII keep their length.
+         */
+        @Test
+        public void backendTest10() {
+            try {
+                Backend b = new Backend(new IterableRedBlackTree<>());
+                b.readData("songs.csv");
+                List<String> titles = b.getRange(66, 66);
+                Assertions.assertTrue(titles.contains("Just Can\uFFFDt Get Enough"), "Wrong title!");
+                List<String> beyonce = b.search("Beyonc\uFFFD");
+                Assertions.assertTrue(beyonce.contains("Love On Top"), "Wrong artist!");
+            } catch (IOException e) {
+                Assertions.fail("IOException! Check that songs.csv file is present!");
+            }
+        }
 }
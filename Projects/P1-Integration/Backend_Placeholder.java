@@ -1,6 +1,7 @@
 import java.util.List;
 import java.util.ArrayList;
 import java.io.IOException;
+import java.util.function.ToIntFunction;
 
 /**
  * This is a placeholder for the fully working Backend that will be developed
@@ -54,4 +55,29 @@ public class Backend_Placeholder implements BackendInterface {
         }
         return titles;
     }
+
+    // the hard-coded songs are simply scanned, in the order of the tree
+    public List<String> search(String prefix) {
+        List<String> titles = new ArrayList<>();
+        for(Song song : tree) {
+            if (song.getTitle().toLowerCase().startsWith(prefix.toLowerCase())
+                || song.getArtist().toLowerCase().startsWith(prefix.toLowerCase())) {
+                titles.add(song.getTitle());
+            }
+        }
+        return titles;
+    }
+
+    // ranks all of the hard-coded songs, the range and filters are ignored
+    public List<String> topK(int k, ToIntFunction<Song> attribute, boolean largest) {
+        TopK<Song> top = new TopK<>(k, largest);
+        for(Song song : tree) {
+            top.offer(attribute.applyAsInt(song), song);
+        }
+        List<String> titles = new ArrayList<>();
+        for(Song song : top.drain()) {
+            titles.add(song.getTitle());
+        }
+        return titles;
+    }
 }
@@ -6,10 +6,16 @@
  */
 public class BinarySearchTree<T extends Comparable<T>> implements SortedCollection<T> {
   
-  //The only field in this class
   //Root is used for the access of the whole tree
   protected BinaryTreeNode<T> root;
   
+  //Work counters reported by stats(), only updated when TreeStats.ENABLED is set
+  protected long statComparisons = 0;
+  protected long statRotations = 0;
+  protected long statRecolorings = 0;
+  protected long statRepairCalls = 0;
+  protected int statMaxRepairDepth = 0;
+  
 
   /**
    * Inserts a new data value into the sorted collection.
@@ -50,6 +56,12 @@ public class BinarySearchTree<T extends Comparable<T>> implements SortedCollecti
   protected void insertHelper(BinaryTreeNode<T> newNode, BinaryTreeNode<T> subtree) {
 
     int compareValue = newNode.getData().compareTo(subtree.getData());
+    if (TreeStats.ENABLED) {
+      this.statComparisons++;
+    }
+    
+    //The new node ends up somewhere below this subtree, so count it here
+    subtree.subtreeSize++;
     
     //Left branch logic
     if (compareValue <= 0) {
@@ -100,6 +112,9 @@ public class BinarySearchTree<T extends Comparable<T>> implements SortedCollecti
   private boolean containsHelper(Comparable<T> data, BinaryTreeNode<T> subtree) {
     
     int compareValue = data.compareTo(subtree.getData());
+    if (TreeStats.ENABLED) {
+      this.statComparisons++;
+    }
     
     if (compareValue == 0) {
       return true;
@@ -133,20 +148,164 @@ public class BinarySearchTree<T extends Comparable<T>> implements SortedCollecti
    */
   @Override
   public int size() {
-    return sizeHelper(this.root);
+    return this.root == null ? 0 : this.root.getSubtreeSize();
+  }
+  
+  
+  /**
+   * Counts the number of values in the collection that are strictly smaller
+   * than data. This is also the (zero-based) position that data would take
+   * in the sorted order of the collection.
+   * @param data the value to rank
+   * @return the number of values smaller than data
+   * @throws NullPointerException if data is null
+   */
+  public int rank(Comparable<T> data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    return countBelow(data, false);
+  }
+  
+  
+  /**
+   * Finds the value at the provided (zero-based) position in the sorted order
+   * of the collection, so select(0) is the smallest value and
+   * select(size() - 1) is the largest.
+   * @param k the position of the value to find
+   * @return the k-th smallest value in the collection
+   * @throws IndexOutOfBoundsException if k is negative or not less than size()
+   */
+  public T select(int k) throws IndexOutOfBoundsException {
+    if (k < 0 || k >= this.size()) {
+      throw new IndexOutOfBoundsException("No value at position " + k + "!");
+    }
+    
+    BinaryTreeNode<T> node = selectHelper(this.root, k);
+    return node.getCount() == 1 ? node.getData() : node.getData(k - positionHelper(node));
+  }
+  
+  
+  /**
+   * The helper method of select, walks down from the provided root using the
+   * subtree sizes to find the node at a position in sorted order.
+   * @param root the root of the tree to search
+   * @param k the position of the node to find, must be within the tree
+   * @return the node holding the k-th smallest value of the tree
+   */
+  protected static <T> BinaryTreeNode<T> selectHelper(BinaryTreeNode<T> root, int k) {
+    BinaryTreeNode<T> current = root;
+    while (true) {
+      int leftSize = current.childLeft() == null ? 0 : current.childLeft().getSubtreeSize();
+      if (k < leftSize) {
+        current = current.childLeft();         //Go left
+      }
+      else if (k < leftSize + current.getCount()) {
+        return current;
+      }
+      else {
+        k -= leftSize + current.getCount();    //Skip the left subtree and this node
+        current = current.childRight();        //Go right
+      }
+    }
+  }
+  
+  
+  /**
+   * Counts the values that come before the first value of the provided node in
+   * sorted order, by walking up through its ancestors.
+   * @param node the node to find the position of
+   * @return the position of the node's first value in the whole tree
+   */
+  protected static <T> int positionHelper(BinaryTreeNode<T> node) {
+    int position = node.childLeft() == null ? 0 : node.childLeft().getSubtreeSize();
+    for (; node.parent() != null; node = node.parent()) {
+      if (node.isRightChild()) {
+        BinaryTreeNode<T> parent = node.parent();
+        position += parent.getCount()
+            + (parent.childLeft() == null ? 0 : parent.childLeft().getSubtreeSize());
+      }
+    }
+    return position;
+  }
+  
+  
+  /**
+   * Counts the number of values between min and max (including min and max
+   * themselves). A null min or max means that end of the range is unbounded.
+   * @param min the minimum value to count, or null for no minimum
+   * @param max the maximum value to count, or null for no maximum
+   * @return the number of values within the range
+   */
+  public int countInRange(Comparable<T> min, Comparable<T> max) {
+    int below = min == null ? 0 : countBelow(min, false);
+    int atMost = max == null ? this.size() : countBelow(max, true);
+    return Math.max(0, atMost - below);
+  }
+  
+  
+  /**
+   * The helper method of rank and countInRange. Walks a single path down from
+   * the root and adds up the subtree sizes to the left of that path.
+   * @param data the value to compare against
+   * @param inclusive whether values equal to data should be counted too
+   * @return the number of values smaller than (or equal to, if inclusive) data
+   */
+  protected int countBelow(Comparable<T> data, boolean inclusive) {
+    int count = 0;
+    BinaryTreeNode<T> current = this.root;
+    while (current != null) {
+      int compareValue = data.compareTo(current.getData());
+      if (TreeStats.ENABLED) {
+        this.statComparisons++;
+      }
+      if (compareValue > 0 || (inclusive && compareValue == 0)) {
+        //This node and its whole left subtree are counted
+        count += current.getCount()
+            + (current.childLeft() == null ? 0 : current.childLeft().getSubtreeSize());
+        current = current.childRight();
+      }
+      else {
+        current = current.childLeft();
+      }
+    }
+    return count;
+  }
+
+  
+  /**
+   * Takes a snapshot of the work this tree has counted since it was created (or since
+   * the last call to resetStats), along with its current size and height. Counters are
+   * only updated while TreeStats.ENABLED is set, otherwise they stay zero.
+   * @return the snapshot
+   */
+  public TreeStats stats() {
+    return new TreeStats(this.statComparisons, this.statRotations, this.statRecolorings,
+        this.statRepairCalls, this.statMaxRepairDepth, this.size(), heightHelper(this.root));
+  }
+  
+  
+  /**
+   * Sets every work counter of this tree back to zero.
+   */
+  public void resetStats() {
+    this.statComparisons = 0;
+    this.statRotations = 0;
+    this.statRecolorings = 0;
+    this.statRepairCalls = 0;
+    this.statMaxRepairDepth = 0;
   }
   
   
   /**
-   * The helper method of size method, deals with the actual logic 
-   * @param node The provided entry point of a whole tree
-   * @return  The size of the whole tree
+   * @param node the root of the subtree to measure
+   * @return the number of nodes on the longest path down from node, 0 for null
    */
-  private int sizeHelper(BinaryTreeNode<T> node) {
+  private static int heightHelper(BinaryTreeNode<?> node) {
     if (node == null) {
       return 0;
     }
-    return 1 + sizeHelper(node.childLeft()) + sizeHelper(node.childRight());
+    return 1 + Math.max(heightHelper(node.childLeft()), heightHelper(node.childRight()));
   }
 
   
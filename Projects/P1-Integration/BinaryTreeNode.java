@@ -18,6 +18,8 @@ public class BinaryTreeNode<T> {
     protected BinaryTreeNode<T> left = null;
     // reference to the node's right child
     protected BinaryTreeNode<T> right = null;
+    // number of values in the subtree rooted at this node (including its own)
+    protected int subtreeSize = 1;
 
     /**
      * Constructor that creates a new node with the value data. Both parent 
@@ -31,6 +33,19 @@ public class BinaryTreeNode<T> {
      */
     public T getData() { return this.data; }
 
+    /**
+     * @return the number of values stored in this node, which is always 1 here
+     * but may be more in subclasses that keep equal values together in one node
+     */
+    public int getCount() { return 1; }
+
+    /**
+     * @param index the position of the value among this node's values, in
+     * sorted order (must be less than getCount())
+     * @return the value at that position, which here is always the only value
+     */
+    public T getData(int index) { return this.data; }
+
     /**
      * @return the reference to the left child of this node, 
      * or null if this node has no left child
@@ -75,6 +90,22 @@ public class BinaryTreeNode<T> {
 	this.right = newRightChild;
     }
     
+    /**
+     * @return the number of values in the subtree rooted at this node,
+     * including the values of this node itself
+     */
+    public int getSubtreeSize() { return this.subtreeSize; }
+
+    /**
+     * Recomputes the subtree size of this node from the sizes stored in its
+     * children. This must be called whenever the children of this node change
+     * (e.g. after a rotation), children first.
+     */
+    public void updateSubtreeSize() {
+        this.subtreeSize = this.getCount() + (this.left == null ? 0 : this.left.subtreeSize)
+            + (this.right == null ? 0 : this.right.subtreeSize);
+    }
+
     /**
      * @return true when this node has a parent and is the right child of
      * that parent, otherwise return false
@@ -0,0 +1,111 @@
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A secondary index on one integer attribute of the rows of a SongTable.
+ * For every distinct value of the attribute, the index keeps a bitmap of
+ * the rows with that value.  The integer attributes of songs take few
+ * distinct values (e.g. danceability 0 to 100, years since 1950), so a
+ * bucket per value keeps the index small, and the number of rows in each
+ * bucket is an exact histogram of the attribute, which is what a query
+ * planner needs to estimate how many rows a predicate matches.
+ */
+public class BitmapIndex {
+
+    // The rows with each value, by value
+    private final TreeMap<Integer, RoaringBitmap> buckets = new TreeMap<Integer, RoaringBitmap>();
+
+    /**
+     * Adds a row to the index.
+     * @param row is the row, not negative
+     * @param value is the value of the attribute in that row
+     */
+    public void add(int row, int value) {
+        RoaringBitmap bucket = buckets.get(value);
+        if (bucket == null) {
+            bucket = new RoaringBitmap();
+            buckets.put(value, bucket);
+        }
+        bucket.add(row);
+    }
+
+    /**
+     * Returns the buckets of the values between min and max (including both).
+     * @param min is the minimum value, or null for no minimum
+     * @param max is the maximum value, or null for no maximum
+     * @return the buckets by value, ascending, which must not be modified
+     */
+    public NavigableMap<Integer, RoaringBitmap> buckets(Integer min, Integer max) {
+        if (min != null && max != null && min > max) return Collections.emptyNavigableMap();
+        NavigableMap<Integer, RoaringBitmap> range = buckets;
+        if (min != null) range = range.tailMap(min, true);
+        if (max != null) range = range.headMap(max, true);
+        return Collections.unmodifiableNavigableMap(range);
+    }
+
+    /**
+     * Counts the rows whose value is between min and max (including both)
+     * from the histogram, without touching any row.
+     * @param min is the minimum value, or null for no minimum
+     * @param max is the maximum value, or null for no maximum
+     * @return the number of such rows
+     */
+    public int count(Integer min, Integer max) {
+        int count = 0;
+        for (RoaringBitmap bucket : buckets(min, max).values()) {
+            count += bucket.cardinality();
+        }
+        return count;
+    }
+
+    /**
+     * Finds the rows whose value is between min and max (including both), as
+     * the union of their buckets.
+     * @param min is the minimum value, or null for no minimum
+     * @param max is the maximum value, or null for no maximum
+     * @return a new bitmap of the rows
+     */
+    public RoaringBitmap rows(Integer min, Integer max) {
+        RoaringBitmap rows = new RoaringBitmap();
+        for (RoaringBitmap bucket : buckets(min, max).values()) {
+            rows.addAll(bucket);
+        }
+        return rows;
+    }
+
+    /**
+     * @return the number of distinct values in the index
+     */
+    public int distinctValues() {
+        return buckets.size();
+    }
+
+    ///////////////////Testing////////////////////////////////////////////
+
+    /**
+     * Test for counting and finding the rows of value ranges
+     */
+    @Test
+    public void testIndex1() {
+        BitmapIndex index = new BitmapIndex();
+        for (int row = 0; row < 1000; row++) {
+            index.add(row, row % 10 - 5);
+        }
+        Assertions.assertEquals(10, index.distinctValues());
+        Assertions.assertEquals(300, index.count(-1, 1));
+        Assertions.assertEquals(500, index.count(null, -1));
+        Assertions.assertEquals(1000, index.count(null, null));
+        Assertions.assertEquals(0, index.count(3, 2));
+        Assertions.assertEquals(0, index.count(100, null));
+
+        RoaringBitmap rows = index.rows(3, null);
+        Assertions.assertEquals(200, rows.cardinality());
+        Assertions.assertTrue(rows.contains(8) && rows.contains(999));
+        Assertions.assertFalse(rows.contains(7));
+        Assertions.assertEquals(100, rows.and(index.rows(null, 3)).cardinality());
+        Assertions.assertEquals(-5, (int) index.buckets(null, null).firstKey());
+    }
+}
@@ -0,0 +1,571 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * This is a thread-safe implementation of IterableSortedCollection backed by a lock-free skip
+ * list (java.util.concurrent.ConcurrentSkipListMap, which inserts and removes with CAS
+ * operations). Any number of threads may insert, remove and iterate at the same time without
+ * blocking each other.
+ *
+ * Equal values are stored as separate entries: every value is paired with a sequence number
+ * that makes its entry unique, and among equal values the most recently inserted one comes
+ * first, like in IterableRedBlackTree. Iterators are weakly consistent: they never throw a
+ * ConcurrentModificationException, and they may or may not see values inserted after they
+ * were created.
+ */
+public class ConcurrentSkipListCollection<T extends Comparable<T>>
+    implements IterableSortedCollection<T> {
+
+  //The entries of the skip list, the mapped values are not used
+  private final ConcurrentSkipListMap<Object, Boolean> entries =
+      new ConcurrentSkipListMap<>(new EntryComparator());
+  //Hands out the sequence numbers that tell equal values apart
+  private final AtomicLong sequence = new AtomicLong();
+  //Number of values, since counting the skip list itself takes linear time
+  private final AtomicInteger size = new AtomicInteger();
+
+  private volatile Comparable<T> min = null; //minimum for the iterator, or null if no minimum.
+  private volatile Comparable<T> max = null; //maximum for the iterator, or null if no maximum.
+
+
+
+
+  /**
+   * A value stored in the skip list, together with the sequence number that
+   * makes it unique among equal values.
+   */
+  private static final class Entry<T> {
+    final T data;
+    final long sequence;
+
+    Entry(T data, long sequence) {
+      this.data = data;
+      this.sequence = sequence;
+    }
+  }
+
+
+
+
+  /**
+   * A search key that is never stored: it sorts right before (or right after)
+   * every entry whose value is equal to its bound.
+   */
+  private static final class Probe<T> {
+    final Comparable<T> bound;
+    final boolean after;
+
+    Probe(Comparable<T> bound, boolean after) {
+      this.bound = bound;
+      this.after = after;
+    }
+  }
+
+
+
+
+  /**
+   * Orders entries by value and then by descending sequence number, and
+   * places probes before or after all entries equal to their bound.
+   */
+  private class EntryComparator implements Comparator<Object> {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int compare(Object a, Object b) {
+      if (a instanceof Probe) {
+        //Two probes are never compared, since only views with a single bound are used
+        return -this.compare(b, a);
+      }
+      Entry<T> entry = (Entry<T>) a;
+      if (b instanceof Probe) {
+        Probe<T> probe = (Probe<T>) b;
+        int compareValue = probe.bound.compareTo(entry.data);
+        if (compareValue != 0) {
+          return -compareValue;
+        }
+        return probe.after ? -1 : 1;
+      }
+      Entry<T> other = (Entry<T>) b;
+      int compareValue = entry.data.compareTo(other.data);
+      if (compareValue != 0) {
+        return compareValue;
+      }
+      return Long.compare(other.sequence, entry.sequence);
+    }
+  }
+
+
+
+
+  /**
+   * Inserts a new data value into the sorted collection.
+   * @param data the new value being inserted
+   * @throws NullPointerException if data argument is null, we do not allow
+   * null values to be stored within a SortedCollection
+   */
+  @Override
+  public void insert(T data) throws NullPointerException {
+
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    this.entries.put(new Entry<>(data, this.sequence.getAndIncrement()), Boolean.TRUE);
+    this.size.incrementAndGet();
+  }
+
+
+
+
+  /**
+   * Check whether data is stored in the tree.
+   * @param data the value to check for in the collection
+   * @return true if the collection contains data one or more times,
+   * and false otherwise
+   */
+  @Override
+  public boolean contains(Comparable<T> data) {
+    return this.firstEqual(data) != null;
+  }
+
+
+
+
+  /**
+   * @param data the value to look for
+   * @return the first entry equal to data, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  private Entry<T> firstEqual(Comparable<T> data) {
+    Object key = this.entries.ceilingKey(new Probe<>(data, false));
+    if (key != null && data.compareTo(((Entry<T>) key).data) == 0) {
+      return (Entry<T>) key;
+    }
+    return null;
+  }
+
+
+
+
+  /**
+   * Counts the number of values in the collection, with each duplicate value
+   * being counted separately within the value returned.
+   * @return the number of values in the collection, including duplicates
+   */
+  @Override
+  public int size() {
+    return this.size.get();
+  }
+
+
+
+
+  /**
+   * Checks if the collection is empty.
+   * @return true if the collection contains 0 values, false otherwise
+   */
+  @Override
+  public boolean isEmpty() {
+    return this.entries.isEmpty();
+  }
+
+
+
+
+  /**
+   * Removes all values and duplicates from the collection. Values inserted by
+   * other threads while this runs may or may not be removed.
+   */
+  @Override
+  public void clear() {
+    this.removeRange(null, null);
+  }
+
+
+
+
+  /**
+   * Counts the number of values in the collection that are strictly smaller
+   * than data. A skip list has no subtree sizes, so this takes linear time.
+   * @param data the value to rank
+   * @return the number of values smaller than data
+   * @throws NullPointerException if data is null
+   */
+  @Override
+  public int rank(Comparable<T> data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    return this.entries.headMap(new Probe<>(data, false)).size();
+  }
+
+
+
+
+  /**
+   * Finds the value at the provided (zero-based) position in the sorted order
+   * of the collection. A skip list has no subtree sizes, so this takes linear time.
+   * @param k the position of the value to find
+   * @return the k-th smallest value in the collection
+   * @throws IndexOutOfBoundsException if k is negative or not less than size()
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public T select(int k) throws IndexOutOfBoundsException {
+    if (k >= 0) {
+      for (Object key : this.entries.keySet()) {
+        if (k-- == 0) {
+          return ((Entry<T>) key).data;
+        }
+      }
+    }
+    throw new IndexOutOfBoundsException("No value at this position!");
+  }
+
+
+
+
+  /**
+   * Counts the number of values between min and max (including min and max
+   * themselves). A null min or max means that end of the range is unbounded.
+   * This takes time linear in the number of values counted.
+   * @param min the minimum value to count, or null for no minimum
+   * @param max the maximum value to count, or null for no maximum
+   * @return the number of values within the range
+   */
+  @Override
+  public int countInRange(Comparable<T> min, Comparable<T> max) {
+    int count = 0;
+    Iterator<Entry<T>> entries = this.rangeIterator(min, true, max, true, false);
+    while (entries.hasNext()) {
+      entries.next();
+      count++;
+    }
+    return count;
+  }
+
+
+
+
+  /**
+   * Returns a weakly consistent iterator over the entries from min to max. The skip list
+   * finds the start point, and the iterator stops at the first entry past the other bound.
+   * @param min the minimum value, or null for no minimum
+   * @param minInclusive whether entries equal to min are returned
+   * @param max the maximum value, or null for no maximum
+   * @param maxInclusive whether entries equal to max are returned
+   * @param descending true to return the entries from max down to min
+   * @return an iterator over the entries in the range
+   */
+  private Iterator<Entry<T>> rangeIterator(Comparable<T> min, boolean minInclusive,
+      Comparable<T> max, boolean maxInclusive, boolean descending) {
+    Iterator<Object> keys;
+    if (!descending) {
+      keys = (min == null ? this.entries
+          : this.entries.tailMap(new Probe<>(min, !minInclusive))).keySet().iterator();
+    }
+    else {
+      keys = (max == null ? this.entries
+          : this.entries.headMap(new Probe<>(max, maxInclusive))).descendingKeySet().iterator();
+    }
+    Comparable<T> stop = descending ? min : max;
+    boolean stopInclusive = descending ? minInclusive : maxInclusive;
+
+    return new Iterator<Entry<T>>() {
+      // stores the next entry to return, or null when done
+      private Entry<T> next = this.advance();
+
+      @SuppressWarnings("unchecked")
+      private Entry<T> advance() {
+        if (!keys.hasNext()) {
+          return null;
+        }
+        Entry<T> entry = (Entry<T>) keys.next();
+        if (stop != null) {
+          int compareValue = stop.compareTo(entry.data);
+          if (descending) {
+            compareValue = -compareValue;
+          }
+          if (compareValue < 0 || (!stopInclusive && compareValue == 0)) {
+            return null;
+          }
+        }
+        return entry;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return this.next != null;
+      }
+
+      @Override
+      public Entry<T> next() {
+        if (this.next == null) {
+          throw new NoSuchElementException("No more elements in the iterator");
+        }
+        Entry<T> result = this.next;
+        this.next = this.advance();
+        return result;
+      }
+    };
+  }
+
+
+
+
+  /**
+   * Wraps an iterator over entries into an iterator over their values.
+   * @param entries the entries to return the values of
+   * @return an iterator over the values
+   */
+  private static <T> Iterator<T> valuesOf(Iterator<Entry<T>> entries) {
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return entries.next().data;
+      }
+    };
+  }
+
+
+
+
+  /**
+   * Removes one occurrence of data from the collection, if it is stored in the collection.
+   * When several threads remove the same value at once, each removes a different entry.
+   * @param data the value to remove
+   * @return true if a value was removed, false if data was not found
+   * @throws NullPointerException if data argument is null
+   */
+  @Override
+  public boolean remove(Comparable<T> data) throws NullPointerException {
+
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+
+    //Retry when another thread removes the entry found first
+    for (Entry<T> entry = this.firstEqual(data); entry != null; entry = this.firstEqual(data)) {
+      if (this.entries.remove(entry) != null) {
+        this.size.decrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * Removes every value between min and max (including min and max themselves)
+   * from the collection. A null min or max means that end of the range is unbounded.
+   * @param min the minimum value to remove, or null for no minimum
+   * @param max the maximum value to remove, or null for no maximum
+   * @return the number of values removed
+   */
+  @Override
+  public int removeRange(Comparable<T> min, Comparable<T> max) {
+    int removed = 0;
+    Iterator<Entry<T>> entries = this.rangeIterator(min, true, max, true, false);
+    while (entries.hasNext()) {
+      if (this.entries.remove(entries.next()) != null) {
+        this.size.decrementAndGet();
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+
+
+
+  /**
+   * Allows setting the start (minimum) value of the iterator. When this method is called,
+   * every iterator created after it will use the minimum set by this method until this method
+   * is called again to set a new minimum value.
+   * @param min the minimum for iterators created for this collection, or null for no minimum
+   */
+  @Override
+  public void setIteratorMin(Comparable<T> min) {
+    this.min = min;
+  }
+
+
+
+
+  /**
+   * Allows setting the stop (maximum) value of the iterator. When this method is called,
+   * every iterator created after it will use the maximum set by this method until this method
+   * is called again to set a new maximum value.
+   * @param max the maximum for iterators created for this collection, or null for no maximum
+   */
+  @Override
+  public void setIteratorMax(Comparable<T> max) {
+    this.max = max;
+  }
+
+
+
+
+  /**
+   * Returns a weakly consistent iterator over the values between the minimum set by
+   * setIteratorMin and the maximum set by setIteratorMax (including both themselves).
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return valuesOf(this.rangeIterator(this.min, true, this.max, true, false));
+  }
+
+
+
+
+  /**
+   * Returns a weakly consistent iterator over the values between min and max in ascending
+   * order, using bounds of its own instead of the ones set by setIteratorMin/setIteratorMax.
+   * @param min the minimum of the range, or null for no minimum
+   * @param minInclusive whether values equal to min are returned
+   * @param max the maximum of the range, or null for no maximum
+   * @param maxInclusive whether values equal to max are returned
+   * @return an iterator over the values in the range
+   */
+  @Override
+  public Iterator<T> iterator(Comparable<T> min, boolean minInclusive,
+      Comparable<T> max, boolean maxInclusive) {
+    return valuesOf(this.rangeIterator(min, minInclusive, max, maxInclusive, false));
+  }
+
+
+
+
+  /**
+   * Returns a weakly consistent iterator over the values between min and max in descending
+   * order. The skip list seeks the highest value of the range directly.
+   * @param min the minimum of the range, or null for no minimum
+   * @param minInclusive whether values equal to min are returned
+   * @param max the maximum of the range, or null for no maximum
+   * @param maxInclusive whether values equal to max are returned
+   * @return an iterator over the values in the range, highest first
+   */
+  @Override
+  public Iterator<T> descendingIterator(Comparable<T> min, boolean minInclusive,
+      Comparable<T> max, boolean maxInclusive) {
+    return valuesOf(this.rangeIterator(min, minInclusive, max, maxInclusive, true));
+  }
+
+
+
+
+  ///////////////////Testing////////////////////////////////////////////
+
+  /**
+   * Test for duplicates, ranges, counts and removal on a single thread
+   */
+  @Test
+  public void testSkipList1() {
+    ConcurrentSkipListCollection<Integer> list = new ConcurrentSkipListCollection<>();
+    for (int value : new int[] {15, 1, 25, 4, 15, 30, 7, 21}) {
+      list.insert(value);
+    }
+    list.setIteratorMin(5);
+    list.setIteratorMax(25);
+    String expected = "";
+    for (Integer value : list) {
+      expected += value + " ";
+    }
+    Assertions.assertEquals("7 15 15 21 25 ", expected);
+    Assertions.assertEquals(8, list.size());
+    Assertions.assertEquals(5, list.countInRange(5, 25));
+    //Iterators with their own bounds leave the collection's bounds alone
+    String descending = "";
+    for (Iterator<Integer> values = list.descendingIterator(4, false, 25, false); values.hasNext();) {
+      descending += values.next() + " ";
+    }
+    Assertions.assertEquals("21 15 15 7 ", descending);
+    Assertions.assertEquals(15, list.iterator(7, false, null, true).next());
+    Assertions.assertEquals(5, list.countInRange(5, 25));
+    Assertions.assertEquals(0, list.countInRange(25, 5));
+    Assertions.assertEquals(3, list.rank(15));
+    Assertions.assertEquals(21, list.select(5));
+    Assertions.assertTrue(list.contains(15));
+
+    Assertions.assertTrue(list.remove(15));
+    Assertions.assertTrue(list.contains(15));
+    Assertions.assertTrue(list.remove(15));
+    Assertions.assertFalse(list.remove(15));
+    Assertions.assertEquals(2, list.removeRange(null, 4));
+    Assertions.assertEquals(4, list.size());
+    list.clear();
+    Assertions.assertTrue(list.isEmpty());
+    Assertions.assertEquals(0, list.size());
+  }
+
+
+
+
+  /**
+   * Stress test: several threads insert and remove while others iterate
+   */
+  @Test
+  public void testSkipList2() throws InterruptedException {
+    ConcurrentSkipListCollection<Integer> list = new ConcurrentSkipListCollection<>();
+    List<Thread> threads = new ArrayList<>();
+    AtomicInteger failures = new AtomicInteger();
+
+    //Four writers insert 0..99 5000 times in total each, and remove every value >= 90 once
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 5000; i++) {
+          list.insert(i % 100);
+        }
+        for (int i = 90; i < 100; i++) {
+          if (!list.remove(i)) {
+            failures.incrementAndGet();
+          }
+        }
+      }));
+    }
+    //Two readers check that every scan comes out sorted
+    for (int t = 0; t < 2; t++) {
+      threads.add(new Thread(() -> {
+        for (int round = 0; round < 50; round++) {
+          int previous = Integer.MIN_VALUE;
+          for (Integer value : list) {
+            if (value < previous) {
+              failures.incrementAndGet();
+            }
+            previous = value;
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assertions.assertEquals(0, failures.get());
+    Assertions.assertEquals(4 * 5000 - 4 * 10, list.size());
+    Assertions.assertEquals(4 * 5000 - 4 * 10, list.countInRange(null, null));
+    Assertions.assertEquals(200 - 4, list.countInRange(90, 90));
+  }
+
+}
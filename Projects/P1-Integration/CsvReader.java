@@ -0,0 +1,288 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A streaming reader for CSV files as described by RFC 4180: values are
+ * separated by commas, records by line breaks (CRLF, LF or CR), and values
+ * in double quotes may contain commas, line breaks and doubled quotes ("").
+ *
+ * The reader is created with the names of the columns it should return.
+ * The header record is read once and turned into a plan that maps every
+ * column of the file either to one of those names or to nothing, so the
+ * values of other columns are stepped over without creating any String.
+ * Characters are read in large blocks into a single buffer, and each record
+ * is parsed in place, one character at a time, by a small state machine.
+ * A value is only copied out of the buffer when get or getInt is called.
+ */
+public class CsvReader implements Closeable {
+
+    // Number of chars read from the source at once
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // States of the parser within one value
+    private static final int START = 0; // nothing read yet
+    private static final int UNQUOTED = 1; // inside a value without quotes
+    private static final int QUOTED = 2; // inside a value in quotes
+    private static final int QUOTE = 3; // just read a quote inside a quoted value
+
+    private final Reader in;
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int record = 0; // position of the current record in buffer
+    private int position = 0; // position of the next char to parse
+    private int limit = 0; // end of the chars read into buffer
+    private boolean eof = false;
+    private int line = 1; // line of the file position is on
+    private int recordLine = 1; // line of the file the current record starts on
+
+    // For every column of the file, the requested column it holds, or -1
+    private int[] plan = null;
+    // The header values while the header record is read, null afterwards
+    private List<String> header = new ArrayList<String>();
+    // Where each requested value starts and ends, relative to record
+    private final int[] starts;
+    private final int[] ends;
+    // Whether each requested value contains doubled quotes to undo
+    private final boolean[] escaped;
+
+    /**
+     * Creates a reader for the provided columns, and reads the header
+     * record to find them.
+     * @param in is the source of the CSV text, closed by close()
+     * @param columns is the names of the columns to return, in the order
+     *     their values are accessed by get and getInt
+     * @throws IOException when the source cannot be read, is empty, or
+     *     has no column with one of the names
+     */
+    public CsvReader(Reader in, String... columns) throws IOException {
+        this.in = in;
+        this.starts = new int[columns.length];
+        this.ends = new int[columns.length];
+        this.escaped = new boolean[columns.length];
+
+        if (!parseRecord()) throw new IOException("The file is empty!");
+        List<String> names = this.header;
+        this.header = null;
+        this.plan = new int[names.size()];
+        Arrays.fill(this.plan, -1);
+        for (int i = 0; i < columns.length; i++) {
+            int column = names.indexOf(columns[i]);
+            if (column == -1) {
+                throw new IOException("The file has no column named " + columns[i] + "!");
+            }
+            this.plan[column] = i;
+        }
+    }
+
+    /**
+     * Moves to the next record of the file.
+     * @return true if there is a next record, false at the end of the file
+     * @throws IOException when the source cannot be read, a quote is not
+     *     closed, or the record has too few values
+     */
+    public boolean next() throws IOException {
+        Arrays.fill(this.starts, -1);
+        if (!parseRecord()) return false;
+        for (int start : this.starts) {
+            if (start == -1) {
+                throw new IOException("Line " + this.recordLine + " has too few values!");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a value of the current record.
+     * @param column is the position of the column in the names passed to
+     *     the constructor
+     * @return the value, without its quotes
+     */
+    public String get(int column) {
+        return value(this.starts[column], this.ends[column], this.escaped[column]);
+    }
+
+    /**
+     * Private helper method that copies a value of the current record out of
+     * the buffer.
+     * @param start is where the value starts, relative to the record
+     * @param end is where the value ends, relative to the record
+     * @param escaped is true if the value contains doubled quotes
+     * @return the value, without its quotes
+     */
+    private String value(int start, int end, boolean escaped) {
+        start += this.record;
+        end += this.record;
+        if (!escaped) return new String(this.buffer, start, end - start);
+
+        // Keep only the first quote of every doubled quote
+        StringBuilder value = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            value.append(this.buffer[i]);
+            if (this.buffer[i] == '"') i++;
+        }
+        return value.toString();
+    }
+
+    /**
+     * Returns a value of the current record as an int, parsed directly from
+     * the buffer.
+     * @param column is the position of the column in the names passed to
+     *     the constructor
+     * @return the value as an int
+     * @throws NumberFormatException when the value is not an int
+     */
+    public int getInt(int column) throws NumberFormatException {
+        int start = this.record + this.starts[column];
+        int end = this.record + this.ends[column];
+        int i = start;
+        boolean negative = i < end && this.buffer[i] == '-';
+        if (negative || (i < end && this.buffer[i] == '+')) i++;
+        // Leave anything unusual (and values that may overflow) to parseInt
+        if (i == end || end - i > 9 || this.escaped[column]) return Integer.parseInt(get(column));
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = this.buffer[i] - '0';
+            if (digit < 0 || digit > 9) return Integer.parseInt(get(column));
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Closes the source of the CSV text.
+     */
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Private helper method that parses the next record, skipping empty
+     * lines, and records where its requested values are.
+     * @return false if the end of the file was reached before any record
+     */
+    private boolean parseRecord() throws IOException {
+        // Skip the line break of the previous record and any empty lines
+        while (true) {
+            this.record = this.position;
+            if (this.position == this.limit && !fill()) return false;
+            char c = this.buffer[this.position];
+            if (c == '\n') this.line++;
+            else if (c != '\r') break;
+            this.position++;
+        }
+        this.recordLine = this.line;
+
+        int column = 0;
+        int state = START;
+        int fieldStart = 0;
+        boolean escapes = false;
+        while (true) {
+            if (this.position == this.limit && !fill()) {
+                // The end of the file also ends the last record
+                if (state == QUOTED) {
+                    throw new IOException("Line " + this.recordLine + " has an unclosed quote!");
+                }
+                if (state == START) {
+                    // The record ends with a comma, so its last value is empty
+                    fieldStart = this.position - this.record;
+                    escapes = false;
+                }
+                int end = this.position - this.record - (state == QUOTE ? 1 : 0);
+                endValue(column, fieldStart, end, escapes);
+                return true;
+            }
+            char c = this.buffer[this.position];
+            switch (state) {
+                case START:
+                    escapes = false;
+                    if (c == '"') {
+                        state = QUOTED;
+                        this.position++;
+                        fieldStart = this.position - this.record;
+                    } else {
+                        state = UNQUOTED;
+                        fieldStart = this.position - this.record;
+                    }
+                    break;
+                case UNQUOTED:
+                    // Most chars of a file are read by this loop
+                    while (c != ',' && c != '\n' && c != '\r') {
+                        if (++this.position == this.limit) break;
+                        c = this.buffer[this.position];
+                    }
+                    if (this.position == this.limit) break;
+                    endValue(column++, fieldStart, this.position - this.record, false);
+                    if (c != ',') return true;
+                    this.position++;
+                    state = START;
+                    break;
+                case QUOTED:
+                    if (c == '"') state = QUOTE;
+                    else if (c == '\n') this.line++;
+                    this.position++;
+                    break;
+                default: // QUOTE
+                    if (c == '"') {
+                        // A doubled quote stands for one quote in the value
+                        escapes = true;
+                        state = QUOTED;
+                        this.position++;
+                        break;
+                    }
+                    if (c != ',' && c != '\n' && c != '\r') {
+                        throw new IOException("Line " + this.recordLine
+                            + " has a value after a closing quote!");
+                    }
+                    endValue(column++, fieldStart, this.position - this.record - 1, escapes);
+                    if (c != ',') return true;
+                    this.position++;
+                    state = START;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Private helper method that records where a value of the current record
+     * is, if its column was requested (or keeps it, while reading the header).
+     */
+    private void endValue(int column, int start, int end, boolean escapes) {
+        if (this.header != null) {
+            this.header.add(value(start, end, escapes));
+        } else if (column < this.plan.length && this.plan[column] != -1) {
+            int slot = this.plan[column];
+            this.starts[slot] = start;
+            this.ends[slot] = end;
+            this.escaped[slot] = escapes;
+        }
+    }
+
+    /**
+     * Private helper method that reads more chars from the source. The
+     * current record is moved to the front of the buffer first, and the
+     * buffer grows when a single record fills all of it.
+     * @return false if the source has no more chars
+     */
+    private boolean fill() throws IOException {
+        if (this.eof) return false;
+        if (this.record > 0) {
+            System.arraycopy(this.buffer, this.record, this.buffer, 0, this.limit - this.record);
+            this.position -= this.record;
+            this.limit -= this.record;
+            this.record = 0;
+        } else if (this.limit == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
+        int read = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (read == -1) {
+            this.eof = true;
+            return false;
+        }
+        this.limit += read;
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A class for testing the methods of the CsvReader class. The tests live
+ * here since the reader itself has no constructor without arguments.
+ */
+public class CsvReaderTests {
+
+    /**
+     * Private helper method that reads the provided columns of every record.
+     * @param in is the CSV text to read
+     * @param columns is the names of the columns to read
+     * @return one list of values per record
+     */
+    private static List<List<String>> readAll(Reader in, String... columns) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(in, columns)) {
+            while (csv.next()) {
+                List<String> record = new ArrayList<>();
+                for (int i = 0; i < columns.length; i++) {
+                    record.add(csv.get(i));
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * A reader that returns a single char per call, so that every record is
+     * split over many reads.
+     */
+    private static class TrickleReader extends StringReader {
+        TrickleReader(String text) {
+            super(text);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, 1));
+        }
+    }
+
+    /**
+     * Tests quoting as described by RFC 4180: commas, line breaks and doubled
+     * quotes inside quoted values, empty values, and every kind of line break.
+     * Also checks that columns are found by name in any order.
+     */
+    @Test
+    public void csvTest1() throws IOException {
+        String text = "id,title,skip,artist\r\n"
+            + "1,\"Hello, World\",x,Adele\r\n"
+            + "2,\"Say \"\"Hi\"\"\",\"a\nb\",\r\n"
+            + "\n"
+            + "3,,\"\",\"multi\r\nline\"\r"
+            + "4,last,,\"end\"";
+        List<List<String>> expected = List.of(
+            List.of("Adele", "Hello, World"),
+            List.of("", "Say \"Hi\""),
+            List.of("multi\r\nline", ""),
+            List.of("end", "last"));
+
+        Assertions.assertEquals(expected, readAll(new StringReader(text), "artist", "title"));
+        Assertions.assertEquals(expected, readAll(new TrickleReader(text), "artist", "title"));
+    }
+
+    /**
+     * Tests getInt and the errors of malformed files.
+     */
+    @Test
+    public void csvTest2() throws IOException {
+        try (CsvReader csv = new CsvReader(new StringReader("a,b\n-4,\"2010\"\n+7,x\n"), "a", "b")) {
+            Assertions.assertTrue(csv.next());
+            Assertions.assertEquals(-4, csv.getInt(0));
+            Assertions.assertEquals(2010, csv.getInt(1));
+            Assertions.assertTrue(csv.next());
+            Assertions.assertEquals(7, csv.getInt(0));
+            Assertions.assertThrows(NumberFormatException.class, () -> csv.getInt(1));
+            Assertions.assertFalse(csv.next());
+        }
+
+        Assertions.assertThrows(IOException.class, () -> readAll(new StringReader(""), "a"));
+        Assertions.assertThrows(IOException.class, () -> readAll(new StringReader("a,b\n"), "c"));
+        Assertions.assertThrows(IOException.class,
+            () -> readAll(new StringReader("a,b\n1\n"), "a", "b"));
+        Assertions.assertThrows(IOException.class,
+            () -> readAll(new StringReader("a,b\n1,\"2\n"), "a", "b"));
+        Assertions.assertThrows(IOException.class,
+            () -> readAll(new StringReader("a,b\n1,\"2\"3\n"), "a", "b"));
+    }
+}
@@ -0,0 +1,38 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This interface defines an iterator over sorted values that can also look at
+ * its next value without moving, and skip ahead to a value without stepping
+ * over everything in between (e.g. for merge joins, or for resuming a page of
+ * results after the last value of the previous page).
+ */
+public interface Cursor<T> extends Iterator<T> {
+
+    /**
+     * Returns the next value without moving past it.
+     * @return the value that the next call to next() will return
+     * @throws NoSuchElementException if the cursor has no more values
+     */
+    public T peek() throws NoSuchElementException;
+
+    /**
+     * Moves forward to the first value that is not before target in the order
+     * of the cursor (or, when inclusive is false, that is after target). The
+     * cursor never moves backwards: if its next value already qualifies, this
+     * does nothing.
+     * @param target the value to move to
+     * @param inclusive whether a value equal to target may be the next value
+     */
+    public void seek(Comparable<T> target, boolean inclusive);
+
+    /**
+     * Moves forward to the first value that is not before target in the order
+     * of the cursor, see seek(target, inclusive).
+     * @param target the value to move to
+     */
+    public default void seek(Comparable<T> target) {
+        seek(target, true);
+    }
+
+}
@@ -1,6 +1,7 @@
 import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.ToIntFunction;
 
 /**
  * Frontend - CS400 Project 1: iSongly
@@ -81,6 +82,8 @@ public class Frontend implements FrontendInterface {
    * speed MAX 
    * show MAX_COUNT
    * show most recent
+   * search PREFIX
+   * top K by ATTRIBUTE
    * help
    * quit
    */
@@ -95,6 +98,8 @@ public class Frontend implements FrontendInterface {
     System.out.print("speed MAX\n");
     System.out.print("show MAX_COUNT\n");
     System.out.print("show most recent\n");
+    System.out.print("search PREFIX\n");
+    System.out.print("top K by ATTRIBUTE\n");
     System.out.print("help\n");
     System.out.print("quit\n");
   }
@@ -125,6 +130,11 @@ public class Frontend implements FrontendInterface {
    *           to the first MAX_COUNT in the list returned from backend
    *           most recent: argument displays results returned from the
    *           backend's fiveMost method
+   *     search: displays the titles of all songs whose title or artist
+   *           starts with PREFIX, which may contain spaces
+   *     top: displays the titles of the K songs with the largest value of
+   *           ATTRIBUTE (year, bpm, energy, danceability, loudness or
+   *           liveness) within the currently set thresholds
    *     help: displays command instructions
    *     quit: ends this program (handled by runCommandLoop method above)
    *           (do NOT use System.exit(), as this will interfere with tests)
@@ -269,6 +279,48 @@ public class Frontend implements FrontendInterface {
         }
         break;
       
+      //Search command, the prefix is everything after the keyword:
+      case "search":
+        if (commandArray.length >= 2) {
+          String prefix = command.trim().substring("search".length()).trim();
+          List<String> matches = backend.search(prefix);
+          System.out.print("Songs matching " + prefix + ": " + matches + "\n");
+        }
+        else {
+          System.out.print("Error: Invalid search command format. "
+              + "Use 'search PREFIX'.\n");
+        }
+        break;
+      
+      //Top command, ranks the songs within the thresholds by one attribute:
+      case "top":
+        if (commandArray.length == 4 && commandArray[2].equals("by")) {
+          ToIntFunction<Song> attribute = attributeOf(commandArray[3]);
+          try {
+            int k = Integer.parseInt(commandArray[1]);
+            if (attribute == null) {
+              System.out.print("Error: Unknown attribute " + commandArray[3] + ". Use year, "
+                  + "bpm, energy, danceability, loudness or liveness.\n");
+            }
+            else if (k < 0) {
+              System.out.print("Error: K must not be negative.\n");
+            }
+            else {
+              List<String> top = backend.topK(k, attribute, true);
+              System.out.print("Top " + k + " songs by " + commandArray[3] + ": " + top + "\n");
+            }
+          }
+          //K here can be invalid input from user, needs exception handling:
+          catch (NumberFormatException e) {
+            System.out.print("Error: Invalid number format for K.\n");
+          }
+        }
+        else {
+          System.out.print("Error: Invalid top command format. "
+              + "Use 'top K by ATTRIBUTE'.\n");
+        }
+        break;
+      
       case "help":
         displayCommandInstructions();
         break;
@@ -282,4 +334,38 @@ public class Frontend implements FrontendInterface {
   
   
   
+  
+  /**
+   * Helper method that finds the attribute of songs that a top command
+   * ranks by.
+   * @param name the name of the attribute, as used in songs.csv or spelled out
+   * @return a function returning that attribute of a song, or null if there
+   * is no attribute with that name
+   */
+  private ToIntFunction<Song> attributeOf(String name) {
+    switch (name) {
+      case "year":
+        return Song::getYear;
+      case "bpm":
+      case "speed":
+        return Song::getBPM;
+      case "energy":
+      case "nrgy":
+        return Song::getEnergy;
+      case "danceability":
+      case "dnce":
+        return Song::getDanceability;
+      case "loudness":
+      case "dB":
+        return Song::getLoudness;
+      case "liveness":
+      case "live":
+        return Song::getLiveness;
+      default:
+        return null;
+    }
+  }
+  
+  
+  
 }
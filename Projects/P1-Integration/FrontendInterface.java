@@ -41,6 +41,8 @@ public interface FrontendInterface {
      * speed MAX 
      * show MAX_COUNT
      * show most recent
+     * search PREFIX
+     * top K by ATTRIBUTE
      * help
      * quit
      */
@@ -67,6 +69,11 @@ public interface FrontendInterface {
      *           to the first MAX_COUNT in the list returned from backend
      *           most recent: argument displays results returned from the
      *           backend's fiveMost method
+     *     search: displays the titles of all songs whose title or artist
+     *           starts with PREFIX, which may contain spaces
+     *     top: displays the titles of the K songs with the largest value of
+     *           ATTRIBUTE (year, bpm, energy, danceability, loudness or
+     *           liveness) within the currently set thresholds
      *     help: displays command instructions
      *     quit: ends this program (handled by runCommandLoop method above)
      *           (do NOT use System.exit(), as this will interfere with tests)
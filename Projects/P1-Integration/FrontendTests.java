@@ -32,7 +32,7 @@ public class FrontendTests {
         + "The lowercase words are keywords that you must match, "
         + "the upper case words are placeholders for arguments that you can specify.\n"
         + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-        + "MAX_COUNT\nshow most recent\nhelp\nquit\n";
+        + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\n";
     
     String expectedOutput2 = "Please Enter Command: \nError: Unknown command. "
         + "Type 'help' for a list of commands.\nPlease Enter Command: \nYou are now leaving.\n";
@@ -65,14 +65,14 @@ public class FrontendTests {
         + "The lowercase words are keywords that you must match, "
         + "the upper case words are placeholders for arguments that you can specify.\n"
         + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-        + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+        + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
     
     
     String expectedOutput2 = "Commands You May Enter:\n"
     + "The lowercase words are keywords that you must match, "
     + "the upper case words are placeholders for arguments that you can specify.\n"
     + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-    + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \nYou are now leaving.\n";
+    + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \nYou are now leaving.\n";
     
     String expectedOutput = expectedOutput1 + expectedOutput2;
     
@@ -103,7 +103,7 @@ public class FrontendTests {
         + "The lowercase words are keywords that you must match, "
         + "the upper case words are placeholders for arguments that you can specify.\n"
         + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-        + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+        + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
     
     String expectedOutput2 = "Data loaded successfully from some\nPlease Enter Command: "
         + "\nYou are now leaving.\n";
@@ -138,7 +138,7 @@ public class FrontendTests {
         + "The lowercase words are keywords that you must match, "
         + "the upper case words are placeholders for arguments that you can specify.\n"
         + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-        + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+        + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
     
     String expectedOutput2 = "Danceability range set to all possible values.\nPlease Enter Command: \n"
         + "Danceability range set to: 0 to 3\nPlease Enter Command: \n"
@@ -177,7 +177,7 @@ public class FrontendTests {
         + "The lowercase words are keywords that you must match, "
         + "the upper case words are placeholders for arguments that you can specify.\n"
         + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-        + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+        + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
     
     
     String expectedOutput2 = "No speed threshold set\nPlease Enter Command: \n"
@@ -214,7 +214,7 @@ public class FrontendTests {
         + "The lowercase words are keywords that you must match, "
         + "the upper case words are placeholders for arguments that you can specify.\n"
         + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-        + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+        + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
     
     String expectedOutput2 = "Most recent songs: [A L I E N S, BO$$, Cake By The Ocean]\n"
         + "Please Enter Command: \nDisplaying up to 2 songs: []\nPlease Enter Command: \n"
@@ -231,6 +231,83 @@ public class FrontendTests {
   
   
   
+  /**
+   * The seventh front end tester method
+   * Test for search command
+   */
+  @Test
+  public void frontendTest7() {
+    IterableSortedCollection<Song> tree = new Tree_Placeholder(); 
+    Backend_Placeholder bknd = new Backend_Placeholder(tree); 
+    
+    //Create tester object
+    TextUITester tester = new TextUITester("search bo\nsearch COLD\nsearch cake by\nsearch\nquit\n");
+    Scanner scn = new Scanner(System.in);
+    Frontend test7 = new Frontend(scn, bknd);
+    
+    test7.runCommandLoop(); //RunCommandLoop
+    String output = tester.checkOutput();
+    
+    
+    String expectedOutput1 = "Commands You May Enter:\n"
+        + "The lowercase words are keywords that you must match, "
+        + "the upper case words are placeholders for arguments that you can specify.\n"
+        + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
+        + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
+    
+    String expectedOutput2 = "Songs matching bo: [BO$$]\nPlease Enter Command: \n"
+        + "Songs matching COLD: [A L I E N S]\nPlease Enter Command: \n"
+        + "Songs matching cake by: [Cake By The Ocean]\nPlease Enter Command: \n"
+        + "Error: Invalid search command format. Use 'search PREFIX'.\n"
+        + "Please Enter Command: \nYou are now leaving.\n";
+    
+    String expectedOutput = expectedOutput1 + expectedOutput2;
+    
+    Assertions.assertEquals(output,expectedOutput);
+  }
+  
+  
+  
+  /**
+   * The eighth front end tester method
+   * Test for top command
+   */
+  @Test
+  public void frontendTest8() {
+    IterableSortedCollection<Song> tree = new Tree_Placeholder(); 
+    Backend_Placeholder bknd = new Backend_Placeholder(tree); 
+    
+    //Create tester object
+    TextUITester tester = new TextUITester("top 2 by year\ntop k by bpm\ntop 2 by color\n"
+        + "top 2 year\nquit\n");
+    Scanner scn = new Scanner(System.in);
+    Frontend test8 = new Frontend(scn, bknd);
+    
+    test8.runCommandLoop(); //RunCommandLoop
+    String output = tester.checkOutput();
+    
+    
+    String expectedOutput1 = "Commands You May Enter:\n"
+        + "The lowercase words are keywords that you must match, "
+        + "the upper case words are placeholders for arguments that you can specify.\n"
+        + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
+        + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\n"
+        + "Please Enter Command: \n";
+    
+    String expectedOutput2 = "Top 2 songs by year: [A L I E N S, Cake By The Ocean]\n"
+        + "Please Enter Command: \nError: Invalid number format for K.\n"
+        + "Please Enter Command: \nError: Unknown attribute color. Use year, bpm, energy, "
+        + "danceability, loudness or liveness.\n"
+        + "Please Enter Command: \nError: Invalid top command format. "
+        + "Use 'top K by ATTRIBUTE'.\nPlease Enter Command: \nYou are now leaving.\n";
+    
+    String expectedOutput = expectedOutput1 + expectedOutput2;
+    
+    Assertions.assertEquals(output,expectedOutput);
+  }
+  
+  
+  
   /////////////////////////////////////////////////////////////////////////
   
   
@@ -256,7 +333,7 @@ public class FrontendTests {
           + "The lowercase words are keywords that you must match, "
           + "the upper case words are placeholders for arguments that you can specify.\n"
           + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-          + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+          + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
       
       String expectedOutput2 = "Data loaded successfully from songs.csv\nPlease Enter Command: "
           + "\nYou are now leaving.\n";
@@ -293,7 +370,7 @@ public class FrontendTests {
           + "The lowercase words are keywords that you must match, "
           + "the upper case words are placeholders for arguments that you can specify.\n"
           + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-          + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+          + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
       
       String expectedOutput2 = "Data loaded successfully from songs.csv\nPlease Enter Command: \n" +
       "Danceability range set to: 70 to 71\nPlease Enter Command: \n"
@@ -330,7 +407,7 @@ public class FrontendTests {
           + "The lowercase words are keywords that you must match, "
           + "the upper case words are placeholders for arguments that you can specify.\n"
           + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-          + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+          + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
       
       String expectedOutput2 = "Data loaded successfully from songs.csv\nPlease Enter Command: \n" +
       "Speed filter set to below 70\nPlease Enter Command: \n"
@@ -367,7 +444,7 @@ public class FrontendTests {
           + "The lowercase words are keywords that you must match, "
           + "the upper case words are placeholders for arguments that you can specify.\n"
           + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
-          + "MAX_COUNT\nshow most recent\nhelp\nquit\nPlease Enter Command: \n";
+          + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
       
       String expectedOutput2 = "Data loaded successfully from songs.csv\nPlease Enter Command: \n" +
       "Speed filter set to below 70\nPlease Enter Command: \n"
@@ -378,4 +455,40 @@ public class FrontendTests {
       String expectedOutput = expectedOutput1 + expectedOutput2;
       Assertions.assertEquals(output,expectedOutput);
   }
+  
+  
+  
+  
+  /**
+   * Tests the integration between the frontend and backend by verifying that
+   * the frontend can search songs by the start of their title or artist.
+   */
+  @Test
+  public void testFrontendBackendIntegrationSearch() {
+      // Step 1: Initialize the backend and frontend
+      IterableSortedCollection<Song> tree = new IterableRedBlackTree<>(); // Actual implementation
+      Backend backend = new Backend(tree); // Use actual backend, not placeholder
+      TextUITester tester = new TextUITester("load songs.csv\nsearch bad rom\nsearch xyz\nquit\n");
+      Scanner scn = new Scanner(System.in);
+      Frontend frontend = new Frontend(scn, backend);
+
+      // Step 2: Run the command loop
+      frontend.runCommandLoop();
+      String output = tester.checkOutput();
+
+      // Step 3: Verify the output contains the matching titles
+      String expectedOutput1 = "Commands You May Enter:\n"
+          + "The lowercase words are keywords that you must match, "
+          + "the upper case words are placeholders for arguments that you can specify.\n"
+          + "load FILEPATH\ndanceability MAX\ndanceability MIN to MAX\nspeed MAX\nshow "
+          + "MAX_COUNT\nshow most recent\nsearch PREFIX\ntop K by ATTRIBUTE\nhelp\nquit\nPlease Enter Command: \n";
+      
+      String expectedOutput2 = "Data loaded successfully from songs.csv\nPlease Enter Command: \n"
+          + "Songs matching bad rom: [Bad Romance]\nPlease Enter Command: \n"
+          + "Songs matching xyz: []\nPlease Enter Command: \nYou are now leaving.\n";
+      
+      //Check frontend/backend integration functionality
+      String expectedOutput = expectedOutput1 + expectedOutput2;
+      Assertions.assertEquals(output,expectedOutput);
+  }
 }
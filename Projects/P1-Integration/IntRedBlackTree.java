@@ -0,0 +1,507 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * This is a RedBlack Tree keyed by primitive ints (e.g. danceability) that stores its nodes
+ * in parallel arrays instead of node objects. Node i has its key in keys[i], its links in
+ * left[i], right[i] and up[i] (NIL for none), its color as bit i of the red bitset, and its
+ * payload in values[i]. Comparisons never unbox, and a walk down the tree reads a few int
+ * arrays instead of chasing one object per node.
+ *
+ * @param <V> the type of the payloads stored with each key
+ */
+public class IntRedBlackTree<V> implements Iterable<V> {
+
+  //Index used for a missing child or parent
+  private static final int NIL = -1;
+  //Number of nodes the arrays can hold before they grow for the first time
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] keys = new int[INITIAL_CAPACITY];
+  private int[] left = new int[INITIAL_CAPACITY];
+  private int[] right = new int[INITIAL_CAPACITY];
+  private int[] up = new int[INITIAL_CAPACITY];
+  //Bit i is set when node i is red
+  private long[] red = new long[(INITIAL_CAPACITY + 63) >>> 6];
+  private Object[] values = new Object[INITIAL_CAPACITY];
+
+  private int root = NIL;
+  private int size = 0;
+
+  private Integer min = null; //minimum for the iterator, or null if no minimum is set.
+  private Integer max = null; //maximum for the iterator, or null if no maximum is set.
+
+
+
+
+  /**
+   * Inserts a new key with its payload into the tree. Equal keys are kept
+   * as separate entries.
+   * @param key the key to sort the payload by
+   * @param value the payload stored with the key
+   * @throws NullPointerException if value argument is null
+   */
+  public void insert(int key, V value) throws NullPointerException {
+
+    //Check for null data case
+    if (value == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+
+    if (this.size == this.keys.length) {
+      this.grow();
+    }
+    int node = this.size++;
+    this.keys[node] = key;
+    this.values[node] = value;
+    this.left[node] = NIL;
+    this.right[node] = NIL;
+
+    //Walk down to the new node's place, equal keys go left
+    int father = NIL;
+    int current = this.root;
+    while (current != NIL) {
+      father = current;
+      current = key <= this.keys[current] ? this.left[current] : this.right[current];
+    }
+    this.up[node] = father;
+    if (father == NIL) {
+      this.root = node;
+    }
+    else if (key <= this.keys[father]) {
+      this.left[father] = node;
+    }
+    else {
+      this.right[father] = node;
+    }
+
+    this.setRed(node, true);
+    this.ensureRedProperty(node);
+  }
+
+
+
+
+  /**
+   * Doubles the capacity of every array.
+   */
+  private void grow() {
+    int capacity = this.keys.length * 2;
+    this.keys = Arrays.copyOf(this.keys, capacity);
+    this.left = Arrays.copyOf(this.left, capacity);
+    this.right = Arrays.copyOf(this.right, capacity);
+    this.up = Arrays.copyOf(this.up, capacity);
+    this.red = Arrays.copyOf(this.red, (capacity + 63) >>> 6);
+    this.values = Arrays.copyOf(this.values, capacity);
+  }
+
+
+
+
+  /**
+   * Repairs red property violations caused by the red node, moving up the tree
+   * while the aunt is red and finishing with one or two rotations otherwise.
+   * @param node a newly inserted red node
+   */
+  private void ensureRedProperty(int node) {
+    while (node != this.root && this.isRed(this.up[node])) {
+      int father = this.up[node];
+      int grandfather = this.up[father];
+      boolean fatherIsLeft = this.left[grandfather] == father;
+      int aunt = fatherIsLeft ? this.right[grandfather] : this.left[grandfather];
+
+      //The aunt is red: recolor and continue from the grandfather
+      if (this.isRed(aunt)) {
+        this.setRed(father, false);
+        this.setRed(aunt, false);
+        this.setRed(grandfather, true);
+        node = grandfather;
+        continue;
+      }
+
+      //The aunt is black: rotate the new node to the outside first if needed
+      if (fatherIsLeft && this.right[father] == node) {
+        this.rotate(node, father);
+        father = node;
+      }
+      else if (!fatherIsLeft && this.left[father] == node) {
+        this.rotate(node, father);
+        father = node;
+      }
+      this.rotate(father, grandfather);
+      this.setRed(father, false);
+      this.setRed(grandfather, true);
+      break;
+    }
+    this.setRed(this.root, false);
+  }
+
+
+
+
+  /**
+   * Rotates child into the place of parent, which becomes its child. A left
+   * child causes a right rotation, and a right child a left rotation.
+   * @param child the node being rotated from child to parent position
+   * @param parent the node being rotated from parent to child position
+   */
+  private void rotate(int child, int parent) {
+    int grandparent = this.up[parent];
+    if (this.left[parent] == child) {
+      int moved = this.right[child];
+      this.left[parent] = moved;
+      if (moved != NIL) {
+        this.up[moved] = parent;
+      }
+      this.right[child] = parent;
+    }
+    else {
+      int moved = this.left[child];
+      this.right[parent] = moved;
+      if (moved != NIL) {
+        this.up[moved] = parent;
+      }
+      this.left[child] = parent;
+    }
+    this.up[parent] = child;
+    this.up[child] = grandparent;
+
+    if (grandparent == NIL) {
+      this.root = child;
+    }
+    else if (this.left[grandparent] == parent) {
+      this.left[grandparent] = child;
+    }
+    else {
+      this.right[grandparent] = child;
+    }
+  }
+
+
+
+
+  /**
+   * @param node the index of the node to check, may be NIL
+   * @return true if the node is red, where NIL leaves count as black
+   */
+  private boolean isRed(int node) {
+    return node != NIL && (this.red[node >>> 6] & (1L << node)) != 0;
+  }
+
+
+
+
+  /**
+   * Colors a node red or black.
+   * @param node the index of the node to color
+   * @param isRed true to color it red, false for black
+   */
+  private void setRed(int node, boolean isRed) {
+    if (isRed) {
+      this.red[node >>> 6] |= 1L << node;
+    }
+    else {
+      this.red[node >>> 6] &= ~(1L << node);
+    }
+  }
+
+
+
+
+  /**
+   * Check whether key is stored in the tree.
+   * @param key the key to check for
+   * @return true if the tree contains key one or more times, false otherwise
+   */
+  public boolean contains(int key) {
+    int current = this.root;
+    while (current != NIL) {
+      if (key == this.keys[current]) {
+        return true;
+      }
+      current = key < this.keys[current] ? this.left[current] : this.right[current];
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * @return the number of entries in the tree, including duplicate keys
+   */
+  public int size() {
+    return this.size;
+  }
+
+
+
+
+  /**
+   * @return true if the tree holds no entries, false otherwise
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+
+
+
+  /**
+   * Removes all entries from the tree. The arrays keep their capacity.
+   */
+  public void clear() {
+    Arrays.fill(this.values, 0, this.size, null);
+    Arrays.fill(this.red, 0L);
+    this.root = NIL;
+    this.size = 0;
+  }
+
+
+
+
+  /**
+   * Allows setting the start (minimum) key of the iterator. Works like the
+   * setIteratorMin method of IterableRedBlackTree.
+   * @param min the minimum key for iterators created for this tree, or null for no minimum
+   */
+  public void setIteratorMin(Integer min) {
+    this.min = min;
+  }
+
+
+
+
+  /**
+   * Allows setting the stop (maximum) key of the iterator. Works like the
+   * setIteratorMax method of IterableRedBlackTree.
+   * @param max the maximum key for iterators created for this tree, or null for no maximum
+   */
+  public void setIteratorMax(Integer max) {
+    this.max = max;
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the payloads stored in this tree, ordered by their keys and
+   * limited to keys between the minimum and maximum set by setIteratorMin and setIteratorMax
+   * (including the minimum and maximum themselves).
+   */
+  @Override
+  public Iterator<V> iterator() {
+    return new IntRBTIterator(this.min == null ? Integer.MIN_VALUE : this.min,
+        this.max == null ? Integer.MAX_VALUE : this.max);
+  }
+
+
+
+
+  /**
+   * Nested class for Iterator objects created for this tree and returned by the iterator
+   * method. Like RBTIterator, it seeks the first key once and then walks to each in-order
+   * successor through the parent links.
+   */
+  private class IntRBTIterator implements Iterator<V> {
+
+    // stores the stop point (maximum) for the iterator
+    private final int max;
+    // stores the index of the node holding the next payload, or NIL when done
+    private int next;
+
+
+
+
+    /**
+     * Constructor for a new iterator over the keys from min to max (both inclusive).
+     * @param min the minimum key that the iterator will return
+     * @param max the maximum key that the iterator will return
+     */
+    IntRBTIterator(int min, int max) {
+      this.max = max;
+      int found = NIL;
+      int current = IntRedBlackTree.this.root;
+      while (current != NIL) {
+        if (min <= keys[current]) {
+          found = current;
+          current = left[current];
+        }
+        else {
+          current = right[current];
+        }
+      }
+      this.next = this.checkMax(found);
+    }
+
+
+
+
+    /**
+     * @param node the candidate for the next node
+     * @return node if its key is within the maximum, or NIL otherwise
+     */
+    private int checkMax(int node) {
+      return node != NIL && keys[node] > this.max ? NIL : node;
+    }
+
+
+
+
+    /**
+     * Returns true if the iterator has another payload to return, and false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+      return this.next != NIL;
+    }
+
+
+
+
+    /**
+     * Returns the next payload of the iterator.
+     * @throws NoSuchElementException if the iterator has no more payloads to return
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V next() {
+      if (this.next == NIL) {
+        throw new NoSuchElementException("No more elements in the iterator");
+      }
+      int node = this.next;
+
+      //Step to the in-order successor
+      int successor;
+      if (right[node] != NIL) {
+        successor = right[node];
+        while (left[successor] != NIL) {
+          successor = left[successor];
+        }
+      }
+      else {
+        successor = node;
+        while (up[successor] != NIL && right[up[successor]] == successor) {
+          successor = up[successor];
+        }
+        successor = up[successor];
+      }
+      this.next = this.checkMax(successor);
+      return (V) values[node];
+    }
+  }
+
+
+
+
+  ///////////////////Testing////////////////////////////////////////////
+
+  /**
+   * Checks the red property, the black height, the ordering and the parent
+   * links of the provided subtree.
+   * @param node the index of the root of the subtree to check
+   * @return the black height of the subtree, or -1 if any property is violated
+   */
+  private int isValidHelper(int node) {
+    if (node == NIL) {
+      return 0;
+    }
+    int l = this.left[node];
+    int r = this.right[node];
+    if (this.isRed(node) && (this.isRed(l) || this.isRed(r))) {
+      return -1;
+    }
+    if ((l != NIL && (this.up[l] != node || this.keys[l] > this.keys[node]))
+        || (r != NIL && (this.up[r] != node || this.keys[r] < this.keys[node]))) {
+      return -1;
+    }
+    int leftHeight = this.isValidHelper(l);
+    int rightHeight = this.isValidHelper(r);
+    if (leftHeight < 0 || leftHeight != rightHeight) {
+      return -1;
+    }
+    return leftHeight + (this.isRed(node) ? 0 : 1);
+  }
+
+
+
+
+  /**
+   * Test for random inserts keeping every Red-Black Tree property, and for
+   * iteration in key order
+   */
+  @Test
+  public void testIntRBT1() {
+    IntRedBlackTree<String> tree = new IntRedBlackTree<>();
+    Random random = new Random(400);
+    List<Integer> inserted = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      int key = random.nextInt(101);
+      tree.insert(key, "song" + i);
+      inserted.add(key);
+    }
+    Assertions.assertEquals(3000, tree.size());
+    Assertions.assertFalse(tree.isRed(tree.root));
+    Assertions.assertTrue(tree.isValidHelper(tree.root) >= 0);
+    Assertions.assertTrue(tree.contains(50));
+    Assertions.assertFalse(tree.contains(101));
+
+    //The iterator returns payloads ordered by key
+    inserted.sort(null);
+    int index = 0;
+    Iterator<String> iterator = tree.iterator();
+    while (iterator.hasNext()) {
+      String value = iterator.next();
+      int key = inserted.get(index++);
+      Assertions.assertTrue(tree.keys[Integer.parseInt(value.substring(4))] == key);
+    }
+    Assertions.assertEquals(3000, index);
+  }
+
+
+
+
+  /**
+   * Test for iterators with a start and stop point, including duplicate keys
+   */
+  @Test
+  public void testIntRBT2() {
+    IntRedBlackTree<String> tree = new IntRedBlackTree<>();
+    tree.insert(1, "a");
+    tree.insert(4, "b");
+    tree.insert(7, "c");
+    tree.insert(15, "d");
+    tree.insert(15, "e");
+    tree.insert(21, "f");
+    tree.insert(25, "g");
+    tree.insert(30, "h");
+
+    tree.setIteratorMin(5);
+    tree.setIteratorMax(25);
+    String expected = "";
+    for (String value : tree) {
+      expected += value;
+    }
+    //Equal keys come out latest first, like in IterableRedBlackTree
+    Assertions.assertEquals("cedfg", expected);
+
+    //Ranges without any key
+    tree.setIteratorMin(16);
+    tree.setIteratorMax(20);
+    Assertions.assertFalse(tree.iterator().hasNext());
+
+    tree.clear();
+    tree.setIteratorMin(null);
+    tree.setIteratorMax(null);
+    Assertions.assertTrue(tree.isEmpty());
+    Assertions.assertFalse(tree.iterator().hasNext());
+  }
+
+}
@@ -1,6 +1,24 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Stack;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -15,6 +33,32 @@ public class IterableRedBlackTree<T extends Comparable<T>>
   
   private Comparable<T> max = null; //maximum for the iterator, or null if no maximum is set.
   private Comparable<T> min = null; //minimum for the iterator, or null if no minimum is set.
+  
+  //The first four bytes of every snapshot file written by save
+  private static final int SNAPSHOT_MAGIC = 0x52425432;
+  //Flag of a snapshot of a multiset tree
+  private static final int SNAPSHOT_MULTISET = 1;
+  
+  
+  
+  
+  /**
+   * Creates an empty tree that stores every value in a node of its own.
+   */
+  public IterableRedBlackTree() {
+    super();
+  }
+  
+  
+  
+  
+  /**
+   * Creates an empty tree.
+   * @param multiset true to keep equal values together in one node (see RedBlackTree)
+   */
+  public IterableRedBlackTree(boolean multiset) {
+    super(multiset);
+  }
 
   
   /**
@@ -214,14 +258,605 @@ public class IterableRedBlackTree<T extends Comparable<T>>
   
   
   
+  /**
+   * Test for trees built from sorted values
+   */
+  @Test
+  public void testIRB8() {
+    List<String> sorted = List.of("a", "g", "k", "m", "m", "t", "z");
+    IterableRedBlackTree<String> tree = IterableRedBlackTree.fromSorted(sorted);
+    
+    //Iteration gives back exactly the values that went in
+    tree.setIteratorMin("k");
+    String expected = "";
+    for (String value : tree) {
+      expected += value;
+    }
+    Assertions.assertEquals("kmmtz", expected);
+    Assertions.assertEquals(7, tree.size());
+    Assertions.assertTrue(tree.isValidHelper((RBTNode<String>) tree.root) >= 0);
+    
+    //Inserting afterwards keeps working as usual
+    tree.insert("b");
+    Assertions.assertEquals(1, tree.rank("b"));
+    Assertions.assertTrue(tree.isValidHelper((RBTNode<String>) tree.root) >= 0);
+    
+    //Unsorted input is rejected
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> IterableRedBlackTree.fromSorted(List.of("b", "a")));
+  }
+  
+  
+  
+  
+  /**
+   * Test for iterators walking through parent references after removals, and
+   * for ranges that contain no values
+   */
+  @Test
+  public void testIRB9() {
+    IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+    for (int i = 0; i < 20; i++) {
+      tree.insert(i);
+    }
+    tree.removeRange(5, 9);
+    tree.remove(15);
+    
+    //Every remaining value comes out once, in ascending order
+    String expected = "";
+    for (Integer value : tree) {
+      expected += value + " ";
+    }
+    Assertions.assertEquals("0 1 2 3 4 10 11 12 13 14 16 17 18 19 ", expected);
+    
+    //A range that falls into the removed gap is empty
+    tree.setIteratorMin(5);
+    tree.setIteratorMax(9);
+    Iterator<Integer> iterator = tree.iterator();
+    Assertions.assertFalse(iterator.hasNext());
+    Assertions.assertThrows(NoSuchElementException.class, () -> iterator.next());
+    
+    //A minimum above every value is empty as well
+    tree.setIteratorMin(100);
+    tree.setIteratorMax(null);
+    Assertions.assertFalse(tree.iterator().hasNext());
+  }
+  
+  
+  
+  
+  /**
+   * Test for streams over a range, both sequential and parallel
+   */
+  @Test
+  public void testIRB10() {
+    IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      values.add(i % 100);
+    }
+    tree.insertAll(values);
+    
+    //Every value from 20 to 80 is stored 100 times
+    Assertions.assertEquals(6100, tree.stream(20, 80).count());
+    Assertions.assertEquals(6100, tree.parallelStream(20, 80).count());
+    long sum = tree.stream(20, 80).mapToLong(Integer::longValue).sum();
+    Assertions.assertEquals(sum, tree.parallelStream(20, 80).mapToLong(Integer::longValue).sum());
+    
+    //Parallel streams still keep the ascending order when asked for it
+    List<Integer> ordered = tree.parallelStream(null, null).collect(
+        java.util.stream.Collectors.toList());
+    Assertions.assertEquals(10000, ordered.size());
+    for (int i = 1; i < ordered.size(); i++) {
+      Assertions.assertTrue(ordered.get(i - 1) <= ordered.get(i));
+    }
+    
+    //Empty and inverted ranges
+    Assertions.assertEquals(0, tree.stream(200, null).count());
+    Assertions.assertEquals(0, tree.stream(80, 20).count());
+    
+    //Splitting gives two exactly sized halves
+    Spliterator<Integer> second = tree.spliterator(0, 9);
+    Spliterator<Integer> first = second.trySplit();
+    Assertions.assertEquals(500, first.estimateSize());
+    Assertions.assertEquals(500, second.estimateSize());
+  }
+  
+  
+  
+  
+  /**
+   * Test for the subtree sizes kept through rotations, and for rank/select
+   */
+  @Test
+  public void testIRB6() {
+    IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+    
+    //Ascending inserts force a rotation cascade
+    for (int i = 0; i < 100; i++) {
+      tree.insert(i * 2);
+      Assertions.assertEquals(i + 1, tree.size());
+    }
+    
+    //Every even number is found at half its value
+    for (int i = 0; i < 100; i++) {
+      Assertions.assertEquals(i * 2, tree.select(i));
+      Assertions.assertEquals(i, tree.rank(i * 2));
+      Assertions.assertEquals(i + 1, tree.rank(i * 2 + 1));
+    }
+    
+    //Out of range positions are rejected
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> tree.select(100));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+  }
   
   
   
   
+  /**
+   * Test for countInRange with duplicates and unbounded ends
+   */
+  @Test
+  public void testIRB7() {
+    IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+    
+    //Construct the whole tree: 1, 4, 7, 15, 15, 21, 25, 30
+    tree.insert(15);
+    tree.insert(1);
+    tree.insert(25);
+    tree.insert(4);
+    tree.insert(15);
+    tree.insert(30);
+    tree.insert(7);
+    tree.insert(21);
+    
+    Assertions.assertEquals(5, tree.countInRange(5, 25));
+    Assertions.assertEquals(2, tree.countInRange(15, 15));
+    Assertions.assertEquals(0, tree.countInRange(16, 20));
+    Assertions.assertEquals(0, tree.countInRange(25, 5));
+    Assertions.assertEquals(5, tree.countInRange(null, 15));
+    Assertions.assertEquals(3, tree.countInRange(21, null));
+    Assertions.assertEquals(8, tree.countInRange(null, null));
+    
+    //The count must agree with the iterator over the same range
+    tree.setIteratorMin(5);
+    tree.setIteratorMax(25);
+    int iterated = 0;
+    for (Integer value : tree) {
+      iterated++;
+    }
+    Assertions.assertEquals(iterated, tree.countInRange(5, 25));
+  }
+
   
   
   
+  /**
+   * Test for iterators with their own bounds, exclusive bounds, and descending order
+   */
+  @Test
+  public void testIRB11() {
+    IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+    for (int value : new int[] {15, 1, 25, 4, 15, 30, 7, 21}) {
+      tree.insert(value);
+    }
+    tree.setIteratorMin(100);
+    
+    //The bounds given to the iterator win over the ones set on the tree
+    Assertions.assertEquals("7 15 15 21 25 ", join(tree.iterator(5, 25)));
+    Assertions.assertEquals("21 ", join(tree.iterator(15, false, 25, false)));
+    Assertions.assertEquals("1 4 7 ", join(tree.iterator(null, true, 15, false)));
+    Assertions.assertEquals("25 21 15 15 7 ", join(tree.descendingIterator(5, 25)));
+    Assertions.assertEquals("30 25 21 ", join(tree.descendingIterator(15, false, null, true)));
+    Assertions.assertEquals("15 15 7 4 1 ", join(tree.descendingIterator(null, 15)));
+    Assertions.assertEquals("", join(tree.descendingIterator(15, false, 21, false)));
+    Assertions.assertEquals("", join(tree.descendingIterator(25, 5)));
+    
+    //The tree-wide minimum still applies to the plain iterator
+    Assertions.assertFalse(tree.iterator().hasNext());
+  }
+  
+  
+  
+  
+  /**
+   * Test for saving a tree to a snapshot file and loading it back
+   */
+  @Test
+  public void testIRB12() throws IOException {
+    IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+    for (int i = 0; i < 1000; i++) {
+      tree.insert(i * 7 % 100);
+    }
+    Path file = Files.createTempFile("tree", ".snapshot");
+    try {
+      tree.save(file, Codec.INTEGER);
+      IterableRedBlackTree<Integer> loaded = IterableRedBlackTree.load(file, Codec.INTEGER);
+      Assertions.assertEquals(1000, loaded.size());
+      Assertions.assertEquals(join(tree.iterator(null, null)), join(loaded.iterator(null, null)));
+      Assertions.assertTrue(loaded.isValidHelper((RBTNode<Integer>) loaded.root) >= 0);
+      
+      //Songs keep every field, and stay in the order they were saved in
+      IterableRedBlackTree<Song> songs = new IterableRedBlackTree<>();
+      Comparator<Song> byYear = (s1, s2) -> s1.getYear() - s2.getYear();
+      songs.insert(new Song("Umbrella", "Rihanna", "pop", 2007, 174, 83, 58, -4, 4, byYear));
+      songs.insert(new Song("Halo", "Beyonc\u00e9", "pop", 2008, 80, 72, 51, -5, 6, byYear));
+      songs.insert(new Song("Baby", "Justin Bieber", "pop", 2010, 65, 86, 73, -5, 11, byYear));
+      songs.save(file, Song.codec(byYear));
+      Iterator<Song> loadedSongs = IterableRedBlackTree.load(file, Song.codec(byYear)).iterator();
+      Assertions.assertEquals("Umbrella", loadedSongs.next().getTitle());
+      Song halo = loadedSongs.next();
+      Assertions.assertEquals("Beyonc\u00e9", halo.getArtist());
+      Assertions.assertEquals(80, halo.getBPM());
+      Assertions.assertEquals(6, halo.getLiveness());
+      Assertions.assertEquals("Baby", loadedSongs.next().getTitle());
+      
+      //Loading with a comparator that disagrees with the saved order is rejected
+      Comparator<Song> byBPM = (s1, s2) -> s1.getBPM() - s2.getBPM();
+      Assertions.assertThrows(IOException.class,
+          () -> IterableRedBlackTree.load(file, Song.codec(byBPM)));
+      
+      //Multiset trees come back as multiset trees
+      IterableRedBlackTree<Integer> multiset = new IterableRedBlackTree<>(true);
+      multiset.insertAll(List.of(3, 1, 3, 3, 2));
+      multiset.save(file, Codec.INTEGER);
+      IterableRedBlackTree<Integer> loadedMultiset = IterableRedBlackTree.load(file, Codec.INTEGER);
+      Assertions.assertTrue(loadedMultiset.isMultiset());
+      Assertions.assertEquals("1 2 3 3 3 ", join(loadedMultiset.iterator(null, null)));
+      Assertions.assertTrue(loadedMultiset.isValidHelper((RBTNode<Integer>) loadedMultiset.root) >= 0);
+      Assertions.assertFalse(loaded.isMultiset());
+      Assertions.assertTrue(IterableRedBlackTree.fromSorted(List.of(1, 1, 2), true).isMultiset());
+      
+      //Files that are not complete snapshots are rejected
+      Files.write(file, new byte[] {0x52, 0x42, 0x54, 0x32, 0, 0, 0, 0, 0, 0, 0, 5});
+      Assertions.assertThrows(IOException.class, () -> IterableRedBlackTree.load(file, Codec.INTEGER));
+      Files.write(file, new byte[] {0x52, 0x42, 0x54, 0x32, 0, 0, 0, 0});
+      Assertions.assertThrows(IOException.class, () -> IterableRedBlackTree.load(file, Codec.INTEGER));
+      Files.write(file, new byte[] {1, 2, 3});
+      Assertions.assertThrows(IOException.class, () -> IterableRedBlackTree.load(file, Codec.INTEGER));
+      Files.write(file, new byte[] {0x52, 0x42, 0x54, 0x31, 0, 0, 0, 0, 0, 0, 0, 0});
+      Assertions.assertThrows(IOException.class, () -> IterableRedBlackTree.load(file, Codec.INTEGER));
+      
+      //Corrupt sizes and lengths are rejected before anything is allocated for them
+      Files.write(file, new byte[] {0x52, 0x42, 0x54, 0x32, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF,
+          (byte) 0xFF, (byte) 0xFF});
+      Assertions.assertThrows(IOException.class, () -> IterableRedBlackTree.load(file, Codec.INTEGER));
+      Files.write(file, new byte[] {0x52, 0x42, 0x54, 0x32, 0, 0, 0, 0, 0x7F, (byte) 0xFF,
+          (byte) 0xFF, (byte) 0xFF});
+      Assertions.assertThrows(IOException.class, () -> IterableRedBlackTree.load(file, Codec.INTEGER));
+      Files.write(file, new byte[] {0x52, 0x42, 0x54, 0x32, 0, 0, 0, 0, 0, 0, 0, 1, 0x7F,
+          (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 'a'});
+      Assertions.assertThrows(IOException.class, () -> IterableRedBlackTree.load(file, Codec.STRING));
+      
+      //Null values are rejected too
+      Files.write(file, new byte[] {0x52, 0x42, 0x54, 0x32, 0, 0, 0, 0, 0, 0, 0, 1, (byte) 0xFF,
+          (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+      Assertions.assertThrows(IOException.class, () -> IterableRedBlackTree.load(file, Codec.STRING));
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+  
+  
+  
+  
+  /**
+   * Test for multiset trees returning equal values in the same order as trees
+   * with a node per value, in every kind of iteration
+   */
+  @Test
+  public void testIRB13() {
+    IterableRedBlackTree<Song> single = new IterableRedBlackTree<>();
+    IterableRedBlackTree<Song> multiset = new IterableRedBlackTree<>(true);
+    Comparator<Song> byYear = (s1, s2) -> s1.getYear() - s2.getYear();
+    java.util.Random random = new java.util.Random(13);
+    List<Song> batch = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      Song song = new Song("s" + i, null, null, 2000 + random.nextInt(8), 0, 0, 0, 0, 0, byYear);
+      if (i < 100) {
+        single.insert(song);
+        multiset.insert(song);
+      }
+      else {
+        batch.add(song);
+      }
+    }
+    single.insertAll(batch);
+    multiset.insertAll(batch);
+    Song from = new Song(null, null, null, 2002, 0, 0, 0, 0, 0, byYear);
+    Song to = new Song(null, null, null, 2005, 0, 0, 0, 0, 0, byYear);
+    
+    Assertions.assertEquals(join(single.iterator(null, null)), join(multiset.iterator(null, null)));
+    Assertions.assertEquals(join(single.iterator(from, false, to, true)),
+        join(multiset.iterator(from, false, to, true)));
+    Assertions.assertEquals(join(single.descendingIterator(from, true, to, false)),
+        join(multiset.descendingIterator(from, true, to, false)));
+    Assertions.assertEquals(single.stream(from, to).map(Song::getTitle)
+        .collect(java.util.stream.Collectors.toList()), multiset.parallelStream(from, to)
+        .map(Song::getTitle).collect(java.util.stream.Collectors.toList()));
+    for (int k = 0; k < 300; k += 11) {
+      Assertions.assertSame(single.select(k), multiset.select(k));
+    }
+    Assertions.assertTrue(multiset.isValidHelper((RBTNode<Song>) multiset.root) >= 0);
+  }
+  
+  
+  
+  
+  /**
+   * Test for cursors peeking, seeking forward, and resuming after a key
+   */
+  @Test
+  public void testIRB14() {
+    for (boolean multiset : new boolean[] {false, true}) {
+      IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>(multiset);
+      for (int i = 0; i < 100; i++) {
+        tree.insert(i / 2 * 3);    //0, 0, 3, 3, 6, 6, ..., 147, 147
+      }
+      Cursor<Integer> cursor = tree.cursor(10, 140);
+      Assertions.assertEquals(12, cursor.peek());
+      Assertions.assertEquals(12, cursor.next());
+      
+      //Seeking lands on the first value at or after the target
+      cursor.seek(50);
+      Assertions.assertEquals(51, cursor.next());
+      Assertions.assertEquals(51, cursor.peek());
+      
+      //Seeking backwards, or to where the cursor already is, does nothing
+      cursor.seek(20);
+      Assertions.assertEquals(51, cursor.next());
+      cursor.seek(54);
+      Assertions.assertEquals(54, cursor.next());
+      
+      //Resuming after a key skips all of its copies
+      cursor.seek(60, false);
+      Assertions.assertEquals(63, cursor.next());
+      
+      //Seeking past the stop point ends the cursor
+      cursor.seek(141);
+      Assertions.assertFalse(cursor.hasNext());
+      Assertions.assertThrows(NoSuchElementException.class, () -> cursor.peek());
+      
+      //Descending iterators seek downwards
+      Cursor<Integer> descending = (Cursor<Integer>) tree.descendingIterator(null, null);
+      descending.seek(100);
+      Assertions.assertEquals(99, descending.next());
+      descending.seek(99, false);
+      Assertions.assertEquals(96, descending.next());
+    }
+  }
+  
+  
+  
+  
+  /**
+   * Helper method joining the values of an iterator, each followed by a space.
+   */
+  private static <R> String join(Iterator<R> iterator) {
+    String joined = "";
+    while (iterator.hasNext()) {
+      joined += iterator.next() + " ";
+    }
+    return joined;
+  }
+  
+  
+  
+  
+  
+  
+  
+  
+  
+  
+  
+    /**
+     * Creates a new tree out of values that are already in ascending order. The
+     * tree is built directly in linear time, without any comparisons beyond the
+     * check that the values really are sorted.
+     * @param sorted the values of the new tree, in ascending order
+     * @return a new tree holding all values of sorted
+     * @throws NullPointerException if sorted or any of its values is null
+     * @throws IllegalArgumentException if the values are not in ascending order
+     */
+    public static <T extends Comparable<T>> IterableRedBlackTree<T> fromSorted(
+        Collection<T> sorted) throws NullPointerException, IllegalArgumentException {
+      return fromSorted(sorted, false);
+    }
+    
+    
+    
+    
+    /**
+     * Creates a new tree out of values that are already in ascending order, like
+     * fromSorted(sorted), in multiset mode or not.
+     * @param sorted the values of the new tree, in ascending order
+     * @param multiset true to keep equal values together in one node (see RedBlackTree)
+     * @return a new tree holding all values of sorted
+     * @throws NullPointerException if sorted or any of its values is null
+     * @throws IllegalArgumentException if the values are not in ascending order
+     */
+    public static <T extends Comparable<T>> IterableRedBlackTree<T> fromSorted(
+        Collection<T> sorted, boolean multiset) throws NullPointerException,
+        IllegalArgumentException {
+      List<T> values = new ArrayList<>(sorted);
+      int unsorted = unsortedAt(values);
+      if (unsorted != -1) {
+        throw new IllegalArgumentException("Values are not sorted at position " + unsorted + "!");
+      }
+      
+      IterableRedBlackTree<T> tree = new IterableRedBlackTree<>(multiset);
+      tree.root = tree.buildBalanced(values);
+      return tree;
+    }
+    
+    
+    
+    
+    /**
+     * Helper method finding the first value that is smaller than the one before it.
+     * @param values the values to check
+     * @return the position of that value, or -1 if the values are in ascending order
+     * @throws NullPointerException if any of the values is null
+     */
+    private static <T extends Comparable<T>> int unsortedAt(List<T> values) {
+      for (int i = 0; i < values.size(); i++) {
+        if (values.get(i) == null) {
+          throw new NullPointerException("Data is null, not allowed!");
+        }
+        if (i > 0 && values.get(i - 1).compareTo(values.get(i)) > 0) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    
+    
+    
+    /**
+     * Writes the values of this tree to a snapshot file, in ascending order, so that
+     * the tree can later be rebuilt with load. The file also records whether this is a
+     * multiset tree. An existing file is replaced.
+     * @param path the file to write
+     * @param codec writes each value to the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path, Codec<T> codec) throws IOException {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(path)))) {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(this.isMultiset() ? SNAPSHOT_MULTISET : 0);
+        out.writeInt(this.size());
+        for (Iterator<T> values = new RBTIterator<>(this.root, null, null); values.hasNext();) {
+          codec.write(values.next(), out);
+        }
+      }
+    }
+    
+    
+    
+    
+    /**
+     * Creates a new tree from a snapshot file written by save, in multiset mode if the
+     * saved tree was. The file is mapped into memory and decoded in one pass, and since the
+     * values are already in order the tree is built directly in linear time, with only one
+     * comparison per value to check that order.
+     *
+     * The values must compare the same way as when they were saved: e.g. songs must be read
+     * with Song.codec given the comparator of the saved songs. Values that come out of
+     * order are rejected, since they would not make a valid search tree.
+     * @param path the file to read
+     * @param codec reads each value from the file, the counterpart of the codec used to save
+     * @return a new tree holding the values of the snapshot
+     * @throws IOException if the file cannot be read, is not a complete snapshot, or its
+     *     values are null or not in ascending order
+     */
+    public static <T extends Comparable<T>> IterableRedBlackTree<T> load(
+        Path path, Codec<T> codec) throws IOException {
+      List<T> values;
+      boolean multiset;
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        int magic = in.remaining() < 8 ? 0 : in.getInt();
+        if (magic != SNAPSHOT_MAGIC) {
+          throw new IOException("The file is not a tree snapshot!");
+        }
+        multiset = (in.getInt() & SNAPSHOT_MULTISET) != 0;
+        int size = in.getInt();
+        if (size < 0) {
+          throw new IOException("The snapshot file is corrupt!");
+        }
+        //Every value takes at least one byte, so a corrupt size cannot allocate more than the file
+        values = new ArrayList<>(Math.min(size, in.remaining()));
+        for (int i = 0; i < size; i++) {
+          T value = codec.read(in);
+          if (value == null) {
+            throw new IOException("The snapshot holds a null value!");
+          }
+          values.add(value);
+        }
+      }
+      catch (BufferUnderflowException e) {
+        throw new IOException("The snapshot file is truncated!");
+      }
+      
+      int unsorted = unsortedAt(values);
+      if (unsorted != -1) {
+        throw new IOException("The snapshot is not in the order of the loaded values at "
+            + "position " + unsorted + "!");
+      }
+      IterableRedBlackTree<T> tree = new IterableRedBlackTree<>(multiset);
+      tree.root = tree.buildBalanced(values);
+      return tree;
+    }
+    
+    
+    
+    
     /**
+     * Converts values to and from the bytes of a snapshot file. Values are written through
+     * a DataOutput and read back from a (memory-mapped) ByteBuffer, both big-endian.
+     */
+    public interface Codec<R> {
+      
+      //Codecs for the value types used in this project
+      public static final Codec<Integer> INTEGER = new Codec<>() {
+        public void write(Integer value, DataOutput out) throws IOException {
+          out.writeInt(value);
+        }
+        public Integer read(ByteBuffer in) {
+          return in.getInt();
+        }
+      };
+      public static final Codec<String> STRING = new Codec<>() {
+        public void write(String value, DataOutput out) throws IOException {
+          writeString(value, out);
+        }
+        public String read(ByteBuffer in) {
+          return readString(in);
+        }
+      };
+      
+      public void write(R value, DataOutput out) throws IOException;
+      public R read(ByteBuffer in);
+      
+      /**
+       * Writes a string as its length in bytes followed by its UTF-8 bytes, or
+       * as a length of -1 if it is null.
+       */
+      public static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+          out.writeInt(-1);
+          return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      
+      /**
+       * Reads a string written by writeString.
+       * @throws BufferUnderflowException if in holds fewer bytes than the string's length
+       */
+      public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+          return null;
+        }
+        if (length > in.remaining()) {
+          //Fail before allocating a corrupt length
+          throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+    }
+    
+    
+    
+        /**
      * Allows setting the start (minimum) value of the iterator. When this method is called,
      * every iterator created after it will use the minimum set by this method until this method
      * is called again to set a new minimum value.
@@ -261,19 +896,264 @@ public class IterableRedBlackTree<T extends Comparable<T>>
     
     
 
+    /**
+     * Returns an iterator over the values between min and max in ascending order. The bounds
+     * belong to this iterator alone: it neither uses nor changes the values set by
+     * setIteratorMin and setIteratorMax, so concurrent readers do not interfere.
+     * @param min the minimum of the range, or null for no minimum
+     * @param minInclusive whether values equal to min are returned
+     * @param max the maximum of the range, or null for no maximum
+     * @param maxInclusive whether values equal to max are returned
+     * @return an iterator over the values in the range
+     */
+    @Override
+    public Iterator<T> iterator(Comparable<T> min, boolean minInclusive,
+        Comparable<T> max, boolean maxInclusive) {
+      return new RBTIterator<>(this.root, min, minInclusive, max, maxInclusive, false);
+    }
+    
+    
+    
+
+    /**
+     * Returns an iterator over the values between min and max in descending order. The start
+     * point is found with one walk down from the root, so only the values returned are
+     * visited, even when the caller stops after the first few.
+     * @param min the minimum of the range, or null for no minimum
+     * @param minInclusive whether values equal to min are returned
+     * @param max the maximum of the range, or null for no maximum
+     * @param maxInclusive whether values equal to max are returned
+     * @return an iterator over the values in the range, highest first
+     */
+    @Override
+    public Iterator<T> descendingIterator(Comparable<T> min, boolean minInclusive,
+        Comparable<T> max, boolean maxInclusive) {
+      return new RBTIterator<>(this.root, min, minInclusive, max, maxInclusive, true);
+    }
+    
+    
+    
+
+    /**
+     * Returns a cursor over the values between min and max (including both themselves) in
+     * ascending order. Besides stepping with next, the cursor can peek at its next value and
+     * seek forward to any value in logarithmic time.
+     * @param min the minimum of the range, or null for no minimum
+     * @param max the maximum of the range, or null for no maximum
+     * @return a cursor over the values in the range
+     */
+    public Cursor<T> cursor(Comparable<T> min, Comparable<T> max) {
+      return new RBTIterator<>(this.root, min, true, max, true, false);
+    }
+    
+    
+    
+
+    /**
+     * Returns a spliterator over the values stored in this tree, using the same start and
+     * stop values as the iterator method. The spliterator is exactly sized and splits into
+     * halves of equal size, so it can be used by parallel streams.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+      return this.spliterator(this.min, this.max);
+    }
+    
+    
+    
+    
+    /**
+     * Returns a spliterator over the values between min and max (including min and max
+     * themselves), in ascending order. A null min or max means that end of the range is
+     * unbounded. The tree must not be modified while the spliterator is in use.
+     * @param min the minimum value to include, or null for no minimum
+     * @param max the maximum value to include, or null for no maximum
+     * @return a spliterator over the values in the range
+     */
+    public Spliterator<T> spliterator(Comparable<T> min, Comparable<T> max) {
+      int start = min == null ? 0 : this.countBelow(min, false);
+      int end = max == null ? this.size() : this.countBelow(max, true);
+      return new RBTSpliterator<>(this.root, start, Math.max(start, end));
+    }
+    
+    
+    
+    
+    /**
+     * Returns a sequential stream over the values between min and max (including min and
+     * max themselves), in ascending order. A null min or max means that end of the range
+     * is unbounded.
+     * @param min the minimum value to include, or null for no minimum
+     * @param max the maximum value to include, or null for no maximum
+     * @return a stream of the values in the range
+     */
+    public Stream<T> stream(Comparable<T> min, Comparable<T> max) {
+      return StreamSupport.stream(this.spliterator(min, max), false);
+    }
+    
+    
+    
+    
+    /**
+     * Returns a parallel stream over the values between min and max (including min and
+     * max themselves). A null min or max means that end of the range is unbounded.
+     * @param min the minimum value to include, or null for no minimum
+     * @param max the maximum value to include, or null for no maximum
+     * @return a parallel stream of the values in the range
+     */
+    public Stream<T> parallelStream(Comparable<T> min, Comparable<T> max) {
+      return StreamSupport.stream(this.spliterator(min, max), true);
+    }
+    
+    
+    
+    
+    /**
+     * Nested class for Spliterator objects created for this tree. Each spliterator covers the
+     * values at the sorted positions from start (inclusive) to end (exclusive). The subtree
+     * sizes let it jump to any position in logarithmic time, so splitting is just cutting the
+     * position range in half, and both halves know their exact size.
+     */
+    protected static class RBTSpliterator<R> implements Spliterator<R> {
+
+         // stores the root node of the tree to traverse
+         BinaryTreeNode<R> root = null;
+         // stores the sorted position of the next value to return
+         int start = 0;
+         // stores the sorted position after the last value to return
+         int end = 0;
+         // stores the node holding the value at position start, or null until it is looked up
+         BinaryTreeNode<R> next = null;
+         // stores the index of that value among the values of next
+         int offset = 0;
+
+         
+         
+        /**
+         * Constructor for a new spliterator over the values at the sorted positions from
+         * start (inclusive) to end (exclusive) of the tree with root as its root node.
+         * @param root root node of the tree to traverse
+         * @param start the position of the first value to return
+         * @param end the position after the last value to return
+         */
+        public RBTSpliterator(BinaryTreeNode<R> root, int start, int end) {
+          this.root = root;
+          this.start = start;
+          this.end = end;
+        }
+        
+        
+        
+        
+        /**
+         * Passes the next value to action, if there is one.
+         * @param action the action to perform on the value
+         * @return false if there were no values left, true otherwise
+         */
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+          if (this.start >= this.end) {
+            return false;
+          }
+          if (this.next == null) {
+            this.next = BinarySearchTree.selectHelper(this.root, this.start);
+            this.offset = this.next.getCount() == 1 ? 0
+                : this.start - BinarySearchTree.positionHelper(this.next);
+          }
+          action.accept(this.next.getData(this.offset));
+          this.start++;
+          if (this.start == this.end) {
+            this.next = null;
+          }
+          else if (++this.offset == this.next.getCount()) {
+            this.next = RBTIterator.successorHelper(this.next);
+            this.offset = 0;
+          }
+          return true;
+        }
+        
+        
+        
+        
+        /**
+         * Splits off the first half of the remaining values into a new spliterator,
+         * and keeps the second half.
+         * @return the spliterator over the first half, or null if too few values are left
+         */
+        @Override
+        public Spliterator<R> trySplit() {
+          int middle = (this.start + this.end) >>> 1;
+          if (middle <= this.start) {
+            return null;
+          }
+          RBTSpliterator<R> prefix = new RBTSpliterator<>(this.root, this.start, middle);
+          prefix.next = this.next;
+          prefix.offset = this.offset;
+          this.start = middle;
+          this.next = null;
+          return prefix;
+        }
+        
+        
+        
+        
+        /**
+         * @return the exact number of values left
+         */
+        @Override
+        public long estimateSize() {
+          return this.end - this.start;
+        }
+        
+        
+        
+        
+        /**
+         * @return the characteristics of this spliterator: the values come in sorted order,
+         * are never null, and both this spliterator and its splits know their exact size
+         */
+        @Override
+        public int characteristics() {
+          return ORDERED | SORTED | SIZED | SUBSIZED | NONNULL;
+        }
+        
+        
+        
+        
+        /**
+         * @return null, since the values are sorted in their natural order
+         */
+        @Override
+        public Comparator<? super R> getComparator() {
+          return null;
+        }
+
+    }
+    
+    
+    
+    
     /**
      * Nested class for Iterator objects created for this tree and returned by the iterator method.
      * This iterator follows an in-order traversal of the tree and returns the values in sorted,
-     * ascending order.
+     * ascending order (or in descending order, when it is created as a descending iterator).
+     * Instead of keeping a stack of ancestors, it walks from each node to its in-order successor
+     * (or predecessor) through the parent references, so stepping allocates nothing.
      */
-    protected static class RBTIterator<R> implements Iterator<R> {
+    protected static class RBTIterator<R> implements Cursor<R> {
 
-         // stores the start point (minimum) for the iterator
-         Comparable<R> min = null;
-         // stores the stop point (maximum) for the iterator
-         Comparable<R> max = null;
-         // stores the stack that keeps track of the inorder traversal
-         Stack<BinaryTreeNode<R>> stack = null;
+         // stores the root node of the traversed tree, where seek starts its search
+         BinaryTreeNode<R> root = null;
+         // stores the stop point for the iterator: the maximum, or the minimum when descending
+         Comparable<R> stop = null;
+         // stores whether a value equal to the stop point is still returned
+         boolean stopInclusive = true;
+         // stores whether the iterator walks from the highest value down to the lowest
+         boolean descending = false;
+         // stores the node holding the next value to return, or null when done
+         BinaryTreeNode<R> next = null;
+         // stores the index of the next value among the values of that node
+         int offset = 0;
 
          
          
@@ -286,37 +1166,146 @@ public class IterableRedBlackTree<T extends Comparable<T>>
          * @param max the maximum value that the iterator will return 
          */
         public RBTIterator(BinaryTreeNode<R> root, Comparable<R> min, Comparable<R> max) {
-          this.min = min;
-          this.max = max;
-          this.stack = new Stack<>();
-          buildStackHelper(root);
+          this(root, min, true, max, true, false);
+        }
+
+        
+        
+        
+        /**
+         * Constructor for a new iterator of the tree with root as its root node, between min
+         * and max (either of which may be null for no bound). Each bound is only returned
+         * itself if its inclusive flag is true.
+         * @param root root node of the tree to traverse
+         * @param min the minimum value of the range, or null for no minimum
+         * @param minInclusive whether values equal to min are returned
+         * @param max the maximum value of the range, or null for no maximum
+         * @param maxInclusive whether values equal to max are returned
+         * @param descending true to return the values from max down to min
+         */
+        public RBTIterator(BinaryTreeNode<R> root, Comparable<R> min, boolean minInclusive,
+            Comparable<R> max, boolean maxInclusive, boolean descending) {
+          this.root = root;
+          this.descending = descending;
+          this.stop = descending ? min : max;
+          this.stopInclusive = descending ? minInclusive : maxInclusive;
+          this.next = descending ? this.checkStop(seekHelper(root, max, maxInclusive, true))
+              : this.checkStop(seekHelper(root, min, minInclusive, false));
+          this.offset = descending && this.next != null ? this.next.getCount() - 1 : 0;
         }
 
         
          
         
         /**
-         * Helper method for initializing and updating the stack. This method both
-         * - finds the next data value stored in the tree (or subtree) that is 
-         * between start(minimum) and stop(maximum) point (including start and stop points themselves), and
-         * - builds up the stack of ancestor nodes that contain values between start(minimum) and stop(maximum) values 
-         * (including start and stop values themselves) so that those nodes can be visited in the future.
-         * @param node the root node of the subtree to process
+         * Compares a bound against a value in the direction of the iteration.
+         * @return a negative number if value comes after bound in the iteration order,
+         * zero if they are equal, and a positive number if value comes before bound
          */
-        private void buildStackHelper(BinaryTreeNode<R> node) {
-          
-          //This is the base case:
-          if (node == null) {
-            return;
+        private static <R> int compareHelper(Comparable<R> bound, R value, boolean descending) {
+          int compareValue = bound.compareTo(value);
+          return descending ? -compareValue : compareValue;
+        }
+        
+        
+        
+        
+        /**
+         * Helper method for finding the start point of the iteration. Walks down a single
+         * path from the root and finds the first node, in the order of the iteration, whose
+         * value is not before start (or, when start is exclusive, after start).
+         * @param root the root node of the tree to search
+         * @param start the start value, or null to find the first value in the tree
+         * @param inclusive whether a value equal to start may be the start point
+         * @param descending true if the iteration goes from the highest value down
+         * @return the node found, or null if no value is past the start
+         */
+        private static <R> BinaryTreeNode<R> seekHelper(BinaryTreeNode<R> root,
+            Comparable<R> start, boolean inclusive, boolean descending) {
+          BinaryTreeNode<R> found = null;
+          BinaryTreeNode<R> node = root;
+          while (node != null) {
+            int compareValue = start == null ? -1 : compareHelper(start, node.getData(), descending);
+            boolean qualifies = compareValue < 0 || (inclusive && compareValue == 0);
+            if (qualifies) {
+              found = node;
+            }
+            //Go towards the start, where something earlier may still qualify
+            if (qualifies == descending) {
+              node = node.childRight();
+            }
+            else {
+              node = node.childLeft();
+            }
           }
-          
-          if (min != null && this.min.compareTo(node.getData()) > 0) {
-            this.buildStackHelper(node.childRight());  //Go right
-          } 
-          else {
-            this.stack.push(node);
-            this.buildStackHelper(node.childLeft());  //Go left
+          return found;
+        }
+        
+        
+        
+        
+        /**
+         * Helper method for finding the in-order successor of a node: the leftmost node of
+         * its right subtree if it has one, or otherwise the first ancestor that it is in the
+         * left subtree of.
+         * @param node the node to find the successor of
+         * @return the successor node, or null if node holds the largest value
+         */
+        private static <R> BinaryTreeNode<R> successorHelper(BinaryTreeNode<R> node) {
+          if (node.childRight() != null) {
+            node = node.childRight();
+            while (node.childLeft() != null) {
+              node = node.childLeft();
+            }
+            return node;
           }
+          while (node.isRightChild()) {
+            node = node.parent();
+          }
+          return node.parent();
+        }
+        
+        
+        
+        
+        /**
+         * Helper method for finding the in-order predecessor of a node: the rightmost node of
+         * its left subtree if it has one, or otherwise the first ancestor that it is in the
+         * right subtree of.
+         * @param node the node to find the predecessor of
+         * @return the predecessor node, or null if node holds the smallest value
+         */
+        private static <R> BinaryTreeNode<R> predecessorHelper(BinaryTreeNode<R> node) {
+          if (node.childLeft() != null) {
+            node = node.childLeft();
+            while (node.childRight() != null) {
+              node = node.childRight();
+            }
+            return node;
+          }
+          while (node.parent() != null && !node.isRightChild()) {
+            node = node.parent();
+          }
+          return node.parent();
+        }
+        
+        
+        
+        
+        /**
+         * Compares the provided node against the stop point once, so that hasNext does not
+         * need to compare anything.
+         * @param node the candidate for the next node
+         * @return node if it has not passed the stop point, or null otherwise
+         */
+        private BinaryTreeNode<R> checkStop(BinaryTreeNode<R> node) {
+          if (node != null && this.stop != null) {
+            int compareValue = compareHelper(this.stop, node.getData(), this.descending);
+            if (compareValue < 0 || (!this.stopInclusive && compareValue == 0)) {
+              return null;
+            }
+          }
+          return node;
         }
         
         
@@ -327,22 +1316,45 @@ public class IterableRedBlackTree<T extends Comparable<T>>
          * Returns true if the iterator has another value to return, and false otherwise.
          */
         public boolean hasNext() { 
-          
-          if (this.stack.isEmpty()) {
-            return false;
+          return this.next != null;
+        }
+
+        
+        
+        
+        /**
+         * Returns the next value of the iterator without moving past it.
+         * @throws NoSuchElementException if the iterator has no more values to return
+         */
+        @Override
+        public R peek() {
+          if (this.next == null) {
+            throw new NoSuchElementException("No more elements in the iterator");
           }
-          
-          // If there's a maximum set, check if the top node's value exceeds it
-          if (this.max != null) {
-            BinaryTreeNode<R> topNode = this.stack.peek();
-            // If the top node's value exceeds the maximum, there are no more valid nodes
-            if (this.max.compareTo(topNode.getData()) < 0) {
-              return false;
-            }
+          return this.next.getData(this.offset);
+        }
+
+        
+        
+        
+        /**
+         * Moves forward to the first value not before target (or after target, if inclusive
+         * is false) in the order of the iteration, with one walk down from the root. The
+         * iterator never moves backwards, and still stops at its stop point.
+         * @param target the value to move to
+         * @param inclusive whether a value equal to target may be the next value
+         */
+        @Override
+        public void seek(Comparable<R> target, boolean inclusive) {
+          if (this.next == null) {
+            return;
           }
-          
-          // The stack is not empty and the top node's value is within the range
-          return true;
+          int compareValue = compareHelper(target, this.next.getData(), this.descending);
+          if (compareValue < 0 || (inclusive && compareValue == 0)) {
+            return;    //The next value already qualifies
+          }
+          this.next = this.checkStop(seekHelper(this.root, target, inclusive, this.descending));
+          this.offset = this.descending && this.next != null ? this.next.getCount() - 1 : 0;
         }
 
         
@@ -355,17 +1367,27 @@ public class IterableRedBlackTree<T extends Comparable<T>>
         public R next() {
           
           // Check if there are more elements
-          if (!hasNext()) {
+          if (this.next == null) {
             throw new NoSuchElementException("No more elements in the iterator");
           }
           
-          // Get the next node from the stack
-          BinaryTreeNode<R> current = this.stack.pop();
-          R result = current.getData();
+          R result = this.next.getData(this.offset);
           
-          // Process the right subtree to maintain the in-order traversal
-          if (current.childRight() != null) {
-            this.buildStackHelper(current.childRight());
+          // Stay within the node while it has more values (in multiset trees)
+          if (this.descending && this.offset > 0) {
+            this.offset--;
+          }
+          else if (!this.descending && this.offset + 1 < this.next.getCount()) {
+            this.offset++;
+          }
+          // Otherwise step to the in-order neighbour, stopping once it passes the stop point
+          else if (this.descending) {
+            this.next = this.checkStop(predecessorHelper(this.next));
+            this.offset = this.next == null ? 0 : this.next.getCount() - 1;
+          }
+          else {
+            this.next = this.checkStop(successorHelper(this.next));
+            this.offset = 0;
           }
           return result;
         }
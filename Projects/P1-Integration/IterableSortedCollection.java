@@ -1,3 +1,5 @@
+import java.util.Iterator;
+
 /**
  * This interface defines an ADT for data structures that support storing a 
  * collection of comparable values in their natural ordering (similar to the
@@ -9,4 +11,24 @@ public interface IterableSortedCollection<T extends Comparable<T>>
     public void setIteratorMin(Comparable<T> min); // null to clear min
     public void setIteratorMax(Comparable<T> max); // null to clear max
 
+    // iterators with their own bounds, which do not use or change the bounds set above
+    public Iterator<T> iterator(Comparable<T> min, boolean minInclusive,
+                                Comparable<T> max, boolean maxInclusive); // null for unbounded
+    public Iterator<T> descendingIterator(Comparable<T> min, boolean minInclusive,
+                                          Comparable<T> max, boolean maxInclusive); // highest first
+
+    public default Iterator<T> iterator(Comparable<T> min, Comparable<T> max) {
+        return iterator(min, true, max, true); // both bounds inclusive
+    }
+    public default Iterator<T> descendingIterator(Comparable<T> min, Comparable<T> max) {
+        return descendingIterator(min, true, max, true); // both bounds inclusive
+    }
+
+    public int rank(Comparable<T> data); // number of values smaller than data
+    public T select(int k); // k-th smallest value, starting from 0
+    public int countInRange(Comparable<T> min, Comparable<T> max); // null for unbounded
+
+    public boolean remove(Comparable<T> data); // removes one occurrence of data
+    public int removeRange(Comparable<T> min, Comparable<T> max); // null for unbounded
+
 }
@@ -0,0 +1,419 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+
+/**
+ * This is an implementation of IterableSortedCollection that orders its values by a key
+ * taken from each value with one key extractor (e.g. Song::getDanceability), instead of
+ * by the values' own compareTo. The values therefore do not need to carry a comparator:
+ * every value is stored next to its key, and the tree compares keys only, through a single
+ * final compareTo method.
+ *
+ * The values are kept in a multiset IterableRedBlackTree, so all values with equal keys
+ * share one node and a search compares against distinct keys only. Among values with equal
+ * keys, the most recently inserted one comes first, like in IterableRedBlackTree.
+ *
+ * The bounds passed to the methods of IterableSortedCollection are compared against the
+ * values, so they must order values consistently with their keys. The methods ending in
+ * ByKey take keys as bounds instead.
+ */
+public class KeyedSortedCollection<K extends Comparable<K>, V extends Comparable<V>>
+    implements IterableSortedCollection<V> {
+
+  //Takes the key out of each value
+  private final Function<V, K> keyExtractor;
+  //The values paired with their keys, one node per distinct key
+  private final IterableRedBlackTree<Entry<K, V>> tree = new IterableRedBlackTree<>(true);
+
+  private Comparable<V> min = null; //minimum for the iterator, or null if no minimum is set.
+  private Comparable<V> max = null; //maximum for the iterator, or null if no maximum is set.
+
+
+
+
+  /**
+   * Creates an empty collection ordered by the keys that keyExtractor returns.
+   * @param keyExtractor returns the key of a value, never null
+   * @throws NullPointerException if keyExtractor is null
+   */
+  public KeyedSortedCollection(Function<V, K> keyExtractor) throws NullPointerException {
+    if (keyExtractor == null) {
+      throw new NullPointerException("Key extractor is null, not allowed!");
+    }
+    this.keyExtractor = keyExtractor;
+  }
+
+
+
+
+  /**
+   * A value stored in the tree together with its key. Entries compare by key alone, and
+   * are equal when their values are, so that removeValue can find a specific value.
+   */
+  private static final class Entry<K extends Comparable<K>, V>
+      implements Comparable<Entry<K, V>> {
+    final K key;
+    final V value;
+
+    Entry(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public int compareTo(Entry<K, V> other) {
+      return this.key.compareTo(other.key);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Entry && this.value.equals(((Entry<?, ?>) other).value);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.value.hashCode();
+    }
+  }
+
+
+
+
+  /**
+   * Pairs a value with its key.
+   * @param data the value
+   * @return the new entry
+   * @throws NullPointerException if data or its key is null
+   */
+  private Entry<K, V> entryOf(V data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    K key = this.keyExtractor.apply(data);
+    if (key == null) {
+      throw new NullPointerException("Key is null, not allowed!");
+    }
+    return new Entry<>(key, data);
+  }
+
+
+
+
+  /**
+   * Turns a bound on values into a bound on the entries of the tree.
+   * @param bound the bound on values, or null
+   * @return the bound on entries, or null if bound is null
+   */
+  private static <K extends Comparable<K>, V> Comparable<Entry<K, V>> valueBound(
+      Comparable<V> bound) {
+    return bound == null ? null : entry -> bound.compareTo(entry.value);
+  }
+
+
+
+
+  /**
+   * Turns a key into a bound on the entries of the tree.
+   * @param key the key, or null
+   * @return the bound on entries, or null if key is null
+   */
+  private static <K extends Comparable<K>, V> Comparable<Entry<K, V>> keyBound(K key) {
+    return key == null ? null : entry -> key.compareTo(entry.key);
+  }
+
+
+
+
+  /**
+   * Wraps an iterator over entries into an iterator over their values.
+   * @param entries the entries to return the values of
+   * @return an iterator over the values
+   */
+  private static <K extends Comparable<K>, V> Iterator<V> valuesOf(
+      Iterator<Entry<K, V>> entries) {
+    return new Iterator<V>() {
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      }
+
+      @Override
+      public V next() {
+        return entries.next().value;
+      }
+    };
+  }
+
+
+
+
+  /**
+   * Inserts a new data value into the sorted collection.
+   * @param data the new value being inserted
+   * @throws NullPointerException if data argument or its key is null
+   */
+  @Override
+  public void insert(V data) throws NullPointerException {
+    this.tree.insert(this.entryOf(data));
+  }
+
+
+
+
+  /**
+   * Inserts every value of data into the collection, as one batch.
+   * @param data the new values being inserted
+   * @throws NullPointerException if data, any of its values, or any key is null
+   */
+  @Override
+  public void insertAll(Collection<V> data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    List<Entry<K, V>> entries = new ArrayList<>(data.size());
+    for (V value : data) {
+      entries.add(this.entryOf(value));
+    }
+    this.tree.insertAll(entries);
+  }
+
+
+
+
+  /**
+   * Check whether a value equal to data is stored in the collection.
+   * @param data the value to check for in the collection
+   * @return true if the collection contains data one or more times, and false otherwise
+   */
+  @Override
+  public boolean contains(Comparable<V> data) {
+    return this.tree.contains(valueBound(data));
+  }
+
+
+
+
+  /**
+   * @return the number of values in the collection, including duplicates
+   */
+  @Override
+  public int size() {
+    return this.tree.size();
+  }
+
+
+
+
+  /**
+   * @return true if the collection contains 0 values, false otherwise
+   */
+  @Override
+  public boolean isEmpty() {
+    return this.tree.isEmpty();
+  }
+
+
+
+
+  /**
+   * Removes all values and duplicates from the collection.
+   */
+  @Override
+  public void clear() {
+    this.tree.clear();
+  }
+
+
+
+
+  /**
+   * Counts the number of values in the collection that are strictly smaller than data.
+   * @param data the value to rank
+   * @return the number of values smaller than data
+   * @throws NullPointerException if data is null
+   */
+  @Override
+  public int rank(Comparable<V> data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    return this.tree.rank(valueBound(data));
+  }
+
+
+
+
+  /**
+   * Finds the value at the provided (zero-based) position in the sorted order.
+   * @param k the position of the value to find
+   * @return the k-th smallest value in the collection
+   * @throws IndexOutOfBoundsException if k is negative or not less than size()
+   */
+  @Override
+  public V select(int k) throws IndexOutOfBoundsException {
+    return this.tree.select(k).value;
+  }
+
+
+
+
+  /**
+   * Counts the number of values between min and max (including min and max themselves).
+   * @param min the minimum value to count, or null for no minimum
+   * @param max the maximum value to count, or null for no maximum
+   * @return the number of values within the range
+   */
+  @Override
+  public int countInRange(Comparable<V> min, Comparable<V> max) {
+    return this.tree.countInRange(valueBound(min), valueBound(max));
+  }
+
+
+
+
+  /**
+   * Counts the number of values whose keys are between minKey and maxKey (including
+   * both themselves), without comparing any values.
+   * @param minKey the minimum key to count, or null for no minimum
+   * @param maxKey the maximum key to count, or null for no maximum
+   * @return the number of values within the range
+   */
+  public int countInRangeByKey(K minKey, K maxKey) {
+    return this.tree.countInRange(keyBound(minKey), keyBound(maxKey));
+  }
+
+
+
+
+  /**
+   * Removes one occurrence of data from the collection, if it is stored in it.
+   * @param data the value to remove
+   * @return true if a value was removed, false if data was not found
+   * @throws NullPointerException if data argument is null
+   */
+  @Override
+  public boolean remove(Comparable<V> data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    return this.tree.remove(valueBound(data));
+  }
+
+
+
+
+  /**
+   * Removes the stored value that equals value (e.g. the very same song), where remove
+   * takes whichever value compares equal to its argument (e.g. any song with the same key).
+   * @param value the value to remove
+   * @return true if a value was removed, false if no stored value equals value
+   * @throws NullPointerException if value or its key is null
+   */
+  public boolean removeValue(V value) throws NullPointerException {
+    return this.tree.removeValue(this.entryOf(value));
+  }
+
+
+
+
+  /**
+   * Removes every value between min and max (including min and max themselves).
+   * @param min the minimum value to remove, or null for no minimum
+   * @param max the maximum value to remove, or null for no maximum
+   * @return the number of values removed
+   */
+  @Override
+  public int removeRange(Comparable<V> min, Comparable<V> max) {
+    return this.tree.removeRange(valueBound(min), valueBound(max));
+  }
+
+
+
+
+  /**
+   * Allows setting the start (minimum) value of the iterator.
+   * @param min the minimum for iterators created for this collection, or null for no minimum
+   */
+  @Override
+  public void setIteratorMin(Comparable<V> min) {
+    this.min = min;
+  }
+
+
+
+
+  /**
+   * Allows setting the stop (maximum) value of the iterator.
+   * @param max the maximum for iterators created for this collection, or null for no maximum
+   */
+  @Override
+  public void setIteratorMax(Comparable<V> max) {
+    this.max = max;
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values between the minimum set by setIteratorMin and the
+   * maximum set by setIteratorMax (including both themselves), ordered by key.
+   */
+  @Override
+  public Iterator<V> iterator() {
+    return this.iterator(this.min, true, this.max, true);
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values between min and max in ascending order of keys.
+   * @param min the minimum of the range, or null for no minimum
+   * @param minInclusive whether values equal to min are returned
+   * @param max the maximum of the range, or null for no maximum
+   * @param maxInclusive whether values equal to max are returned
+   * @return an iterator over the values in the range
+   */
+  @Override
+  public Iterator<V> iterator(Comparable<V> min, boolean minInclusive,
+      Comparable<V> max, boolean maxInclusive) {
+    return valuesOf(this.tree.iterator(valueBound(min), minInclusive,
+        valueBound(max), maxInclusive));
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values between min and max in descending order of keys.
+   * @param min the minimum of the range, or null for no minimum
+   * @param minInclusive whether values equal to min are returned
+   * @param max the maximum of the range, or null for no maximum
+   * @param maxInclusive whether values equal to max are returned
+   * @return an iterator over the values in the range, highest key first
+   */
+  @Override
+  public Iterator<V> descendingIterator(Comparable<V> min, boolean minInclusive,
+      Comparable<V> max, boolean maxInclusive) {
+    return valuesOf(this.tree.descendingIterator(valueBound(min), minInclusive,
+        valueBound(max), maxInclusive));
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values whose keys are between minKey and maxKey
+   * (including both themselves), in ascending order of keys.
+   * @param minKey the minimum key, or null for no minimum
+   * @param maxKey the maximum key, or null for no maximum
+   * @return an iterator over the values in the range
+   */
+  public Iterator<V> iteratorByKey(K minKey, K maxKey) {
+    return valuesOf(this.tree.iterator(keyBound(minKey), keyBound(maxKey)));
+  }
+
+}
@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A class for testing the methods of the KeyedSortedCollection class. The tests
+ * live here since the collection itself has no constructor without arguments.
+ */
+public class KeyedSortedCollectionTests {
+
+  /**
+   * Test for songs without a comparator, ordered by danceability through the key extractor
+   */
+  @Test
+  public void testKeyed1() {
+    KeyedSortedCollection<Integer, Song> songs =
+        new KeyedSortedCollection<>(Song::getDanceability);
+    songs.insert(new Song("Umbrella", "Rihanna", "pop", 2007, 174, 83, 58, -4, 4));
+    songs.insert(new Song("Baby", "Justin Bieber", "pop", 2010, 65, 86, 73, -5, 11));
+    songs.insertAll(List.of(
+        new Song("Halo", "Beyonce", "pop", 2008, 80, 72, 51, -5, 6),
+        new Song("Firework", "Katy Perry", "pop", 2010, 124, 83, 64, -5, 11),
+        new Song("Only Girl", "Rihanna", "pop", 2010, 126, 72, 73, -4, 7)));
+
+    String titles = "";
+    for (Song song : songs) {
+      titles += song.getTitle() + ", ";
+    }
+    Assertions.assertEquals("Halo, Umbrella, Firework, Only Girl, Baby, ", titles);
+    Assertions.assertEquals(5, songs.size());
+    Assertions.assertEquals(2, songs.countInRangeByKey(73, null));
+    Assertions.assertEquals("Firework", songs.iteratorByKey(59, 70).next().getTitle());
+    Assertions.assertEquals("Baby", songs.descendingIterator(null, null).next().getTitle());
+    Assertions.assertEquals("Firework", songs.select(2).getTitle());
+
+    //Value bounds compare the same danceability as the key
+    Comparable<Song> above60 = song -> Integer.compare(60, song.getDanceability());
+    Assertions.assertEquals(2, songs.rank(above60));
+    Assertions.assertEquals(3, songs.removeRange(above60, null));
+    Assertions.assertEquals(2, songs.size());
+    Assertions.assertThrows(NullPointerException.class, () -> songs.insert(null));
+  }
+
+
+
+
+  /**
+   * Test for removing one specific song among songs with the same danceability
+   */
+  @Test
+  public void testKeyed3() {
+    KeyedSortedCollection<Integer, Song> songs =
+        new KeyedSortedCollection<>(Song::getDanceability);
+    Song halo = new Song("Halo", "Beyonce", "pop", 2008, 80, 72, 51, -5, 6);
+    Song hello = new Song("Hello", "Adele", "pop", 2015, 79, 43, 51, -6, 9);
+    Song sorry = new Song("Sorry", "Justin Bieber", "pop", 2015, 100, 76, 51, -4, 30);
+    songs.insertAll(List.of(halo, hello, sorry));
+
+    //The song in the middle of the bucket goes, and the others keep their order
+    Assertions.assertTrue(songs.removeValue(hello));
+    Assertions.assertFalse(songs.removeValue(hello));
+    Assertions.assertEquals(List.of(sorry, halo), List.of(songs.select(0), songs.select(1)));
+    Assertions.assertTrue(songs.removeValue(halo));
+    Assertions.assertEquals(sorry, songs.select(0));
+    Assertions.assertEquals(1, songs.size());
+    Assertions.assertThrows(NullPointerException.class, () -> songs.removeValue(null));
+  }
+
+
+
+
+  /**
+   * Test for using the collection in place of IterableRedBlackTree inside Backend
+   */
+  @Test
+  public void testKeyed2() throws IOException {
+    Backend fromKeyed = new Backend(new KeyedSortedCollection<>(Song::getDanceability));
+    Backend fromRBT = new Backend(new IterableRedBlackTree<>());
+    fromKeyed.readData("songs.csv");
+    fromRBT.readData("songs.csv");
+
+    Assertions.assertEquals(fromRBT.getRange(60, 80), fromKeyed.getRange(60, 80));
+    Assertions.assertEquals(fromRBT.filterSongs(100), fromKeyed.filterSongs(100));
+    Assertions.assertEquals(fromRBT.fiveMost(), fromKeyed.fiveMost());
+  }
+
+}
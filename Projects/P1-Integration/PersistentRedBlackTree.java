@@ -0,0 +1,483 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * This is an immutable (persistent) variant of the RedBlack Tree. Nodes are never changed
+ * after they are created: an insert copies only the nodes on the path from the root to the
+ * new value and shares every other node with the previous version. That makes each version
+ * safe to read from any number of threads without locks, and a snapshot is just a reference
+ * to the current root.
+ */
+public class PersistentRedBlackTree<T extends Comparable<T>> implements SortedCollection<T>, Iterable<T> {
+
+  //The root of the current version, read once by every query so it sees a single version
+  private volatile Node<T> root;
+
+
+
+
+  /**
+   * Creates a new empty tree.
+   */
+  public PersistentRedBlackTree() {
+    this(null);
+  }
+
+
+
+
+  /**
+   * Creates a tree whose current version is the one rooted at root.
+   * @param root the root of the version, or null for an empty tree
+   */
+  private PersistentRedBlackTree(Node<T> root) {
+    this.root = root;
+  }
+
+
+
+
+  /**
+   * Returns a new version of this tree that also contains data. This tree is not changed.
+   * @param data the new value being inserted
+   * @return the new version of the tree
+   * @throws NullPointerException if data argument is null
+   */
+  public PersistentRedBlackTree<T> inserted(T data) throws NullPointerException {
+
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    return new PersistentRedBlackTree<>(insertHelper(data, this.root));
+  }
+
+
+
+
+  /**
+   * Inserts a new data value into the tree by publishing a new version of it. Readers that
+   * are already iterating keep seeing the version they started with and are never blocked;
+   * only concurrent writers wait for each other.
+   * @param data the new value being inserted
+   * @throws NullPointerException if data argument is null
+   */
+  @Override
+  public synchronized void insert(T data) throws NullPointerException {
+
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    this.root = insertHelper(data, this.root);
+  }
+
+
+
+
+  /**
+   * Returns the current version of this tree. The snapshot never changes, no matter what is
+   * inserted into this tree afterwards, and can be shared between threads freely.
+   * @return a snapshot of the current version
+   */
+  public PersistentRedBlackTree<T> snapshot() {
+    return new PersistentRedBlackTree<>(this.root);
+  }
+
+
+
+
+  /**
+   * Inserts data into the version rooted at subtree, and returns the root of the new version
+   * with a black root.
+   * @param data the new value being inserted
+   * @param subtree the root of the version to insert into
+   * @return the root of the new version
+   */
+  private static <T extends Comparable<T>> Node<T> insertHelper(T data, Node<T> subtree) {
+    Node<T> newRoot = copyPathHelper(data, subtree);
+    if (newRoot.isRed) {
+      newRoot = new Node<>(newRoot.left, newRoot.data, newRoot.right, false);
+    }
+    return newRoot;
+  }
+
+
+
+
+  /**
+   * Recursively copies the nodes on the path to the place of the new value, and repairs any
+   * red property violation on the way back up. Equal values go left, like in RedBlackTree.
+   * @param data the new value being inserted
+   * @param subtree the subtree to insert into
+   * @return the root of the new subtree
+   */
+  private static <T extends Comparable<T>> Node<T> copyPathHelper(T data, Node<T> subtree) {
+    if (subtree == null) {
+      return new Node<>(null, data, null, true);
+    }
+    if (data.compareTo(subtree.data) <= 0) {
+      return balance(copyPathHelper(data, subtree.left), subtree.data, subtree.right,
+          subtree.isRed);
+    }
+    return balance(subtree.left, subtree.data, copyPathHelper(data, subtree.right),
+        subtree.isRed);
+  }
+
+
+
+
+  /**
+   * Creates a new node and repairs a red child with a red grandchild below a black node. All
+   * four shapes of that violation are rebuilt into the same shape: a red node with two black
+   * children, which may in turn violate the red property one level further up.
+   * @param left the left child of the new node
+   * @param data the value of the new node
+   * @param right the right child of the new node
+   * @param isRed the color of the new node
+   * @return the new (possibly rebalanced) node
+   */
+  private static <T> Node<T> balance(Node<T> left, T data, Node<T> right, boolean isRed) {
+    if (!isRed) {
+      if (isRed(left) && isRed(left.left)) {
+        return new Node<>(blacken(left.left), left.data,
+            new Node<>(left.right, data, right, false), true);
+      }
+      if (isRed(left) && isRed(left.right)) {
+        return new Node<>(new Node<>(left.left, left.data, left.right.left, false),
+            left.right.data, new Node<>(left.right.right, data, right, false), true);
+      }
+      if (isRed(right) && isRed(right.left)) {
+        return new Node<>(new Node<>(left, data, right.left.left, false), right.left.data,
+            new Node<>(right.left.right, right.data, right.right, false), true);
+      }
+      if (isRed(right) && isRed(right.right)) {
+        return new Node<>(new Node<>(left, data, right.left, false), right.data,
+            blacken(right.right), true);
+      }
+    }
+    return new Node<>(left, data, right, isRed);
+  }
+
+
+
+
+  /**
+   * @param node the node to check, may be null
+   * @return true if the node is red, where null leaves count as black
+   */
+  private static boolean isRed(Node<?> node) {
+    return node != null && node.isRed;
+  }
+
+
+
+
+  /**
+   * @param node a red node
+   * @return a black copy of the node
+   */
+  private static <T> Node<T> blacken(Node<T> node) {
+    return new Node<>(node.left, node.data, node.right, false);
+  }
+
+
+
+
+  /**
+   * Check whether data is stored in the tree.
+   * @param data the value to check for in the collection
+   * @return true if the collection contains data one or more times,
+   * and false otherwise
+   */
+  @Override
+  public boolean contains(Comparable<T> data) {
+    Node<T> node = this.root;
+    while (node != null) {
+      int compareValue = data.compareTo(node.data);
+      if (compareValue == 0) {
+        return true;
+      }
+      node = compareValue < 0 ? node.left : node.right;
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * Counts the number of values in the collection, with each duplicate value
+   * being counted separately within the value returned.
+   * @return the number of values in the collection, including duplicates
+   */
+  @Override
+  public int size() {
+    Node<T> node = this.root;
+    return node == null ? 0 : node.size;
+  }
+
+
+
+
+  /**
+   * Checks if the collection is empty.
+   * @return true if the collection contains 0 values, false otherwise
+   */
+  @Override
+  public boolean isEmpty() {
+    return this.root == null;
+  }
+
+
+
+
+  /**
+   * Removes all values and duplicates from the collection. Snapshots taken
+   * before keep their values.
+   */
+  @Override
+  public synchronized void clear() {
+    this.root = null;
+  }
+
+
+
+
+  /**
+   * Returns an iterator over every value of the current version, in ascending order.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return this.iterator(null, null);
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values of the current version between min and max
+   * (including min and max themselves), in ascending order. A null min or max means that
+   * end of the range is unbounded. Inserts made after this call are not seen by the iterator.
+   * @param min the minimum value to return, or null for no minimum
+   * @param max the maximum value to return, or null for no maximum
+   * @return an iterator over the values in the range
+   */
+  public Iterator<T> iterator(Comparable<T> min, Comparable<T> max) {
+    return new PersistentIterator<>(this.root, min, max);
+  }
+
+
+
+
+  /**
+   * Nested class for the immutable nodes of this tree. Every field is final, so a node that
+   * has been published can be read by any thread without synchronization.
+   */
+  private static final class Node<T> {
+
+    final Node<T> left;
+    final T data;
+    final Node<T> right;
+    final boolean isRed;
+    // number of values in the subtree rooted at this node
+    final int size;
+
+    Node(Node<T> left, T data, Node<T> right, boolean isRed) {
+      this.left = left;
+      this.data = data;
+      this.right = right;
+      this.isRed = isRed;
+      this.size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+    }
+  }
+
+
+
+
+  /**
+   * Nested class for Iterator objects over one version of the tree. Nodes have no parent
+   * references (they are shared between versions), so the ancestors still to visit are kept
+   * in one array sized for the largest possible height of the version.
+   */
+  private static class PersistentIterator<R> implements Iterator<R> {
+
+    // stores the stop point (maximum) for the iterator
+    private final Comparable<R> max;
+    // stores the ancestors still to visit, the next node is on top
+    private final Node<R>[] stack;
+    // stores the number of nodes on the stack
+    private int depth = 0;
+
+
+
+
+    /**
+     * Constructor for a new iterator over the version rooted at root.
+     * @param root root node of the version to traverse
+     * @param min the minimum value that the iterator will return
+     * @param max the maximum value that the iterator will return
+     */
+    @SuppressWarnings("unchecked")
+    PersistentIterator(Node<R> root, Comparable<R> min, Comparable<R> max) {
+      this.max = max;
+      int size = root == null ? 0 : root.size;
+      //A Red-Black Tree of n values is at most 2 * log2(n + 1) high
+      this.stack = (Node<R>[]) new Node<?>[2 * (32 - Integer.numberOfLeadingZeros(size + 1)) + 1];
+
+      //Push the path to the first value that is not smaller than min
+      Node<R> node = root;
+      while (node != null) {
+        if (min == null || min.compareTo(node.data) <= 0) {
+          this.stack[this.depth++] = node;
+          node = node.left;
+        }
+        else {
+          node = node.right;
+        }
+      }
+    }
+
+
+
+
+    /**
+     * Returns true if the iterator has another value to return, and false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+      return this.depth > 0
+          && (this.max == null || this.max.compareTo(this.stack[this.depth - 1].data) >= 0);
+    }
+
+
+
+
+    /**
+     * Returns the next value of the iterator.
+     * @throws NoSuchElementException if the iterator has no more values to return
+     */
+    @Override
+    public R next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more elements in the iterator");
+      }
+      Node<R> current = this.stack[--this.depth];
+      for (Node<R> node = current.right; node != null; node = node.left) {
+        this.stack[this.depth++] = node;
+      }
+      return current.data;
+    }
+  }
+
+
+
+
+  ///////////////////Testing////////////////////////////////////////////
+
+  /**
+   * Checks the red property, the black height and the sizes of a version.
+   * @param node the root of the subtree to check
+   * @return the black height of the subtree, or -1 if any property is violated
+   */
+  private static int isValidHelper(Node<?> node) {
+    if (node == null) {
+      return 0;
+    }
+    if (node.isRed && (isRed(node.left) || isRed(node.right))) {
+      return -1;
+    }
+    int leftHeight = isValidHelper(node.left);
+    int rightHeight = isValidHelper(node.right);
+    if (leftHeight < 0 || leftHeight != rightHeight) {
+      return -1;
+    }
+    return leftHeight + (node.isRed ? 0 : 1);
+  }
+
+
+
+
+  /**
+   * Test for inserts keeping every Red-Black Tree property, and for earlier
+   * versions staying unchanged
+   */
+  @Test
+  public void testPersistent1() {
+    PersistentRedBlackTree<Integer> tree = new PersistentRedBlackTree<>();
+    List<PersistentRedBlackTree<Integer>> versions = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      versions.add(tree.snapshot());
+      tree.insert((i * 37) % 101);
+      Assertions.assertTrue(isValidHelper(tree.root) >= 0);
+      Assertions.assertFalse(tree.root.isRed);
+    }
+
+    //Every snapshot still holds exactly the values inserted before it was taken
+    for (int i = 0; i < versions.size(); i++) {
+      Assertions.assertEquals(i, versions.get(i).size());
+      int count = 0;
+      int previous = Integer.MIN_VALUE;
+      for (Integer value : versions.get(i)) {
+        Assertions.assertTrue(previous <= value);
+        previous = value;
+        count++;
+      }
+      Assertions.assertEquals(i, count);
+    }
+
+    //inserted never changes the version it is called on
+    PersistentRedBlackTree<Integer> older = tree.snapshot();
+    PersistentRedBlackTree<Integer> newer = older.inserted(1000);
+    Assertions.assertFalse(older.contains(1000));
+    Assertions.assertTrue(newer.contains(1000));
+    Assertions.assertEquals(older.size() + 1, newer.size());
+  }
+
+
+
+
+  /**
+   * Test for range iterators, and for readers iterating while another
+   * thread keeps inserting
+   */
+  @Test
+  public void testPersistent2() throws InterruptedException {
+    PersistentRedBlackTree<String> small = new PersistentRedBlackTree<>();
+    for (String value : new String[] {"a", "m", "g", "z", "t", "k", "m"}) {
+      small.insert(value);
+    }
+    String expected = "";
+    Iterator<String> iterator = small.iterator("k", "t");
+    while (iterator.hasNext()) {
+      expected += iterator.next();
+    }
+    Assertions.assertEquals("kmmt", expected);
+
+    //A writer keeps inserting while the main thread iterates snapshots
+    PersistentRedBlackTree<Integer> tree = new PersistentRedBlackTree<>();
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < 20000; i++) {
+        tree.insert(i);
+      }
+    });
+    writer.start();
+    while (writer.isAlive()) {
+      PersistentRedBlackTree<Integer> snapshot = tree.snapshot();
+      int count = 0;
+      for (Integer value : snapshot) {
+        Assertions.assertEquals(count, value);
+        count++;
+      }
+      Assertions.assertEquals(snapshot.size(), count);
+    }
+    writer.join();
+    Assertions.assertEquals(20000, tree.size());
+  }
+
+}
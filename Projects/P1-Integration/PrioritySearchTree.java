@@ -0,0 +1,221 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * This is a priority search tree, which answers three-sided range queries: find every item
+ * whose x is between min and max and whose y is below a bound (e.g. every song with a
+ * danceability in a range and a bpm below a threshold). It is a binary search tree on x and a
+ * min-heap on y at the same time: each node holds the item with the smallest y of its subtree,
+ * and the other items of the subtree are split by x between its two children.
+ *
+ * A query stops at every node whose y is not below the bound, since no item beneath it can
+ * match, so it visits the matching items plus two root-to-leaf paths along the ends of the
+ * x range: O(log n + k) for k matches, instead of every item in the x range.
+ *
+ * The tree is static: it is built from all items in O(n log n) time, and rebuilt on the next
+ * query after items are added. This suits data that is loaded in batches and queried often.
+ */
+public class PrioritySearchTree<T> {
+
+  //The attributes the items are searched by
+  private final ToIntFunction<T> x;
+  private final ToIntFunction<T> y;
+  //Every item, in the order it was added
+  private final List<T> items = new ArrayList<>();
+  //Whether items were added since the nodes were built
+  private boolean stale = false;
+
+  //The nodes, in arrays indexed by node: the x and y of the item of each node, the position of
+  //that item in items, the largest x in its left subtree, and its children (-1 for none).
+  //Node 0 is the root
+  private int[] xs = new int[0];
+  private int[] ys = new int[0];
+  private int[] seqs = new int[0];
+  private int[] splits = new int[0];
+  private int[] lefts = new int[0];
+  private int[] rights = new int[0];
+  private int nodeCount = 0;
+
+
+
+
+  /**
+   * Creates an empty priority search tree.
+   * @param x returns the attribute that queries select a range of, e.g. danceability
+   * @param y returns the attribute that queries bound from above, e.g. bpm
+   */
+  public PrioritySearchTree(ToIntFunction<T> x, ToIntFunction<T> y) {
+    this.x = x;
+    this.y = y;
+  }
+
+
+
+
+  /**
+   * Adds an item. The nodes are rebuilt on the next query.
+   * @param item the item to add
+   * @throws NullPointerException if item is null
+   */
+  public void add(T item) {
+    if (item == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    this.items.add(item);
+    this.stale = true;
+  }
+
+
+
+
+  /**
+   * Adds every item of a collection, in order. The nodes are rebuilt on the next query.
+   * @param items the items to add
+   * @throws NullPointerException if items or any of its items is null
+   */
+  public void addAll(Collection<? extends T> items) {
+    for (T item : items) {
+      add(item);
+    }
+  }
+
+
+
+
+  /**
+   * @return the number of items in the tree
+   */
+  public int size() {
+    return this.items.size();
+  }
+
+
+
+
+  /**
+   * Finds every item whose x is between min and max (including both) and whose y is below
+   * the provided bound. The items are ordered by x, and of several items with the same x, the
+   * one added last comes first (like the songs of an IterableRedBlackTree that are equal).
+   * @param min the minimum x, or null for no minimum
+   * @param max the maximum x, or null for no maximum
+   * @param below the bound that the y of every item must be below
+   * @return the matching items, in order
+   */
+  public List<T> query(Integer min, Integer max, int below) {
+    if (this.stale) {
+      build();
+    }
+    int low = min == null ? Integer.MIN_VALUE : min;
+    int high = max == null ? Integer.MAX_VALUE : max;
+
+    //Walk the tree with a stack of nodes, never below a node whose y is too large
+    int[] stack = new int[64];
+    int top = 0;
+    long[] found = new long[16];
+    int count = 0;
+    if (this.nodeCount > 0) {
+      stack[top++] = 0;
+    }
+    while (top > 0) {
+      int node = stack[--top];
+      if (this.ys[node] >= below) {
+        continue;
+      }
+      if (this.xs[node] >= low && this.xs[node] <= high) {
+        if (count == found.length) {
+          found = Arrays.copyOf(found, 2 * count);
+        }
+        //Order by x, then by position in items from last to first
+        found[count++] = ((long) this.xs[node] << 32) | (Integer.MAX_VALUE - this.seqs[node]);
+      }
+      if (top + 2 > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length);
+      }
+      if (this.rights[node] != -1 && high >= this.splits[node]) {
+        stack[top++] = this.rights[node];
+      }
+      if (this.lefts[node] != -1 && low <= this.splits[node]) {
+        stack[top++] = this.lefts[node];
+      }
+    }
+
+    Arrays.sort(found, 0, count);
+    List<T> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(this.items.get(Integer.MAX_VALUE - (int) found[i]));
+    }
+    return result;
+  }
+
+
+
+
+  /**
+   * Builds the nodes from every item.
+   */
+  private void build() {
+    int n = this.items.size();
+    int[] itemXs = new int[n];
+    int[] itemYs = new int[n];
+    long[] byX = new long[n];
+    for (int i = 0; i < n; i++) {
+      itemXs[i] = this.x.applyAsInt(this.items.get(i));
+      itemYs[i] = this.y.applyAsInt(this.items.get(i));
+      byX[i] = ((long) itemXs[i] << 32) | i;
+    }
+    Arrays.sort(byX);
+    int[] sorted = new int[n];
+    for (int i = 0; i < n; i++) {
+      sorted[i] = (int) byX[i];
+    }
+
+    this.xs = new int[n];
+    this.ys = new int[n];
+    this.seqs = new int[n];
+    this.splits = new int[n];
+    this.lefts = new int[n];
+    this.rights = new int[n];
+    this.nodeCount = 0;
+    build(sorted, 0, n, itemXs, itemYs);
+    this.stale = false;
+  }
+
+
+
+
+  /**
+   * Builds the subtree of the items at positions from (inclusive) to to (exclusive) of sorted,
+   * which holds positions in items ordered by x. The item with the smallest y becomes the root
+   * of the subtree and is removed from sorted; the first half of the others, by x, goes to the
+   * left subtree and the second half to the right one.
+   * @return the root node of the subtree, or -1 if it is empty
+   */
+  private int build(int[] sorted, int from, int to, int[] itemXs, int[] itemYs) {
+    if (from >= to) {
+      return -1;
+    }
+    int smallest = from;
+    for (int i = from + 1; i < to; i++) {
+      if (itemYs[sorted[i]] < itemYs[sorted[smallest]]) {
+        smallest = i;
+      }
+    }
+    int seq = sorted[smallest];
+    System.arraycopy(sorted, smallest + 1, sorted, smallest, to - smallest - 1);
+    to--;
+
+    int node = this.nodeCount++;
+    this.xs[node] = itemXs[seq];
+    this.ys[node] = itemYs[seq];
+    this.seqs[node] = seq;
+    int middle = (from + to) >>> 1;
+    this.splits[node] = middle > from ? itemXs[sorted[middle - 1]] : Integer.MIN_VALUE;
+    this.lefts[node] = build(sorted, from, middle, itemXs, itemYs);
+    this.rights[node] = build(sorted, middle, to, itemXs, itemYs);
+    return node;
+  }
+}
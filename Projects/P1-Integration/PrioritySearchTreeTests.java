@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A class for testing the methods of the PrioritySearchTree class. The tests
+ * live here since the tree itself has no constructor without arguments.
+ */
+public class PrioritySearchTreeTests {
+
+    /**
+     * Tests a few queries on a small tree, including the order of items with
+     * the same x and queries after more items were added.
+     */
+    @Test
+    public void prioritySearchTest1() {
+        // Items are {x, y, id}
+        PrioritySearchTree<int[]> tree = new PrioritySearchTree<>(item -> item[0], item -> item[1]);
+        Assertions.assertEquals(List.of(), tree.query(null, null, 100));
+        tree.add(new int[] {5, 10, 0});
+        tree.add(new int[] {1, 50, 1});
+        tree.add(new int[] {5, 20, 2});
+        tree.add(new int[] {9, 5, 3});
+        tree.add(new int[] {3, 30, 4});
+        Assertions.assertEquals(5, tree.size());
+
+        Assertions.assertEquals(List.of(4, 2, 0), ids(tree.query(2, 8, 31)));
+        Assertions.assertEquals(List.of(1, 4, 2, 0, 3), ids(tree.query(null, null, 51)));
+        Assertions.assertEquals(List.of(3), ids(tree.query(6, null, 10)));
+        Assertions.assertEquals(List.of(), ids(tree.query(6, 8, 100)));
+        Assertions.assertEquals(List.of(), ids(tree.query(null, null, Integer.MIN_VALUE)));
+
+        tree.addAll(List.of(new int[] {5, 1, 5}, new int[] {-4, 1, 6}));
+        Assertions.assertEquals(List.of(6, 5, 0), ids(tree.query(null, 5, 15)));
+        Assertions.assertThrows(NullPointerException.class, () -> tree.add(null));
+    }
+
+    /**
+     * Tests random queries against filtering every item, with few distinct x
+     * values like the danceability of songs.
+     */
+    @Test
+    public void prioritySearchTest2() {
+        Random random = new Random(25);
+        PrioritySearchTree<int[]> tree = new PrioritySearchTree<>(item -> item[0], item -> item[1]);
+        List<int[]> items = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            int[] item = {random.nextInt(101), 50 + random.nextInt(160), i};
+            items.add(item);
+            tree.add(item);
+        }
+        for (int query = 0; query < 200; query++) {
+            Integer min = query % 10 == 0 ? null : random.nextInt(101);
+            Integer max = query % 7 == 0 ? null : random.nextInt(101);
+            int below = 50 + random.nextInt(170);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int x = min == null ? 0 : min; x <= (max == null ? 100 : max); x++) {
+                for (int i = items.size() - 1; i >= 0; i--) {
+                    if (items.get(i)[0] == x && items.get(i)[1] < below) {
+                        expected.add(i);
+                    }
+                }
+            }
+            Assertions.assertEquals(expected, ids(tree.query(min, max, below)));
+        }
+    }
+
+    /**
+     * Private helper method that returns the ids of the provided items.
+     */
+    private static List<Integer> ids(List<int[]> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (int[] item : items) {
+            ids.add(item[2]);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A cache for the song title lists that Backend returns, keyed by the kind
+ * of query and its danceability range and speed threshold.
+ *
+ * The cache holds at most an estimated number of bytes of results, and
+ * evicts the least recently used results first when it would hold more.
+ * Every lookup passes the current version of the data; when the version
+ * differs from that of the cached results (e.g. because readData loaded
+ * more songs), every cached result is dropped.
+ */
+public class QueryCache {
+
+    // Budget used by the constructor without arguments: 16 MB
+    private static final long DEFAULT_BUDGET = 1 << 24;
+    // Estimated bytes of one entry without its titles: the key, the map
+    // entry and the list objects
+    private static final long ENTRY_BYTES = 160;
+    // Estimated bytes per title: the reference in the list (the titles
+    // themselves belong to the songs)
+    private static final long TITLE_BYTES = 8;
+
+    /**
+     * The kinds of queries whose results are cached.
+     */
+    public enum Kind {
+        TITLES, // getRange and filterSongs
+        FIVE_MOST // fiveMost
+    }
+
+    /**
+     * The key of a cached result.
+     */
+    private static final class Key {
+        private final Kind kind;
+        private final Integer low;
+        private final Integer high;
+        private final Integer threshold;
+
+        private Key(Kind kind, Integer low, Integer high, Integer threshold) {
+            this.kind = kind;
+            this.low = low;
+            this.high = high;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return kind == key.kind && Objects.equals(low, key.low)
+                && Objects.equals(high, key.high) && Objects.equals(threshold, key.threshold);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, low, high, threshold);
+        }
+    }
+
+    private final long budget;
+    // The cached results, from least to most recently used
+    private final LinkedHashMap<Key, List<String>> results =
+        new LinkedHashMap<Key, List<String>>(16, 0.75f, true);
+    private long bytes = 0;
+    private long version = 0;
+
+    // counters
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates an empty cache with a budget of 16 MB.
+     */
+    public QueryCache() {
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * Creates an empty cache.
+     * @param budget is the estimated number of bytes the cached results may
+     *     take, 0 to cache nothing
+     * @throws IllegalArgumentException if budget is negative
+     */
+    public QueryCache(long budget) throws IllegalArgumentException {
+        if (budget < 0) throw new IllegalArgumentException("Budget must not be negative!");
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the cached result of a query, or runs the query and caches its
+     * result if there is none.
+     * @param version is the current version of the data
+     * @param kind is the kind of the query
+     * @param low is the minimum danceability, or null
+     * @param high is the maximum danceability, or null
+     * @param threshold is the speed threshold, or null
+     * @param query computes the result when it is not cached
+     * @return the result, which must not be modified
+     */
+    public List<String> get(long version, Kind kind, Integer low, Integer high,
+                            Integer threshold, Supplier<List<String>> query) {
+        if (version != this.version) {
+            clear();
+            this.version = version;
+        }
+        Key key = new Key(kind, low, high, threshold);
+        List<String> result = results.get(key);
+        if (result != null) {
+            hits++;
+            return result;
+        }
+        misses++;
+        result = Collections.unmodifiableList(query.get());
+        long size = bytesOf(result);
+        if (size > budget) return result; // would evict everything else and itself
+
+        results.put(key, result);
+        bytes += size;
+        Iterator<List<String>> eldest = results.values().iterator();
+        while (bytes > budget) {
+            bytes -= bytesOf(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+        return result;
+    }
+
+    /**
+     * Private helper method to estimate the bytes a result takes.
+     */
+    private static long bytesOf(List<String> result) {
+        return ENTRY_BYTES + TITLE_BYTES * result.size();
+    }
+
+    /**
+     * Drops every cached result.  The counters are kept.
+     */
+    public void clear() {
+        results.clear();
+        bytes = 0;
+    }
+
+    // accessors
+
+    public long getHits() { return hits; } // lookups answered from the cache
+    public long getMisses() { return misses; } // lookups that ran their query
+    public long getEvictions() { return evictions; } // results dropped to stay in budget
+    public int getEntries() { return results.size(); } // results cached now
+    public long getBytes() { return bytes; } // estimated bytes of those results
+
+    /**
+     * @return a one line summary of the counters
+     */
+    @Override
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " evictions=" + evictions
+            + " entries=" + results.size() + " bytes=" + bytes;
+    }
+
+    ///////////////////Testing////////////////////////////////////////////
+
+    /**
+     * Test for hits, misses and invalidation by a new data version
+     */
+    @Test
+    public void testCache1() {
+        QueryCache cache = new QueryCache();
+        List<Integer> runs = new ArrayList<>();
+        Supplier<List<String>> query = () -> {
+            runs.add(1);
+            return new ArrayList<>(List.of("a", "b"));
+        };
+
+        Assertions.assertEquals(List.of("a", "b"), cache.get(1, Kind.TITLES, 10, 20, null, query));
+        cache.get(1, Kind.TITLES, 10, 20, null, query);
+        cache.get(1, Kind.FIVE_MOST, 10, 20, null, query);
+        cache.get(1, Kind.TITLES, 10, null, null, query);
+        cache.get(1, Kind.TITLES, 10, 20, null, query);
+        Assertions.assertEquals(2, cache.getHits());
+        Assertions.assertEquals(3, cache.getMisses());
+        Assertions.assertEquals(3, runs.size());
+        Assertions.assertThrows(UnsupportedOperationException.class,
+            () -> cache.get(1, Kind.TITLES, 10, 20, null, query).add("c"));
+
+        cache.get(2, Kind.TITLES, 10, 20, null, query);
+        Assertions.assertEquals(4, runs.size());
+        Assertions.assertEquals(1, cache.getEntries());
+    }
+
+    /**
+     * Test for the eviction of the least recently used results
+     */
+    @Test
+    public void testCache2() {
+        // Room for two results of 10 titles
+        QueryCache cache = new QueryCache(2 * (ENTRY_BYTES + 10 * TITLE_BYTES));
+        Supplier<List<String>> ten = () -> Collections.nCopies(10, "x");
+        cache.get(0, Kind.TITLES, 1, null, null, ten);
+        cache.get(0, Kind.TITLES, 2, null, null, ten);
+        cache.get(0, Kind.TITLES, 1, null, null, ten); // 1 is now used more recently than 2
+        cache.get(0, Kind.TITLES, 3, null, null, ten); // evicts 2
+        Assertions.assertEquals(1, cache.getEvictions());
+        cache.get(0, Kind.TITLES, 1, null, null, ten);
+        cache.get(0, Kind.TITLES, 3, null, null, ten);
+        Assertions.assertEquals(3, cache.getHits());
+        cache.get(0, Kind.TITLES, 2, null, null, ten);
+        Assertions.assertEquals(4, cache.getMisses());
+
+        // A result larger than the whole budget is returned but not cached
+        cache.get(0, Kind.TITLES, 4, null, null, () -> Collections.nCopies(1000, "x"));
+        Assertions.assertEquals(2, cache.getEntries());
+        Assertions.assertTrue(cache.getBytes() <= 2 * (ENTRY_BYTES + 10 * TITLE_BYTES));
+    }
+}
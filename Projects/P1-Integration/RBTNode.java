@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 /**
  * This class represents a node in a RedBlackTree and inherits from BinaryTreeNode.
  */
@@ -6,6 +8,12 @@ public class RBTNode<T> extends BinaryTreeNode<T> {
     // store whether this is a red or black node
     protected boolean isRed = true;
 
+    // the values that compare equal to data and share this node in a multiset tree, in
+    // the order they were inserted (bucket[0] is data), or null while data is the only one
+    protected Object[] bucket = null;
+    // number of values stored in this node
+    protected int count = 1;
+
     /**
      * Constructor that creates a new node with the value data.
      * Both parent and child references of the new node are initialized to null.
@@ -40,6 +48,71 @@ public class RBTNode<T> extends BinaryTreeNode<T> {
         return (RBTNode<T>)this.up;
     }
 
+    /**
+     * @return the number of values stored in this node
+     */
+    @Override
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns one of the values stored in this node. Like separate nodes for equal
+     * values, the values of a bucket are sorted with the latest inserted first.
+     * @param index the position of the value in that order
+     * @return the value at that position
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getData(int index) {
+        return this.bucket == null ? this.data : (T) this.bucket[this.count - 1 - index];
+    }
+
+    /**
+     * Adds a value that compares equal to the data of this node to its bucket.
+     * The subtree sizes of this node and its ancestors are not changed.
+     * @param value the value to add
+     */
+    public void addToBucket(T value) {
+        if (this.bucket == null) {
+            this.bucket = new Object[4];
+            this.bucket[0] = this.data;
+        }
+        else if (this.count == this.bucket.length) {
+            this.bucket = Arrays.copyOf(this.bucket, this.count * 2);
+        }
+        this.bucket[this.count++] = value;
+    }
+
+    /**
+     * Removes one value from the bucket of this node, which must hold more than one
+     * value. The other values keep the order they were inserted in, and the subtree
+     * sizes are not changed.
+     * @param index the position of the value in the order of getData(index), so 0
+     *     removes the latest inserted value
+     */
+    @SuppressWarnings("unchecked")
+    public void removeFromBucket(int index) {
+        int position = this.count - 1 - index;
+        System.arraycopy(this.bucket, position + 1, this.bucket, position, this.count - position - 1);
+        this.bucket[--this.count] = null;
+        this.data = (T) this.bucket[0];
+        if (this.count == 1) {
+            this.bucket = null;
+        }
+    }
+
+    /**
+     * Takes over all values (data and bucket) of another node, replacing the
+     * values of this node.
+     * @param other the node whose values are copied
+     */
+    public void takeValuesOf(RBTNode<T> other) {
+        this.data = other.data;
+        this.bucket = other.bucket;
+        this.count = other.count;
+    }
+
     /**
      * Returns a boolean that indicates if this is a red or black node.
      * @return true if the node is red, false if it is black
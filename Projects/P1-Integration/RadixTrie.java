@@ -0,0 +1,286 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * This is a compressed (radix) trie that maps string keys to values, and finds every value
+ * whose key starts with a given prefix. Each edge is labelled with a whole run of characters
+ * instead of a single one, so a chain of nodes with one child each is stored as one node, and
+ * the number of nodes is at most twice the number of distinct keys.
+ *
+ * A prefix search follows at most one edge per character of the prefix, and then collects
+ * the subtree below it. Since every node of that subtree either holds a value or branches,
+ * collecting it takes time proportional to the number of results. Values are returned in
+ * the order of their keys (by char), and values with equal keys in insertion order.
+ */
+public class RadixTrie<V> {
+
+  //The root node, whose label is always empty
+  private Node root = new Node("");
+  //Number of values stored in the trie
+  private int size = 0;
+
+
+
+
+  /**
+   * A node of the trie. Its children are kept in arrays sorted by the first char of their
+   * labels, so a child is found by binary search and no per-child objects are needed.
+   */
+  private static final class Node {
+    //The characters on the edge from the parent to this node
+    String label;
+    //The first char of each child's label, sorted, followed by unused slots
+    char[] firsts = null;
+    Node[] children = null;
+    int childCount = 0;
+    //The values whose key ends at this node, followed by unused slots
+    Object[] values = null;
+    int valueCount = 0;
+
+    Node(String label) {
+      this.label = label;
+    }
+
+    /**
+     * @return the position of the child whose label starts with c, or -(insertion point) - 1
+     */
+    int find(char c) {
+      return this.firsts == null ? -1 : Arrays.binarySearch(this.firsts, 0, this.childCount, c);
+    }
+
+    /**
+     * Adds a child at the provided position, growing the arrays if they are full.
+     */
+    void addChild(int position, Node child) {
+      if (this.firsts == null) {
+        this.firsts = new char[2];
+        this.children = new Node[2];
+      }
+      else if (this.childCount == this.firsts.length) {
+        this.firsts = Arrays.copyOf(this.firsts, this.childCount * 2);
+        this.children = Arrays.copyOf(this.children, this.childCount * 2);
+      }
+      System.arraycopy(this.firsts, position, this.firsts, position + 1,
+          this.childCount - position);
+      System.arraycopy(this.children, position, this.children, position + 1,
+          this.childCount - position);
+      this.firsts[position] = child.label.charAt(0);
+      this.children[position] = child;
+      this.childCount++;
+    }
+
+    /**
+     * Adds a value whose key ends at this node, growing the array if it is full.
+     */
+    void addValue(Object value) {
+      if (this.values == null) {
+        this.values = new Object[1];
+      }
+      else if (this.valueCount == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.valueCount * 2);
+      }
+      this.values[this.valueCount++] = value;
+    }
+  }
+
+
+
+
+  /**
+   * Stores value under key. A key may hold any number of values.
+   * @param key the key to store value under
+   * @param value the value to store
+   * @throws NullPointerException if key or value is null
+   */
+  public void insert(String key, V value) throws NullPointerException {
+    if (key == null) {
+      throw new NullPointerException("Key is null, not allowed!");
+    }
+    if (value == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+
+    Node node = this.root;
+    int i = 0;
+    while (i < key.length()) {
+      int position = node.find(key.charAt(i));
+      //No child shares the next character: the rest of the key becomes a new leaf
+      if (position < 0) {
+        Node leaf = new Node(key.substring(i));
+        leaf.addValue(value);
+        node.addChild(-position - 1, leaf);
+        this.size++;
+        return;
+      }
+      Node child = node.children[position];
+      String label = child.label;
+      int common = 1;
+      while (common < label.length() && i + common < key.length()
+          && label.charAt(common) == key.charAt(i + common)) {
+        common++;
+      }
+      //The key leaves the edge part way: split the edge at that point
+      if (common < label.length()) {
+        Node middle = new Node(label.substring(0, common));
+        child.label = label.substring(common);
+        middle.addChild(0, child);
+        node.children[position] = middle;
+        child = middle;
+      }
+      node = child;
+      i += common;
+    }
+    node.addValue(value);
+    this.size++;
+  }
+
+
+
+
+  /**
+   * Finds every value whose key starts with prefix.
+   * @param prefix the start of the keys to find, the empty string finds every value
+   * @return the values in the order of their keys, or an empty list if there are none
+   * @throws NullPointerException if prefix is null
+   */
+  public List<V> withPrefix(String prefix) throws NullPointerException {
+    if (prefix == null) {
+      throw new NullPointerException("Prefix is null, not allowed!");
+    }
+
+    List<V> found = new ArrayList<>();
+    Node node = this.root;
+    int i = 0;
+    while (i < prefix.length()) {
+      int position = node.find(prefix.charAt(i));
+      if (position < 0) {
+        return found;
+      }
+      node = node.children[position];
+      //The prefix may end part way along the edge
+      int length = Math.min(node.label.length(), prefix.length() - i);
+      if (!node.label.regionMatches(0, prefix, i, length)) {
+        return found;
+      }
+      i += length;
+    }
+    collectHelper(node, found);
+    return found;
+  }
+
+
+
+
+  /**
+   * The helper method of withPrefix, adds the values of the subtree rooted at node
+   * in the order of their keys.
+   * @param node the root of the subtree
+   * @param found the list the values are added to
+   */
+  @SuppressWarnings("unchecked")
+  private void collectHelper(Node node, List<V> found) {
+    for (int i = 0; i < node.valueCount; i++) {
+      found.add((V) node.values[i]);
+    }
+    for (int i = 0; i < node.childCount; i++) {
+      collectHelper(node.children[i], found);
+    }
+  }
+
+
+
+
+  /**
+   * @return the number of values stored in the trie
+   */
+  public int size() {
+    return this.size;
+  }
+
+
+
+
+  /**
+   * @return true if the trie holds no values, false otherwise
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+
+
+
+  /**
+   * Removes every key and value from the trie.
+   */
+  public void clear() {
+    this.root = new Node("");
+    this.size = 0;
+  }
+
+
+
+
+  ///////////////////Testing////////////////////////////////////////////
+
+  /**
+   * Test for prefixes that end on a node, part way along an edge, and past a key
+   */
+  @Test
+  public void testTrie1() {
+    RadixTrie<Integer> trie = new RadixTrie<>();
+    String[] keys = {"romance", "romantic", "rome", "rubber", "ruby", "rub", "r", "rome"};
+    for (int i = 0; i < keys.length; i++) {
+      trie.insert(keys[i], i);
+    }
+    Assertions.assertEquals(8, trie.size());
+    Assertions.assertEquals(List.of(6, 0, 1, 2, 7, 5, 3, 4), trie.withPrefix(""));
+    Assertions.assertEquals(List.of(0, 1, 2, 7), trie.withPrefix("rom"));
+    Assertions.assertEquals(List.of(0, 1), trie.withPrefix("roma"));
+    Assertions.assertEquals(List.of(2, 7), trie.withPrefix("rome"));
+    Assertions.assertEquals(List.of(5, 3, 4), trie.withPrefix("rub"));
+    Assertions.assertEquals(List.of(), trie.withPrefix("romeo"));
+    Assertions.assertEquals(List.of(), trie.withPrefix("rx"));
+    Assertions.assertEquals(List.of(), trie.withPrefix("s"));
+    trie.clear();
+    Assertions.assertTrue(trie.isEmpty());
+    Assertions.assertEquals(List.of(), trie.withPrefix(""));
+  }
+
+
+
+
+  /**
+   * Test against a scan of every key, with many random keys over a small alphabet
+   */
+  @Test
+  public void testTrie2() {
+    Random random = new Random(400);
+    RadixTrie<String> trie = new RadixTrie<>();
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      StringBuilder key = new StringBuilder();
+      for (int length = random.nextInt(8); length > 0; length--) {
+        key.append((char) ('a' + random.nextInt(3)));
+      }
+      keys.add(key.toString());
+      trie.insert(key.toString(), key.toString());
+    }
+    for (String prefix : List.of("", "a", "ab", "cab", "bbbb", "abcabca")) {
+      List<String> expected = new ArrayList<>();
+      for (String key : keys) {
+        if (key.startsWith(prefix)) {
+          expected.add(key);
+        }
+      }
+      expected.sort(null);
+      Assertions.assertEquals(expected, trie.withPrefix(prefix));
+    }
+  }
+
+}
@@ -1,12 +1,54 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 /**
  * This is the RedBlack Tree class based on the previous work
+ *
+ * In multiset mode, all values that compare equal share a single node and are kept in that
+ * node's bucket, so the number of nodes (and the height) depends on the number of distinct
+ * values only. This suits data with few distinct keys, like danceability from 0 to 100.
  */
 public class RedBlackTree <T extends Comparable<T>> extends BSTRotation<T> {
   
-  //Default constructor, no need to add one
+  //Whether equal values are kept together in one node
+  private final boolean multiset;
+  
+  
+  
+  
+  /**
+   * Creates an empty tree that stores every value in a node of its own.
+   */
+  public RedBlackTree() {
+    this(false);
+  }
+  
+  
+  
+  
+  /**
+   * Creates an empty tree.
+   * @param multiset true to keep equal values together in one node, false to store
+   *     every value in a node of its own
+   */
+  public RedBlackTree(boolean multiset) {
+    this.multiset = multiset;
+  }
+  
+  
+  
+  
+  /**
+   * @return true if equal values are kept together in one node
+   */
+  public boolean isMultiset() {
+    return this.multiset;
+  }
   
   
   
@@ -32,16 +74,16 @@ public class RedBlackTree <T extends Comparable<T>> extends BSTRotation<T> {
     // Check for the same branch with grandfather-father
     if (childToCheck == newNode) {
       this.rotate(father, grandfather);
-      father.flipColor();
-      grandfather.flipColor();
+      this.recolor(father);
+      this.recolor(grandfather);
     }
         
     // Not the same branch with grandfather-father
     else {
       this.rotate(newNode, father);
       this.rotate(newNode, grandfather);
-      newNode.flipColor();
-      grandfather.flipColor();
+      this.recolor(newNode);
+      this.recolor(grandfather);
     }
   }
   
@@ -58,6 +100,22 @@ public class RedBlackTree <T extends Comparable<T>> extends BSTRotation<T> {
    * @param newNode a newly inserted red node, or a node turned red by previous repair
    */
   protected void ensureRedProperty(RBTNode<T> newNode) {
+    this.ensureRedProperty(newNode, 1);
+  }
+  
+  
+  
+  
+  /**
+   * The recursive part of ensureRedProperty, which also knows how deeply it is nested.
+   * @param newNode a newly inserted red node, or a node turned red by previous repair
+   * @param depth the number of nested calls so far, including this one
+   */
+  private void ensureRedProperty(RBTNode<T> newNode, int depth) {
+    if (TreeStats.ENABLED) {
+      this.statRepairCalls++;
+      this.statMaxRepairDepth = Math.max(this.statMaxRepairDepth, depth);
+    }
     
     //No-need-for-repair case:
     if (!newNode.parent().isRed) {
@@ -91,17 +149,17 @@ public class RedBlackTree <T extends Comparable<T>> extends BSTRotation<T> {
     
     //2. The aunt is Red:
     else {
-      grandfather.flipColor();
-      grandfather.childLeft().flipColor();
-      grandfather.childRight().flipColor();
+      this.recolor(grandfather);
+      this.recolor(grandfather.childLeft());
+      this.recolor(grandfather.childRight());
       
       //Check if the grandfather is the Root node:
       if (grandfather == this.root && grandfather.isRed) {
-        grandfather.flipColor();
+        this.recolor(grandfather);
       }
       //If it is non-root, recursively check for properties:
       else {
-        this.ensureRedProperty(grandfather);
+        this.ensureRedProperty(grandfather, depth + 1);
       }
     }
   }
@@ -123,6 +181,18 @@ public class RedBlackTree <T extends Comparable<T>> extends BSTRotation<T> {
       throw new NullPointerException("Data is null, not allowed!");
     }
     
+    //In multiset mode an equal value joins the bucket of the existing node
+    if (this.multiset) {
+      RBTNode<T> equal = this.findNode(data);
+      if (equal != null) {
+        equal.addToBucket(data);
+        for (BinaryTreeNode<T> node = equal; node != null; node = node.parent()) {
+          node.subtreeSize++;
+        }
+        return;
+      }
+    }
+    
     RBTNode<T> theNode = new RBTNode<T>(data);
     //If it is the root, then just set it:
     if (this.root == null) {
@@ -138,6 +208,483 @@ public class RedBlackTree <T extends Comparable<T>> extends BSTRotation<T> {
   
   
   
+  /**
+   * Inserts every value of data into the tree. The batch is sorted once and
+   * merged with the values already in the tree, and then the whole tree is
+   * rebuilt at once in linear time. Small batches going into a large tree are
+   * inserted one at a time instead, since that is cheaper than a rebuild.
+   * @param data the new values being inserted
+   * @throws NullPointerException if data or any of its values is null
+   */
+  @Override
+  public void insertAll(Collection<T> data) throws NullPointerException {
+    
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    for (T value : data) {
+      if (value == null) {
+        throw new NullPointerException("Data is null, not allowed!");
+      }
+    }
+    
+    int existing = this.size();
+    int total = existing + data.size();
+    //Each single insert costs about log(total) steps, a rebuild about total steps
+    if ((long) data.size() * (32 - Integer.numberOfLeadingZeros(total)) < total) {
+      for (T value : data) {
+        this.insert(value);
+      }
+      return;
+    }
+    
+    //Sort the batch once (already sorted input is detected in linear time).
+    //Repeated inserts iterate equal values latest first, so the stable sort
+    //runs on the reversed batch to keep that same order.
+    List<T> batch = new ArrayList<>(data);
+    Collections.reverse(batch);
+    batch.sort(null);
+    
+    List<T> merged = batch;
+    if (existing > 0) {
+      List<T> current = new ArrayList<>(existing);
+      inOrderHelper(this.root, current);
+      merged = new ArrayList<>(total);
+      int i = 0;
+      int j = 0;
+      while (i < current.size() || j < batch.size()) {
+        //New values go before existing equal ones, again like repeated inserts
+        if (j == batch.size() || (i < current.size()
+            && current.get(i).compareTo(batch.get(j)) < 0)) {
+          merged.add(current.get(i++));
+        }
+        else {
+          merged.add(batch.get(j++));
+        }
+      }
+    }
+    
+    this.root = buildBalanced(merged);
+  }
+  
+  
+  
+  
+  /**
+   * Appends the values of the provided subtree to out in sorted order.
+   * @param node the root of the subtree to collect
+   * @param out the list the values are appended to
+   */
+  private void inOrderHelper(BinaryTreeNode<T> node, List<T> out) {
+    while (node != null) {
+      inOrderHelper(node.childLeft(), out);
+      for (int i = 0; i < node.getCount(); i++) {
+        out.add(node.getData(i));
+      }
+      node = node.childRight();   //Loop on the right side to keep recursion shallow
+    }
+  }
+  
+  
+  
+  
+  /**
+   * Builds a perfectly balanced Red-Black Tree out of values that are already
+   * sorted, and returns its root. Every level of the built tree is full except
+   * possibly the deepest one, so coloring the nodes of that level red and every
+   * other node black satisfies both the red and the black height properties.
+   * In multiset mode every run of equal values becomes one node.
+   * @param sorted the values to build the tree from, in ascending order
+   * @return the root of the new tree, or null when sorted is empty
+   */
+  protected RBTNode<T> buildBalanced(List<T> sorted) {
+    //Node i holds the values from starts[i] up to (not including) starts[i + 1]
+    int n = sorted.size();
+    int[] starts = new int[n + 1];
+    int nodes = 0;
+    for (int i = 0; i < n; i++) {
+      if (i == 0 || !this.multiset || sorted.get(i - 1).compareTo(sorted.get(i)) != 0) {
+        starts[nodes++] = i;
+      }
+    }
+    starts[nodes] = n;
+    
+    //The deepest level is red only when it is not completely filled
+    int redDepth = Integer.bitCount(nodes + 1) == 1 ? -1
+        : 31 - Integer.numberOfLeadingZeros(nodes);
+    return buildHelper(sorted, starts, 0, nodes - 1, 0, redDepth);
+  }
+  
+  
+  
+  
+  /**
+   * The helper method of buildBalanced, builds the subtree of the nodes between
+   * the indices low and high (both inclusive) children first.
+   * @param sorted the values to build the tree from, in ascending order
+   * @param starts the index in sorted of the first value of each node
+   * @param low the index of the first node in this subtree
+   * @param high the index of the last node in this subtree
+   * @param depth the depth of this subtree's root within the whole tree
+   * @param redDepth the depth at which nodes are colored red, or -1 for none
+   * @return the root of the built subtree, or null if it has no values
+   */
+  private RBTNode<T> buildHelper(List<T> sorted, int[] starts, int low, int high,
+      int depth, int redDepth) {
+    if (low > high) {
+      return null;
+    }
+    int middle = (low + high) >>> 1;
+    //Buckets list their values oldest first, the reverse of the sorted order
+    int last = starts[middle + 1] - 1;
+    RBTNode<T> node = new RBTNode<>(sorted.get(last));
+    for (int i = last - 1; i >= starts[middle]; i--) {
+      node.addToBucket(sorted.get(i));
+    }
+    if (depth != redDepth) {
+      node.flipColor();
+    }
+    
+    RBTNode<T> left = buildHelper(sorted, starts, low, middle - 1, depth + 1, redDepth);
+    RBTNode<T> right = buildHelper(sorted, starts, middle + 1, high, depth + 1, redDepth);
+    node.setChildLeft(left);
+    node.setChildRight(right);
+    if (left != null) {
+      left.setParent(node);
+    }
+    if (right != null) {
+      right.setParent(node);
+    }
+    node.updateSubtreeSize();
+    return node;
+  }
+  
+  
+  
+  
+  /**
+   * Removes one occurrence of data from the tree, if it is stored in the tree.
+   * The tree is rebalanced afterwards so that it remains a valid Red-Black Tree.
+   * @param data the value to remove
+   * @return true if a value was removed, false if data was not found
+   * @throws NullPointerException if data argument is null
+   */
+  public boolean remove(Comparable<T> data) throws NullPointerException {
+    
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    
+    RBTNode<T> target = this.findNode(data);
+    if (target == null) {
+      return false;
+    }
+    
+    //A node with a bucket just gives up its latest value
+    this.removeAt(target, 0);
+    return true;
+  }
+  
+  
+  
+  
+  /**
+   * Removes the stored value that equals value (e.g. the very same song), where remove
+   * takes whichever value compares equal to its argument (e.g. any song with the same
+   * danceability). Values that compare equal are next to each other in order, so only
+   * they are checked, from the first of them on.
+   * @param value the value to remove
+   * @return true if a value was removed, false if no stored value equals value
+   * @throws NullPointerException if value argument is null
+   */
+  public boolean removeValue(T value) throws NullPointerException {
+    
+    //Check for null data case
+    if (value == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    
+    for (RBTNode<T> node = this.firstAtLeast(value); node != null; node = nextNode(node)) {
+      if (TreeStats.ENABLED) {
+        this.statComparisons++;
+      }
+      if (value.compareTo(node.getData()) != 0) {
+        return false;
+      }
+      for (int i = 0; i < node.getCount(); i++) {
+        if (value.equals(node.getData(i))) {
+          this.removeAt(node, i);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+  
+  
+  
+  
+  /**
+   * Removes one value of a node: from its bucket if it holds more than one value,
+   * otherwise the whole node.
+   * @param node the node holding the value
+   * @param index the position of the value in the order of node.getData(index)
+   */
+  private void removeAt(RBTNode<T> node, int index) {
+    if (node.getCount() > 1) {
+      node.removeFromBucket(index);
+      for (BinaryTreeNode<T> ancestor = node; ancestor != null; ancestor = ancestor.parent()) {
+        ancestor.subtreeSize--;
+      }
+    }
+    else {
+      this.removeNode(node);
+    }
+  }
+  
+  
+  
+  
+  /**
+   * Finds the in-order successor of a node: the leftmost node of its right subtree, or
+   * else the first ancestor that it is in the left subtree of.
+   * @param node the node to find the successor of
+   * @return the successor, or null if node holds the largest values
+   */
+  private static <T> RBTNode<T> nextNode(RBTNode<T> node) {
+    if (node.childRight() != null) {
+      node = node.childRight();
+      while (node.childLeft() != null) {
+        node = node.childLeft();
+      }
+      return node;
+    }
+    while (node.parent() != null && node.parent().childRight() == node) {
+      node = node.parent();
+    }
+    return node.parent();
+  }
+  
+  
+  
+  
+  /**
+   * Finds a node holding a value equal to data.
+   * @param data the value to search for
+   * @return the node found, or null if no value is equal to data
+   */
+  private RBTNode<T> findNode(Comparable<T> data) {
+    RBTNode<T> target = (RBTNode<T>) this.root;
+    while (target != null) {
+      int compareValue = data.compareTo(target.getData());
+      if (TreeStats.ENABLED) {
+        this.statComparisons++;
+      }
+      if (compareValue == 0) {
+        return target;
+      }
+      target = compareValue < 0 ? target.childLeft() : target.childRight();
+    }
+    return null;
+  }
+  
+  
+  
+  
+  /**
+   * Removes every value between min and max (including min and max themselves)
+   * from the tree. A null min or max means that end of the range is unbounded.
+   * @param min the minimum value to remove, or null for no minimum
+   * @param max the maximum value to remove, or null for no maximum
+   * @return the number of values removed
+   */
+  public int removeRange(Comparable<T> min, Comparable<T> max) {
+    int removed = 0;
+    RBTNode<T> next = this.firstAtLeast(min);
+    while (next != null && (max == null || max.compareTo(next.getData()) >= 0)) {
+      removed += next.getCount();
+      this.removeNode(next);
+      //Removing can move values between nodes, so search again from the root
+      next = this.firstAtLeast(min);
+    }
+    return removed;
+  }
+  
+  
+  
+  
+  /**
+   * Finds the node holding the smallest value that is not smaller than min.
+   * @param min the lower bound, or null to find the smallest value in the tree
+   * @return the node found, or null if every value is smaller than min
+   */
+  private RBTNode<T> firstAtLeast(Comparable<T> min) {
+    RBTNode<T> current = (RBTNode<T>) this.root;
+    RBTNode<T> found = null;
+    while (current != null) {
+      if (TreeStats.ENABLED && min != null) {
+        this.statComparisons++;
+      }
+      if (min == null || min.compareTo(current.getData()) <= 0) {
+        found = current;
+        current = current.childLeft();   //Maybe something smaller still qualifies
+      }
+      else {
+        current = current.childRight();
+      }
+    }
+    return found;
+  }
+  
+  
+  
+  
+  /**
+   * Unlinks the provided node from the tree. A node with two children takes over
+   * the values of its in-order successor, and the successor's node is unlinked instead,
+   * so the node that is actually spliced out always has at most one child.
+   * @param node the node whose values should be removed from the tree
+   */
+  private void removeNode(RBTNode<T> node) {
+    
+    //Two children: replace the value with the successor's and remove that node
+    if (node.childLeft() != null && node.childRight() != null) {
+      RBTNode<T> successor = node.childRight();
+      while (successor.childLeft() != null) {
+        successor = successor.childLeft();
+      }
+      node.takeValuesOf(successor);
+      node = successor;
+    }
+    
+    RBTNode<T> child = node.childLeft() != null ? node.childLeft() : node.childRight();
+    RBTNode<T> father = node.parent();
+    
+    //Splice the node out by linking its only child (or null) to its parent
+    if (child != null) {
+      child.setParent(father);
+    }
+    if (father == null) {
+      this.root = child;
+    }
+    else if (father.childLeft() == node) {
+      father.setChildLeft(child);
+    }
+    else {
+      father.setChildRight(child);
+    }
+    
+    //Every ancestor loses the node's values (and one of them may hold the
+    //successor's values now), so their sizes are recounted bottom up
+    for (BinaryTreeNode<T> ancestor = father; ancestor != null; ancestor = ancestor.parent()) {
+      ancestor.updateSubtreeSize();
+    }
+    
+    //Removing a red node never changes any black height
+    if (node.isRed()) {
+      return;
+    }
+    
+    //A red child can simply take over the removed node's black
+    if (child != null && child.isRed()) {
+      this.recolor(child);
+    }
+    else if (father != null) {
+      this.repairDoubleBlack(child, father);
+    }
+  }
+  
+  
+  
+  
+  /**
+   * Repairs a double black left behind by removing a black node. The double black
+   * node is passed together with its parent, since it might be null.
+   * @param node the double black node (possibly null)
+   * @param father the parent of the double black node
+   */
+  private void repairDoubleBlack(RBTNode<T> node, RBTNode<T> father) {
+    
+    while (node != this.root && isBlack(node)) {
+      boolean isLeftCase = father.childLeft() == node;
+      RBTNode<T> sibling = isLeftCase ? father.childRight() : father.childLeft();
+      
+      //1. The sibling is red: rotate it up so the new sibling is black
+      if (sibling.isRed()) {
+        this.rotate(sibling, father);
+        this.recolor(sibling);
+        this.recolor(father);
+        sibling = isLeftCase ? father.childRight() : father.childLeft();
+      }
+      
+      RBTNode<T> nearNephew = isLeftCase ? sibling.childLeft() : sibling.childRight();
+      RBTNode<T> farNephew = isLeftCase ? sibling.childRight() : sibling.childLeft();
+      
+      //2. Both nephews are black: push the extra black up to the parent
+      if (isBlack(nearNephew) && isBlack(farNephew)) {
+        this.recolor(sibling);
+        node = father;
+        father = node.parent();
+        continue;
+      }
+      
+      //3. Only the near nephew is red: rotate it up to make it the far one
+      if (isBlack(farNephew)) {
+        this.rotate(nearNephew, sibling);
+        this.recolor(nearNephew);
+        this.recolor(sibling);
+        farNephew = sibling;
+        sibling = nearNephew;
+      }
+      
+      //4. The far nephew is red: rotate the sibling up, which absorbs the double black
+      this.rotate(sibling, father);
+      if (sibling.isRed() != father.isRed()) {
+        this.recolor(sibling);
+      }
+      if (father.isRed()) {
+        this.recolor(father);
+      }
+      this.recolor(farNephew);
+      return;
+    }
+    
+    //A red node (or the root) just becomes black
+    if (node != null && node.isRed()) {
+      this.recolor(node);
+    }
+  }
+  
+  
+  
+  
+  /**
+   * Flips the color of a node while repairing the tree, counting it for stats().
+   * @param node the node to recolor
+   */
+  private void recolor(RBTNode<T> node) {
+    if (TreeStats.ENABLED) {
+      this.statRecolorings++;
+    }
+    node.flipColor();
+  }
+  
+  
+  
+  
+  /**
+   * @param node the node to check, may be null
+   * @return true if the node is black, where null leaves count as black
+   */
+  private static boolean isBlack(RBTNode<?> node) {
+    return node == null || !node.isRed();
+  }
+  
+  
+  
+  
   ///////////////////Testing////////////////////////////////////////////
   
   /**
@@ -318,6 +865,12 @@ public class RedBlackTree <T extends Comparable<T>> extends BSTRotation<T> {
     T.setChildRight(W);
     W.setParent(T);
     
+    //Manually linked nodes also need their subtree sizes (children first)
+    H.updateSubtreeSize();
+    F.updateSubtreeSize();
+    T.updateSubtreeSize();
+    M.updateSubtreeSize();
+    
     tree4.insert("L");
     
     //Please refer to the Q03 for picture, I feel so tired to manually use text
@@ -367,5 +920,317 @@ public class RedBlackTree <T extends Comparable<T>> extends BSTRotation<T> {
   }
   
   
+  
+  
+  /**
+   * This is the fifth tester method
+   * 
+   * Testing for removing single values: red leaves, black leaves that leave a
+   * double black behind, nodes with two children and values that are not present
+   */
+  @Test
+  public void RBTtest5() {
+    RedBlackTree<Integer> tree5 = new RedBlackTree<>();
+    for (int i = 1; i <= 10; i++) {
+      tree5.insert(i);
+    }
+    
+    //Values that are not present are not removed
+    Assertions.assertFalse(tree5.remove(11));
+    Assertions.assertEquals(10, tree5.size());
+    
+    //Remove in an order that hits the leaf, one-child and two-children cases
+    int[] order = {10, 4, 1, 7, 2, 9, 5, 3, 8, 6};
+    int remaining = 10;
+    for (int value : order) {
+      Assertions.assertTrue(tree5.remove(value));
+      remaining--;
+      Assertions.assertEquals(remaining, tree5.size());
+      Assertions.assertFalse(tree5.contains(value));
+      Assertions.assertTrue(tree5.isValidHelper((RBTNode<Integer>) tree5.root) >= 0);
+    }
+    Assertions.assertTrue(tree5.isEmpty());
+  }
+  
+  
+  
+  
+  /**
+   * This is the sixth tester method
+   * 
+   * Testing for removing ranges of values with duplicates, and random
+   * inserts/removes that must keep every Red-Black Tree property
+   */
+  @Test
+  public void RBTtest6() {
+    RedBlackTree<Integer> tree6 = new RedBlackTree<>();
+    for (int i = 0; i < 50; i++) {
+      tree6.insert(i % 10);
+    }
+    
+    //Each of 3, 4, 5 is stored five times
+    Assertions.assertEquals(15, tree6.removeRange(3, 5));
+    Assertions.assertEquals(35, tree6.size());
+    Assertions.assertFalse(tree6.contains(4));
+    Assertions.assertTrue(tree6.isValidHelper((RBTNode<Integer>) tree6.root) >= 0);
+    
+    //Unbounded ends
+    Assertions.assertEquals(10, tree6.removeRange(null, 1));
+    Assertions.assertEquals(10, tree6.removeRange(8, null));
+    Assertions.assertEquals(15, tree6.size());
+    Assertions.assertEquals(0, tree6.removeRange(20, 30));
+    
+    //Random operations against a simple counter
+    java.util.Random random = new java.util.Random(400);
+    int[] counts = new int[100];
+    RedBlackTree<Integer> tree7 = new RedBlackTree<>();
+    for (int i = 0; i < 5000; i++) {
+      int value = random.nextInt(100);
+      if (random.nextBoolean()) {
+        tree7.insert(value);
+        counts[value]++;
+      }
+      else {
+        Assertions.assertEquals(counts[value] > 0, tree7.remove(value));
+        counts[value] = Math.max(0, counts[value] - 1);
+      }
+    }
+    int total = 0;
+    for (int count : counts) {
+      total += count;
+    }
+    Assertions.assertEquals(total, tree7.size());
+    Assertions.assertTrue(tree7.isValidHelper((RBTNode<Integer>) tree7.root) >= 0);
+  }
+  
+  
+  
+  
+  /**
+   * This is the seventh tester method
+   * 
+   * Testing for bulk loading into an empty tree, into a non-empty tree, and
+   * with small batches that fall back to single inserts
+   */
+  @Test
+  public void RBTtest7() {
+    //Sizes 1..64 cover both full and partially filled last levels
+    for (int n = 1; n <= 64; n++) {
+      List<Integer> values = new ArrayList<>();
+      for (int i = n - 1; i >= 0; i--) {
+        values.add(i / 2);
+      }
+      RedBlackTree<Integer> tree = new RedBlackTree<>();
+      tree.insertAll(values);
+      Assertions.assertEquals(n, tree.size());
+      Assertions.assertFalse(((RBTNode<Integer>) tree.root).isRed());
+      Assertions.assertTrue(tree.isValidHelper((RBTNode<Integer>) tree.root) >= 0);
+    }
+    
+    //Merging a large batch with existing values
+    RedBlackTree<Integer> tree8 = new RedBlackTree<>();
+    tree8.insert(5);
+    tree8.insert(50);
+    List<Integer> batch = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      batch.add(i);
+    }
+    tree8.insertAll(batch);
+    Assertions.assertEquals(102, tree8.size());
+    Assertions.assertEquals(7, tree8.rank(6));
+    Assertions.assertTrue(tree8.isValidHelper((RBTNode<Integer>) tree8.root) >= 0);
+    
+    //A small batch is inserted one at a time, and still ends up valid
+    tree8.insertAll(List.of(1000, -1));
+    Assertions.assertEquals(104, tree8.size());
+    Assertions.assertEquals(-1, tree8.select(0));
+    Assertions.assertTrue(tree8.isValidHelper((RBTNode<Integer>) tree8.root) >= 0);
+    
+    //Null values are not allowed
+    List<Integer> withNull = new ArrayList<>(batch);
+    withNull.add(null);
+    Assertions.assertThrows(NullPointerException.class, () -> tree8.insertAll(withNull));
+  }
+  
+  
+  
+  
+  /**
+   * This is the eighth tester method
+   * 
+   * Testing for multiset mode: equal values share one node, while sizes,
+   * ranks, removal and bulk loading keep counting every value
+   */
+  @Test
+  public void RBTtest8() {
+    RedBlackTree<Integer> tree = new RedBlackTree<>(true);
+    for (int i = 0; i < 1000; i++) {
+      tree.insert(i % 10);
+    }
+    Assertions.assertEquals(1000, tree.size());
+    Assertions.assertEquals(10, countNodes(tree.root));
+    Assertions.assertEquals(300, tree.rank(3));
+    Assertions.assertEquals(3, tree.select(399));
+    Assertions.assertEquals(4, tree.select(400));
+    Assertions.assertEquals(200, tree.countInRange(4, 5));
+    Assertions.assertTrue(tree.isValidHelper((RBTNode<Integer>) tree.root) >= 0);
+    
+    //Removing a value shrinks its bucket, and the last one removes the node
+    for (int i = 0; i < 100; i++) {
+      Assertions.assertTrue(tree.remove(7));
+    }
+    Assertions.assertFalse(tree.remove(7));
+    Assertions.assertEquals(9, countNodes(tree.root));
+    Assertions.assertEquals(200, tree.removeRange(0, 1));
+    Assertions.assertEquals(700, tree.size());
+    Assertions.assertEquals(2, tree.select(0));
+    Assertions.assertTrue(tree.isValidHelper((RBTNode<Integer>) tree.root) >= 0);
+    
+    //A bulk load merges runs of equal values into single nodes
+    List<Integer> batch = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      batch.add(i % 20);
+    }
+    tree.insertAll(batch);
+    Assertions.assertEquals(5700, tree.size());
+    Assertions.assertEquals(20, countNodes(tree.root));
+    Assertions.assertEquals(250 + 100, tree.countInRange(9, 9));
+    Assertions.assertTrue(tree.isValidHelper((RBTNode<Integer>) tree.root) >= 0);
+  }
+  
+  
+  
+  
+  /**
+   * This is the ninth tester method
+   * 
+   * Testing for the counters reported by stats(), which only count while
+   * TreeStats.ENABLED is set (run with -Dtreestats=true)
+   */
+  @Test
+  public void RBTtest9() {
+    RedBlackTree<Integer> tree = new RedBlackTree<>();
+    for (int i = 0; i < 1000; i++) {
+      tree.insert(i);
+    }
+    TreeStats stats = tree.stats();
+    Assertions.assertEquals(1000, stats.getSize());
+    //A Red-Black Tree is at most twice as high as a perfectly balanced one
+    Assertions.assertTrue(stats.getHeight() >= 10 && stats.getHeight() <= 20);
+    
+    if (!TreeStats.ENABLED) {
+      Assertions.assertEquals(0, stats.getComparisons());
+      Assertions.assertEquals(0, stats.getRotations());
+      return;
+    }
+    //Ascending inserts always repair on the right spine
+    Assertions.assertTrue(stats.getComparisons() >= 999);
+    Assertions.assertTrue(stats.getRotations() > 0);
+    Assertions.assertTrue(stats.getRecolorings() > 0);
+    Assertions.assertTrue(stats.getRepairCalls() >= 999);
+    Assertions.assertTrue(stats.getMaxRepairDepth() > 1);
+    
+    tree.resetStats();
+    Assertions.assertTrue(tree.contains(500));
+    Assertions.assertEquals(0, tree.stats().getRotations());
+    Assertions.assertTrue(tree.stats().getComparisons() <= stats.getHeight());
+  }
+  
+  
+  
+  
+  /**
+   * This is the tenth tester method
+   * 
+   * Testing for removeValue, which removes the very song that is passed, not just any
+   * song with the same danceability, with and without multiset mode
+   */
+  @Test
+  public void RBTtest10() {
+    Comparator<Song> byDanceability = (s1, s2) -> s1.getDanceability() - s2.getDanceability();
+    for (boolean multiset : new boolean[] {false, true}) {
+      RedBlackTree<Song> tree = new RedBlackTree<>(multiset);
+      Song first = new Song("Halo", "Beyonce", "pop", 2008, 80, 72, 51, -5, 6, byDanceability);
+      Song second = new Song("Hello", "Adele", "pop", 2015, 79, 43, 51, -6, 9, byDanceability);
+      tree.insert(first);
+      tree.insert(second);
+      tree.insert(new Song("Baby", "Justin Bieber", "pop", 2010, 65, 86, 73, -5, 11,
+          byDanceability));
+      
+      //remove would take the latest song with danceability 51, which is second
+      Assertions.assertTrue(tree.removeValue(first));
+      Assertions.assertFalse(tree.removeValue(first));
+      Assertions.assertEquals(2, tree.size());
+      Assertions.assertTrue(tree.isValidHelper((RBTNode<Song>) tree.root) >= 0);
+      
+      //Many equal songs spread over the tree are all found, in any order
+      List<Song> songs = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        songs.add(new Song("s" + i, null, null, 2000, 0, 0, i % 5, 0, 0, byDanceability));
+      }
+      tree.insertAll(songs.subList(0, 100));
+      for (Song song : songs.subList(100, 200)) {
+        tree.insert(song);
+      }
+      Collections.shuffle(songs, new java.util.Random(10));
+      for (int i = 0; i < songs.size(); i++) {
+        Assertions.assertTrue(tree.removeValue(songs.get(i)));
+        Assertions.assertEquals(201 - i, tree.size());
+      }
+      Assertions.assertTrue(tree.isValidHelper((RBTNode<Song>) tree.root) >= 0);
+      Assertions.assertEquals(2, tree.size());
+      Assertions.assertTrue(tree.removeValue(second));
+      Assertions.assertEquals(1, tree.size());
+      Assertions.assertThrows(NullPointerException.class, () -> tree.removeValue(null));
+    }
+  }
+  
+  
+  
+  
+  /**
+   * @param node the root of the subtree to count
+   * @return the number of nodes (not values) in the subtree
+   */
+  private static int countNodes(BinaryTreeNode<?> node) {
+    return node == null ? 0 : 1 + countNodes(node.childLeft()) + countNodes(node.childRight());
+  }
+  
+  
+  
+  
+  /**
+   * Checks the red property, the black height, the ordering and the subtree
+   * sizes of the provided subtree.
+   * @param node the root of the subtree to check
+   * @return the black height of the subtree, or -1 if any property is violated
+   */
+  protected int isValidHelper(RBTNode<T> node) {
+    if (node == null) {
+      return 0;
+    }
+    RBTNode<T> left = node.childLeft();
+    RBTNode<T> right = node.childRight();
+    
+    //Red nodes may not have red children, and links must go both ways
+    if (node.isRed() && ((left != null && left.isRed()) || (right != null && right.isRed()))) {
+      return -1;
+    }
+    if ((left != null && (left.parent() != node || left.getData().compareTo(node.getData()) > 0))
+        || (right != null && (right.parent() != node
+        || right.getData().compareTo(node.getData()) < 0))) {
+      return -1;
+    }
+    
+    int leftHeight = isValidHelper(left);
+    int rightHeight = isValidHelper(right);
+    int expectedSize = node.getCount() + (left == null ? 0 : left.getSubtreeSize())
+        + (right == null ? 0 : right.getSubtreeSize());
+    if (leftHeight < 0 || leftHeight != rightHeight || node.getSubtreeSize() != expectedSize) {
+      return -1;
+    }
+    return leftHeight + (node.isRed() ? 0 : 1);
+  }
+  
 
 }
@@ -0,0 +1,403 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A compressed set of non-negative ints, such as the rows of a SongTable,
+ * in the style of a Roaring bitmap.  The ints are grouped by their upper 16
+ * bits into containers of up to 65536 values.  A container with few values
+ * stores their lower 16 bits as a sorted char array (2 bytes per value), and
+ * a container with more than 4096 values stores a bitset of 65536 bits (8 KB,
+ * at most 2 bytes per value).  Intersections and unions work container by
+ * container, on whole 64 bit words where both containers are bitsets.
+ */
+public class RoaringBitmap {
+
+    // Largest number of values an array container holds
+    private static final int ARRAY_MAX = 4096;
+    // Number of longs in a bitset container
+    private static final int WORDS = 1 << 10;
+
+    /**
+     * The values of a bitmap that share their upper 16 bits.
+     */
+    private static final class Container {
+        char[] values; // sorted lower 16 bits, or null once this is a bitset
+        long[] bits; // one bit per lower 16 bits, or null while this is an array
+        int cardinality;
+
+        private Container copy() {
+            Container copy = new Container();
+            copy.values = values == null ? null : Arrays.copyOf(values, cardinality);
+            copy.bits = bits == null ? null : bits.clone();
+            copy.cardinality = cardinality;
+            return copy;
+        }
+    }
+
+    // The upper 16 bits of every container, ascending, and the containers
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size = 0; // number of containers
+    private int cardinality = 0; // number of values
+
+    /**
+     * Adds a value to the bitmap.  Adding values in ascending order is
+     * fastest.
+     * @param value is the value to add
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void add(int value) throws IllegalArgumentException {
+        if (value < 0) throw new IllegalArgumentException("Value must not be negative!");
+        Container container = containerFor((char) (value >>> 16));
+        char low = (char) value;
+        if (container.bits != null) {
+            long bit = 1L << low;
+            if ((container.bits[low >>> 6] & bit) != 0) return;
+            container.bits[low >>> 6] |= bit;
+        } else {
+            int n = container.cardinality;
+            int position = n > 0 && container.values[n - 1] < low
+                ? -n - 1 : Arrays.binarySearch(container.values, 0, n, low);
+            if (position >= 0) return;
+            position = -position - 1;
+            if (n == container.values.length) {
+                container.values = Arrays.copyOf(container.values, Math.min(2 * n, ARRAY_MAX + 1));
+            }
+            System.arraycopy(container.values, position, container.values, position + 1, n - position);
+            container.values[position] = low;
+        }
+        container.cardinality++;
+        cardinality++;
+        if (container.cardinality > ARRAY_MAX && container.bits == null) toBits(container);
+    }
+
+    /**
+     * Private helper method to find the container of a key, adding an empty
+     * one if there is none.
+     */
+    private Container containerFor(char key) {
+        int position = size > 0 && keys[size - 1] == key ? size - 1 : find(key);
+        if (position >= 0) return containers[position];
+        Container container = new Container();
+        container.values = new char[4];
+        insert(-position - 1, key, container);
+        return container;
+    }
+
+    /**
+     * Private helper method to find the position of a key.
+     * @return the position, or -(insertion point) - 1 if there is no such key
+     */
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Private helper method to insert a container at a position.
+     */
+    private void insert(int position, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * size);
+            containers = Arrays.copyOf(containers, 2 * size);
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        keys[position] = key;
+        containers[position] = container;
+        size++;
+    }
+
+    /**
+     * Private helper method to turn an array container into a bitset.
+     */
+    private static void toBits(Container container) {
+        long[] bits = new long[WORDS];
+        for (int i = 0; i < container.cardinality; i++) {
+            char low = container.values[i];
+            bits[low >>> 6] |= 1L << low;
+        }
+        container.bits = bits;
+        container.values = null;
+    }
+
+    /**
+     * Private helper method to turn a bitset container into an array.
+     */
+    private static void toValues(Container container) {
+        char[] values = new char[Math.max(container.cardinality, 1)];
+        int n = 0;
+        for (int word = 0; word < WORDS; word++) {
+            long bits = container.bits[word];
+            while (bits != 0) {
+                values[n++] = (char) (word << 6 | Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        container.values = values;
+        container.bits = null;
+    }
+
+    /**
+     * @param value is the value to look for
+     * @return true if the bitmap contains value
+     */
+    public boolean contains(int value) {
+        if (value < 0) return false;
+        int position = find((char) (value >>> 16));
+        if (position < 0) return false;
+        Container container = containers[position];
+        char low = (char) value;
+        if (container.bits != null) return (container.bits[low >>> 6] & (1L << low)) != 0;
+        return Arrays.binarySearch(container.values, 0, container.cardinality, low) >= 0;
+    }
+
+    /**
+     * @return the number of values in the bitmap
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return true if the bitmap has no values
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Intersects two bitmaps.  Only containers whose keys are in both
+     * bitmaps are compared.
+     * @param other is the other bitmap
+     * @return a new bitmap of the values in both bitmaps
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container both = and(containers[i], other.containers[j]);
+                if (both != null) {
+                    result.insert(result.size, keys[i], both);
+                    result.cardinality += both.cardinality;
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Private helper method to intersect two containers.
+     * @return a new container, or null if they have no values in common
+     */
+    private static Container and(Container a, Container b) {
+        if (a.bits == null && b.bits != null) return and(b, a);
+        Container result = new Container();
+        if (a.bits == null) {
+            // Both are arrays: merge them
+            char[] values = new char[Math.min(a.cardinality, b.cardinality)];
+            int i = 0, j = 0, n = 0;
+            while (i < a.cardinality && j < b.cardinality) {
+                if (a.values[i] < b.values[j]) i++;
+                else if (a.values[i] > b.values[j]) j++;
+                else {
+                    values[n++] = a.values[i++];
+                    j++;
+                }
+            }
+            result.values = values;
+            result.cardinality = n;
+        } else if (b.bits == null) {
+            // Keep the values of the array that are set in the bitset
+            char[] values = new char[b.cardinality];
+            int n = 0;
+            for (int i = 0; i < b.cardinality; i++) {
+                char low = b.values[i];
+                if ((a.bits[low >>> 6] & (1L << low)) != 0) values[n++] = low;
+            }
+            result.values = values;
+            result.cardinality = n;
+        } else {
+            long[] bits = new long[WORDS];
+            int n = 0;
+            for (int word = 0; word < WORDS; word++) {
+                bits[word] = a.bits[word] & b.bits[word];
+                n += Long.bitCount(bits[word]);
+            }
+            result.bits = bits;
+            result.cardinality = n;
+            if (n <= ARRAY_MAX) toValues(result);
+        }
+        return result.cardinality == 0 ? null : result;
+    }
+
+    /**
+     * Unites two bitmaps.
+     * @param other is the other bitmap
+     * @return a new bitmap of the values in either bitmap
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        result.addAll(this);
+        result.addAll(other);
+        return result;
+    }
+
+    /**
+     * Adds every value of another bitmap to this one, container by container.
+     * @param other is the bitmap whose values to add
+     */
+    public void addAll(RoaringBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            Container source = other.containers[j];
+            int position = find(other.keys[j]);
+            if (position < 0) {
+                insert(-position - 1, other.keys[j], source.copy());
+                cardinality += source.cardinality;
+                continue;
+            }
+            Container target = containers[position];
+            cardinality -= target.cardinality;
+            or(target, source);
+            cardinality += target.cardinality;
+        }
+    }
+
+    /**
+     * Private helper method to add the values of one container to another.
+     */
+    private static void or(Container target, Container source) {
+        if (target.bits == null && source.bits == null
+                && target.cardinality + source.cardinality <= ARRAY_MAX) {
+            // Merge the arrays, dropping duplicates
+            char[] values = new char[target.cardinality + source.cardinality];
+            int i = 0, j = 0, n = 0;
+            while (i < target.cardinality || j < source.cardinality) {
+                if (j == source.cardinality
+                        || (i < target.cardinality && target.values[i] < source.values[j])) {
+                    values[n++] = target.values[i++];
+                } else if (i == target.cardinality || target.values[i] > source.values[j]) {
+                    values[n++] = source.values[j++];
+                } else {
+                    values[n++] = target.values[i++];
+                    j++;
+                }
+            }
+            target.values = values;
+            target.cardinality = n;
+            return;
+        }
+        if (target.bits == null) toBits(target);
+        if (source.bits != null) {
+            int n = 0;
+            for (int word = 0; word < WORDS; word++) {
+                target.bits[word] |= source.bits[word];
+                n += Long.bitCount(target.bits[word]);
+            }
+            target.cardinality = n;
+        } else {
+            for (int i = 0; i < source.cardinality; i++) {
+                char low = source.values[i];
+                long bit = 1L << low;
+                if ((target.bits[low >>> 6] & bit) == 0) {
+                    target.bits[low >>> 6] |= bit;
+                    target.cardinality++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return every value of the bitmap, ascending
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            Container container = containers[i];
+            if (container.bits == null) {
+                for (int k = 0; k < container.cardinality; k++) {
+                    result[n++] = high | container.values[k];
+                }
+            } else {
+                for (int word = 0; word < WORDS; word++) {
+                    long bits = container.bits[word];
+                    while (bits != 0) {
+                        result[n++] = high | word << 6 | Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    ///////////////////Testing////////////////////////////////////////////
+
+    /**
+     * Test for adding values, in and out of order, across array and bitset
+     * containers
+     */
+    @Test
+    public void testBitmap1() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            // Dense in the first container, sparse elsewhere
+            int value = i % 2 == 0 ? random.nextInt(10000) : random.nextInt(1 << 22);
+            bitmap.add(value);
+            expected.add(value);
+        }
+        Assertions.assertEquals(expected.size(), bitmap.cardinality());
+        Assertions.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+                                     bitmap.toArray());
+        Assertions.assertTrue(bitmap.contains(expected.last()));
+        Assertions.assertFalse(bitmap.contains(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    /**
+     * Test for and and or between every kind of container
+     */
+    @Test
+    public void testBitmap2() {
+        RoaringBitmap evens = new RoaringBitmap(); // a bitset, then an array container
+        RoaringBitmap threes = new RoaringBitmap(); // array containers only
+        for (int i = 0; i < 70000; i += 2) {
+            evens.add(i);
+        }
+        for (int i = 0; i < 200000; i += 3 * 17) {
+            threes.add(i);
+        }
+        RoaringBitmap both = evens.and(threes);
+        RoaringBitmap either = evens.or(threes);
+        for (int i = 0; i < 200000; i++) {
+            boolean even = i < 70000 && i % 2 == 0;
+            boolean three = i % (3 * 17) == 0;
+            Assertions.assertEquals(even && three, both.contains(i));
+            Assertions.assertEquals(even || three, either.contains(i));
+        }
+        Assertions.assertEquals(35000, evens.cardinality()); // unchanged by or
+        Assertions.assertEquals(evens.cardinality(), evens.and(evens).cardinality());
+        Assertions.assertTrue(evens.and(new RoaringBitmap()).isEmpty());
+
+        // Bitsets whose intersection is small enough for an array
+        RoaringBitmap odds = new RoaringBitmap();
+        for (int i = 1; i < 20000; i += 2) {
+            odds.add(i);
+        }
+        odds.add(4);
+        Assertions.assertArrayEquals(new int[] {4}, evens.and(odds).toArray());
+    }
+}
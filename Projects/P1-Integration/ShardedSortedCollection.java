@@ -0,0 +1,664 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * This is a thread-safe implementation of IterableSortedCollection that splits its values
+ * into range shards. Each shard is an IterableRedBlackTree behind its own StampedLock, so
+ * threads that work on different ranges of values (e.g. loaders and queries for disjoint
+ * danceability ranges) do not wait for each other.
+ *
+ * The shards are defined by the split values passed to the constructor: with splits
+ * s0 < s1 < ... < sk, shard 0 holds the values below s0, shard i holds the values from
+ * s(i-1) up to (not including) si, and the last shard holds the values from sk up. Range
+ * queries only visit the shards that overlap the range. Iterators go through the shards one
+ * at a time, copying the values of the range out of each shard under its read lock when
+ * they reach it, so they never hold a lock between calls.
+ */
+public class ShardedSortedCollection<T extends Comparable<T>> implements IterableSortedCollection<T> {
+
+  //The values where one shard ends and the next one starts, in ascending order
+  private final List<T> splits;
+  //The shards, one more than there are splits
+  private final List<IterableRedBlackTree<T>> shards = new ArrayList<>();
+  //The lock of each shard
+  private final List<StampedLock> locks = new ArrayList<>();
+
+  private volatile Comparable<T> min = null; //minimum for the iterator, or null if no minimum.
+  private volatile Comparable<T> max = null; //maximum for the iterator, or null if no maximum.
+
+
+
+
+  /**
+   * Creates an empty collection with a single shard.
+   */
+  public ShardedSortedCollection() {
+    this(List.of());
+  }
+
+
+
+
+  /**
+   * Creates an empty collection whose shards are separated by the provided split values.
+   * @param splits the first value of every shard but the first one, in ascending order
+   * @throws NullPointerException if splits or any of its values is null
+   * @throws IllegalArgumentException if the splits are not in strictly ascending order
+   */
+  public ShardedSortedCollection(List<T> splits)
+      throws NullPointerException, IllegalArgumentException {
+    this.splits = new ArrayList<>(splits);
+    for (int i = 0; i < this.splits.size(); i++) {
+      if (this.splits.get(i) == null) {
+        throw new NullPointerException("Split is null, not allowed!");
+      }
+      if (i > 0 && this.splits.get(i - 1).compareTo(this.splits.get(i)) >= 0) {
+        throw new IllegalArgumentException("Splits are not ascending at position " + i + "!");
+      }
+    }
+    for (int i = 0; i <= this.splits.size(); i++) {
+      this.shards.add(new IterableRedBlackTree<>());
+      this.locks.add(new StampedLock());
+    }
+  }
+
+
+
+
+  /**
+   * Finds the first shard that may hold values at or above the provided bound.
+   * @param bound the lower bound, or null for the first shard
+   * @return the index of the shard
+   */
+  private int firstShard(Comparable<T> bound) {
+    if (bound == null) {
+      return 0;
+    }
+    //Binary search for the first split above the bound
+    int low = 0;
+    int high = this.splits.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (bound.compareTo(this.splits.get(middle)) < 0) {
+        high = middle;
+      }
+      else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+
+
+
+  /**
+   * Finds the last shard that may hold values at or below the provided bound.
+   * @param bound the upper bound, or null for the last shard
+   * @return the index of the shard
+   */
+  private int lastShard(Comparable<T> bound) {
+    //The shard a value equal to the bound goes into is the last one it can reach
+    return bound == null ? this.splits.size() : this.firstShard(bound);
+  }
+
+
+
+
+  /**
+   * Inserts a new data value into the shard it belongs to.
+   * @param data the new value being inserted
+   * @throws NullPointerException if data argument is null, we do not allow
+   * null values to be stored within a SortedCollection
+   */
+  @Override
+  public void insert(T data) throws NullPointerException {
+
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+
+    int shard = this.firstShard(data);
+    StampedLock lock = this.locks.get(shard);
+    long stamp = lock.writeLock();
+    try {
+      this.shards.get(shard).insert(data);
+    }
+    finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+
+
+
+  /**
+   * Inserts every value of data, handing each shard its part of the batch. The shards
+   * load their parts in parallel, each under its own write lock.
+   * @param data the new values being inserted
+   * @throws NullPointerException if data or any of its values is null
+   */
+  @Override
+  public void insertAll(Collection<T> data) throws NullPointerException {
+
+    //Check for null data case
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    List<List<T>> parts = new ArrayList<>();
+    for (int i = 0; i < this.shards.size(); i++) {
+      parts.add(new ArrayList<>());
+    }
+    for (T value : data) {
+      if (value == null) {
+        throw new NullPointerException("Data is null, not allowed!");
+      }
+      parts.get(this.firstShard(value)).add(value);
+    }
+
+    IntStream.range(0, this.shards.size()).parallel().forEach(shard -> {
+      if (parts.get(shard).isEmpty()) {
+        return;
+      }
+      StampedLock lock = this.locks.get(shard);
+      long stamp = lock.writeLock();
+      try {
+        this.shards.get(shard).insertAll(parts.get(shard));
+      }
+      finally {
+        lock.unlockWrite(stamp);
+      }
+    });
+  }
+
+
+
+
+  /**
+   * Check whether data is stored in the collection.
+   * @param data the value to check for in the collection
+   * @return true if the collection contains data one or more times, and false otherwise
+   */
+  @Override
+  public boolean contains(Comparable<T> data) {
+    if (data == null) {
+      return false;
+    }
+    for (int shard = this.firstShard(data); shard <= this.lastShard(data); shard++) {
+      StampedLock lock = this.locks.get(shard);
+      long stamp = lock.readLock();
+      try {
+        if (this.shards.get(shard).contains(data)) {
+          return true;
+        }
+      }
+      finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * Counts the number of values in the collection, with each duplicate value
+   * being counted separately within the value returned.
+   * @return the number of values in the collection, including duplicates
+   */
+  @Override
+  public int size() {
+    return this.countInRange(null, null);
+  }
+
+
+
+
+  /**
+   * Checks if the collection is empty.
+   * @return true if the collection contains 0 values, false otherwise
+   */
+  @Override
+  public boolean isEmpty() {
+    return this.size() == 0;
+  }
+
+
+
+
+  /**
+   * Removes all values and duplicates from the collection.
+   */
+  @Override
+  public void clear() {
+    for (int shard = 0; shard < this.shards.size(); shard++) {
+      StampedLock lock = this.locks.get(shard);
+      long stamp = lock.writeLock();
+      try {
+        this.shards.get(shard).clear();
+      }
+      finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Counts the number of values in the collection that are strictly smaller than data.
+   * @param data the value to rank
+   * @return the number of values smaller than data
+   * @throws NullPointerException if data is null
+   */
+  @Override
+  public int rank(Comparable<T> data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    int rank = 0;
+    for (int shard = 0; shard <= this.firstShard(data); shard++) {
+      StampedLock lock = this.locks.get(shard);
+      long stamp = lock.readLock();
+      try {
+        rank += this.shards.get(shard).rank(data);
+      }
+      finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return rank;
+  }
+
+
+
+
+  /**
+   * Finds the value at the provided (zero-based) position in the sorted order.
+   * @param k the position of the value to find
+   * @return the k-th smallest value in the collection
+   * @throws IndexOutOfBoundsException if k is negative or not less than size()
+   */
+  @Override
+  public T select(int k) throws IndexOutOfBoundsException {
+    if (k >= 0) {
+      int position = k;
+      for (int shard = 0; shard < this.shards.size(); shard++) {
+        StampedLock lock = this.locks.get(shard);
+        long stamp = lock.readLock();
+        try {
+          IterableRedBlackTree<T> tree = this.shards.get(shard);
+          if (position < tree.size()) {
+            return tree.select(position);
+          }
+          position -= tree.size();
+        }
+        finally {
+          lock.unlockRead(stamp);
+        }
+      }
+    }
+    throw new IndexOutOfBoundsException("No value at position " + k + "!");
+  }
+
+
+
+
+  /**
+   * Counts the number of values between min and max (including min and max
+   * themselves), asking only the shards that overlap the range.
+   * @param min the minimum value to count, or null for no minimum
+   * @param max the maximum value to count, or null for no maximum
+   * @return the number of values within the range
+   */
+  @Override
+  public int countInRange(Comparable<T> min, Comparable<T> max) {
+    int count = 0;
+    for (int shard = this.firstShard(min); shard <= this.lastShard(max); shard++) {
+      StampedLock lock = this.locks.get(shard);
+      long stamp = lock.readLock();
+      try {
+        count += this.shards.get(shard).countInRange(min, max);
+      }
+      finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return count;
+  }
+
+
+
+
+  /**
+   * Removes one occurrence of data from the collection, if it is stored in it.
+   * @param data the value to remove
+   * @return true if a value was removed, false if data was not found
+   * @throws NullPointerException if data argument is null
+   */
+  @Override
+  public boolean remove(Comparable<T> data) throws NullPointerException {
+    if (data == null) {
+      throw new NullPointerException("Data is null, not allowed!");
+    }
+    for (int shard = this.firstShard(data); shard <= this.lastShard(data); shard++) {
+      StampedLock lock = this.locks.get(shard);
+      long stamp = lock.writeLock();
+      try {
+        if (this.shards.get(shard).remove(data)) {
+          return true;
+        }
+      }
+      finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * Removes every value between min and max (including min and max themselves)
+   * from the shards that overlap the range.
+   * @param min the minimum value to remove, or null for no minimum
+   * @param max the maximum value to remove, or null for no maximum
+   * @return the number of values removed
+   */
+  @Override
+  public int removeRange(Comparable<T> min, Comparable<T> max) {
+    int removed = 0;
+    for (int shard = this.firstShard(min); shard <= this.lastShard(max); shard++) {
+      StampedLock lock = this.locks.get(shard);
+      long stamp = lock.writeLock();
+      try {
+        removed += this.shards.get(shard).removeRange(min, max);
+      }
+      finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+    return removed;
+  }
+
+
+
+
+  /**
+   * Allows setting the start (minimum) value of the iterator. When this method is called,
+   * every iterator created after it will use the minimum set by this method until this method
+   * is called again to set a new minimum value.
+   * @param min the minimum for iterators created for this collection, or null for no minimum
+   */
+  @Override
+  public void setIteratorMin(Comparable<T> min) {
+    this.min = min;
+  }
+
+
+
+
+  /**
+   * Allows setting the stop (maximum) value of the iterator. When this method is called,
+   * every iterator created after it will use the maximum set by this method until this method
+   * is called again to set a new maximum value.
+   * @param max the maximum for iterators created for this collection, or null for no maximum
+   */
+  @Override
+  public void setIteratorMax(Comparable<T> max) {
+    this.max = max;
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values between the minimum set by setIteratorMin and the
+   * maximum set by setIteratorMax (including both themselves).
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return this.iterator(this.min, true, this.max, true);
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values between min and max in ascending order, going
+   * through the overlapping shards from the lowest to the highest.
+   * @param min the minimum of the range, or null for no minimum
+   * @param minInclusive whether values equal to min are returned
+   * @param max the maximum of the range, or null for no maximum
+   * @param maxInclusive whether values equal to max are returned
+   * @return an iterator over the values in the range
+   */
+  @Override
+  public Iterator<T> iterator(Comparable<T> min, boolean minInclusive,
+      Comparable<T> max, boolean maxInclusive) {
+    return new ShardIterator(min, minInclusive, max, maxInclusive, false);
+  }
+
+
+
+
+  /**
+   * Returns an iterator over the values between min and max in descending order, going
+   * through the overlapping shards from the highest to the lowest.
+   * @param min the minimum of the range, or null for no minimum
+   * @param minInclusive whether values equal to min are returned
+   * @param max the maximum of the range, or null for no maximum
+   * @param maxInclusive whether values equal to max are returned
+   * @return an iterator over the values in the range, highest first
+   */
+  @Override
+  public Iterator<T> descendingIterator(Comparable<T> min, boolean minInclusive,
+      Comparable<T> max, boolean maxInclusive) {
+    return new ShardIterator(min, minInclusive, max, maxInclusive, true);
+  }
+
+
+
+
+  /**
+   * Nested class for Iterator objects created for this collection. Since the shards hold
+   * disjoint, ordered ranges, merging them is just visiting them one after the other. The
+   * values of the range are copied out of a shard only when the iterator reaches it.
+   */
+  private class ShardIterator implements Iterator<T> {
+
+    private final Comparable<T> min;
+    private final boolean minInclusive;
+    private final Comparable<T> max;
+    private final boolean maxInclusive;
+    private final boolean descending;
+    // stores the next shard to copy values from, and the one after the last shard to visit
+    private int shard;
+    private final int end;
+    // stores the values copied from the current shard
+    private Iterator<T> values = Collections.emptyIterator();
+
+
+
+
+    /**
+     * Constructor for a new iterator over the values from min to max.
+     */
+    ShardIterator(Comparable<T> min, boolean minInclusive, Comparable<T> max,
+        boolean maxInclusive, boolean descending) {
+      this.min = min;
+      this.minInclusive = minInclusive;
+      this.max = max;
+      this.maxInclusive = maxInclusive;
+      this.descending = descending;
+      this.shard = descending ? lastShard(max) : firstShard(min);
+      this.end = descending ? firstShard(min) - 1 : lastShard(max) + 1;
+    }
+
+
+
+
+    /**
+     * Returns true if the iterator has another value to return, and false otherwise.
+     * Copies the values of the next overlapping shards until one of them has any.
+     */
+    @Override
+    public boolean hasNext() {
+      while (!this.values.hasNext() && this.shard != this.end) {
+        StampedLock lock = locks.get(this.shard);
+        long stamp = lock.readLock();
+        try {
+          IterableRedBlackTree<T> tree = shards.get(this.shard);
+          List<T> copy = new ArrayList<>();
+          (this.descending
+              ? tree.descendingIterator(this.min, this.minInclusive, this.max, this.maxInclusive)
+              : tree.iterator(this.min, this.minInclusive, this.max, this.maxInclusive))
+              .forEachRemaining(copy::add);
+          this.values = copy.iterator();
+        }
+        finally {
+          lock.unlockRead(stamp);
+        }
+        this.shard += this.descending ? -1 : 1;
+      }
+      return this.values.hasNext();
+    }
+
+
+
+
+    /**
+     * Returns the next value of the iterator.
+     * @throws NoSuchElementException if the iterator has no more values to return
+     */
+    @Override
+    public T next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException("No more elements in the iterator");
+      }
+      return this.values.next();
+    }
+  }
+
+
+
+
+  ///////////////////Testing////////////////////////////////////////////
+
+  /**
+   * Test for values spread over shards, compared against a single IterableRedBlackTree
+   */
+  @Test
+  public void testSharded1() {
+    ShardedSortedCollection<Integer> sharded = new ShardedSortedCollection<>(List.of(25, 50, 75));
+    IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add(i * 37 % 101);
+    }
+    sharded.insertAll(values.subList(0, 500));
+    values.subList(500, 1000).forEach(sharded::insert);
+    tree.insertAll(values);
+
+    Assertions.assertEquals(1000, sharded.size());
+    for (int[] range : new int[][] {{0, 100}, {20, 30}, {25, 25}, {24, 75}, {60, 40}}) {
+      Assertions.assertEquals(tree.countInRange(range[0], range[1]),
+          sharded.countInRange(range[0], range[1]));
+      List<Integer> expected = new ArrayList<>();
+      List<Integer> actual = new ArrayList<>();
+      tree.iterator(range[0], false, range[1], true).forEachRemaining(expected::add);
+      sharded.iterator(range[0], false, range[1], true).forEachRemaining(actual::add);
+      Assertions.assertEquals(expected, actual);
+      expected.clear();
+      actual.clear();
+      tree.descendingIterator(range[0], range[1]).forEachRemaining(expected::add);
+      sharded.descendingIterator(range[0], range[1]).forEachRemaining(actual::add);
+      Assertions.assertEquals(expected, actual);
+    }
+    Assertions.assertEquals(tree.rank(50), sharded.rank(50));
+    Assertions.assertEquals(tree.select(600), sharded.select(600));
+    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> sharded.select(1000));
+
+    Assertions.assertTrue(sharded.contains(75));
+    Assertions.assertTrue(sharded.remove(75));
+    Assertions.assertEquals(tree.countInRange(20, 80) - 1, sharded.removeRange(20, 80));
+    Assertions.assertFalse(sharded.contains(75));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new ShardedSortedCollection<>(List.of(50, 25)));
+  }
+
+
+
+
+  /**
+   * Stress test: loaders on disjoint ranges and queries running at the same time
+   */
+  @Test
+  public void testSharded2() throws InterruptedException {
+    ShardedSortedCollection<Integer> sharded =
+        new ShardedSortedCollection<>(List.of(1000, 2000, 3000));
+    List<Runnable> tasks = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      int base = t * 1000;
+      tasks.add(() -> {
+        for (int i = 0; i < 1000; i++) {
+          sharded.insert(base + i);
+          //Every prefix of this thread's range is already complete
+          Assertions.assertEquals(i + 1, sharded.countInRange(base, base + 999));
+        }
+      });
+    }
+    tasks.add(() -> {
+      for (int i = 0; i < 200; i++) {
+        int previous = -1;
+        for (Integer value : sharded) {
+          Assertions.assertTrue(value > previous);
+          previous = value;
+        }
+      }
+    });
+    
+    //Run the tasks on their own threads, and fail the test if any assertion of theirs fails
+    ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Runnable task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+          }
+          throw new AssertionError(e.getCause());
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(4000, sharded.size());
+    Assertions.assertEquals(1999, sharded.select(1999));
+  }
+
+}
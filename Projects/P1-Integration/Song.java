@@ -1,3 +1,6 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Comparator;
 
 /**
@@ -77,6 +80,37 @@ public class Song implements Comparable<Song> {
     public int getLoudness() { return loudness; } 
     public int getLiveness() { return liveness; }
 
+    // conversion to and from the snapshot files of IterableRedBlackTree,
+    // every song read back is given the provided comparator
+
+    public static IterableRedBlackTree.Codec<Song> codec(Comparator<Song> comparator) {
+        return new IterableRedBlackTree.Codec<Song>() {
+            public void write(Song song, DataOutput out) throws IOException {
+                IterableRedBlackTree.Codec.writeString(song.title, out);
+                IterableRedBlackTree.Codec.writeString(song.artist, out);
+                IterableRedBlackTree.Codec.writeString(song.genres, out);
+                out.writeInt(song.year);
+                out.writeInt(song.bpm);
+                out.writeInt(song.energy);
+                out.writeInt(song.danceability);
+                out.writeInt(song.loudness);
+                out.writeInt(song.liveness);
+            }
+            public Song read(ByteBuffer in) {
+                return new Song(IterableRedBlackTree.Codec.readString(in),
+                                IterableRedBlackTree.Codec.readString(in),
+                                IterableRedBlackTree.Codec.readString(in),
+                                in.getInt(),
+                                in.getInt(),
+                                in.getInt(),
+                                in.getInt(),
+                                in.getInt(),
+                                in.getInt(),
+                                comparator);
+            }
+        };
+    }
+
     // comparisons are made using the Comparator pass to constructor
     
     public int compareTo(Song other) {
@@ -0,0 +1,237 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sorts songs by one of their integer attributes (year, bpm, energy, ...)
+ * in linear time.  When the values of the attribute span a small range, as
+ * every attribute in songs.csv does, a single counting sort pass is used.
+ * Otherwise the values are sorted by an LSD radix sort, one byte per pass,
+ * with passes over bytes that are equal for all songs skipped.
+ *
+ * Both sorts are stable: songs with equal values keep the order in which
+ * they were passed in.  The working arrays are kept between calls and only
+ * grow, so repeated exports do not allocate them again.  Because of these
+ * shared buffers, one sorter must not be used by several threads at once.
+ */
+public class SongSorter {
+
+    // Largest range of values sorted by counting sort regardless of the
+    // number of songs
+    private static final int COUNTING_RANGE = 1 << 16;
+    // Bits of the value sorted by each radix sort pass
+    private static final int RADIX_BITS = 8;
+
+    // working arrays reused by every call
+    private Song[] songs = new Song[0];
+    private Song[] songsSwap = new Song[0];
+    private int[] keys = new int[0];
+    private int[] keysSwap = new int[0];
+    private int[] counts = new int[1 << RADIX_BITS];
+
+    /**
+     * Sorts songs in ascending order of attribute.
+     * @param songs is the songs to sort, left unchanged
+     * @param attribute returns the value to sort each song by
+     * @return a new list of the songs, ordered by attribute
+     */
+    public List<Song> sort(Collection<Song> songs, ToIntFunction<Song> attribute) {
+        return sort(songs, attribute, false);
+    }
+
+    /**
+     * Sorts songs by attribute.  Songs with equal values stay in the order
+     * of the collection, in both directions.
+     * @param songs is the songs to sort, left unchanged
+     * @param attribute returns the value to sort each song by
+     * @param descending is true to put the largest values first
+     * @return a new list of the songs, ordered by attribute
+     */
+    public List<Song> sort(Collection<Song> songs, ToIntFunction<Song> attribute,
+                           boolean descending) {
+        int n = songs.size();
+        ensureCapacity(n);
+
+        // Read every value once, as the distance from the smallest one, so
+        // that negative values (e.g. loudness) sort correctly as well
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        int i = 0;
+        for (Song s : songs) {
+            int key = attribute.applyAsInt(s);
+            // Flipping every bit reverses the order without overflowing
+            if (descending) key = ~key;
+            this.songs[i] = s;
+            this.keys[i] = key;
+            min = Math.min(min, key);
+            max = Math.max(max, key);
+            i++;
+        }
+        for (i = 0; i < n; i++) {
+            this.keys[i] -= min;
+        }
+        int range = max - min; // compared unsigned, it may exceed Integer.MAX_VALUE
+
+        Song[] sorted = new Song[n];
+        if (n == 0) {
+            // nothing to sort
+        } else if (Integer.compareUnsigned(range, Math.max(n, COUNTING_RANGE)) < 0) {
+            countingSort(n, range + 1, sorted);
+        } else {
+            radixSort(n, range);
+            System.arraycopy(this.songs, 0, sorted, 0, n);
+        }
+        // Do not keep the songs alive through the buffers
+        Arrays.fill(this.songs, 0, n, null);
+        Arrays.fill(this.songsSwap, 0, n, null);
+        return Arrays.asList(sorted);
+    }
+
+    /**
+     * Private helper method to grow the working arrays to hold n songs.
+     * @param n is the number of songs to sort
+     */
+    private void ensureCapacity(int n) {
+        if (this.songs.length < n) {
+            int capacity = Math.max(n, this.songs.length * 2);
+            this.songs = new Song[capacity];
+            this.songsSwap = new Song[capacity];
+            this.keys = new int[capacity];
+            this.keysSwap = new int[capacity];
+        }
+    }
+
+    /**
+     * Private helper method that sorts the first n songs of the working
+     * arrays into sorted with a single counting sort pass.
+     * @param n is the number of songs to sort
+     * @param range is the number of distinct values the keys may have
+     * @param sorted is the array the songs are placed into, in order
+     */
+    private void countingSort(int n, int range, Song[] sorted) {
+        if (this.counts.length < range) {
+            this.counts = new int[Math.max(range, this.counts.length * 2)];
+        }
+        Arrays.fill(this.counts, 0, range, 0);
+        for (int i = 0; i < n; i++) {
+            this.counts[this.keys[i]]++;
+        }
+        // Turn the counts into the first position of each value
+        int position = 0;
+        for (int value = 0; value < range; value++) {
+            int count = this.counts[value];
+            this.counts[value] = position;
+            position += count;
+        }
+        for (int i = 0; i < n; i++) {
+            sorted[this.counts[this.keys[i]]++] = this.songs[i];
+        }
+    }
+
+    /**
+     * Private helper method that sorts the first n songs of the working
+     * arrays in place by an LSD radix sort over the bytes of their keys.
+     * @param n is the number of songs to sort
+     * @param range is the largest key, compared unsigned
+     */
+    private void radixSort(int n, int range) {
+        int buckets = 1 << RADIX_BITS;
+        for (int shift = 0; shift < Integer.SIZE && (range >>> shift) != 0;
+             shift += RADIX_BITS) {
+            Arrays.fill(this.counts, 0, buckets, 0);
+            for (int i = 0; i < n; i++) {
+                this.counts[(this.keys[i] >>> shift) & (buckets - 1)]++;
+            }
+            // A pass where every key has the same byte would not move anything
+            if (this.counts[(this.keys[0] >>> shift) & (buckets - 1)] == n) {
+                continue;
+            }
+            int position = 0;
+            for (int digit = 0; digit < buckets; digit++) {
+                int count = this.counts[digit];
+                this.counts[digit] = position;
+                position += count;
+            }
+            for (int i = 0; i < n; i++) {
+                int target = this.counts[(this.keys[i] >>> shift) & (buckets - 1)]++;
+                this.songsSwap[target] = this.songs[i];
+                this.keysSwap[target] = this.keys[i];
+            }
+            Song[] songs = this.songs;
+            this.songs = this.songsSwap;
+            this.songsSwap = songs;
+            int[] keys = this.keys;
+            this.keys = this.keysSwap;
+            this.keysSwap = keys;
+        }
+    }
+
+    ///////////////////Testing////////////////////////////////////////////
+
+    /**
+     * Private helper method to create a song with the provided year and
+     * loudness, titled by its position so that ties can be told apart.
+     */
+    private static Song song(int index, int year, int loudness) {
+        return new Song("" + index, "", "", year, 0, 0, 0, loudness, 0);
+    }
+
+    /**
+     * Test for counting sort on small ranges, including negative values and
+     * the order of equal values in both directions
+     */
+    @Test
+    public void testSorter1() {
+        SongSorter sorter = new SongSorter();
+        List<Song> songs = List.of(song(0, 2012, -4), song(1, 2010, -7), song(2, 2012, -2),
+                                   song(3, 2010, -4), song(4, 2011, -7));
+
+        List<Song> byYear = sorter.sort(songs, Song::getYear);
+        List<Song> recentFirst = sorter.sort(songs, Song::getYear, true);
+        List<Song> byLoudness = sorter.sort(songs, Song::getLoudness);
+        Assertions.assertEquals(List.of("1", "3", "4", "0", "2"), titles(byYear));
+        Assertions.assertEquals(List.of("0", "2", "4", "1", "3"), titles(recentFirst));
+        Assertions.assertEquals(List.of("1", "4", "0", "3", "2"), titles(byLoudness));
+        Assertions.assertEquals(List.of(), sorter.sort(List.of(), Song::getYear));
+    }
+
+    /**
+     * Test for radix sort on values over the whole int range, against List.sort
+     */
+    @Test
+    public void testSorter2() {
+        SongSorter sorter = new SongSorter();
+        Random random = new Random(400);
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int year = i % 3 == 0 ? random.nextInt(50) * 100_000_000 : random.nextInt();
+            songs.add(song(i, year, 0));
+        }
+        songs.add(song(5000, Integer.MIN_VALUE, 0));
+        songs.add(song(5001, Integer.MAX_VALUE, 0));
+
+        for (boolean descending : new boolean[] {false, true}) {
+            List<Song> expected = new ArrayList<>(songs);
+            expected.sort((s1, s2) -> descending ? Integer.compare(s2.getYear(), s1.getYear())
+                                                 : Integer.compare(s1.getYear(), s2.getYear()));
+            Assertions.assertEquals(titles(expected),
+                                    titles(sorter.sort(songs, Song::getYear, descending)));
+        }
+    }
+
+    /**
+     * Private helper method to list the titles of songs, in order.
+     */
+    private static List<String> titles(List<Song> songs) {
+        List<String> titles = new ArrayList<>();
+        for (Song s : songs) {
+            titles.add(s.getTitle());
+        }
+        return titles;
+    }
+}
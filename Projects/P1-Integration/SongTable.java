@@ -0,0 +1,424 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A columnar store for songs.  Instead of one Song object per song, the
+ * table keeps one array per attribute, and a song is a row: the same
+ * position in every array.  The integer attributes are stored in int[]
+ * columns, and the artist and genres of a row are stored as ids into a
+ * dictionary of the distinct strings, since many songs share them (e.g.
+ * "dance pop").  A row therefore takes 8 ints and a title reference, and
+ * a filter only reads the columns it tests, one after the other in memory.
+ *
+ * Rows are numbered in the order the songs were added.
+ *
+ * Every integer column also has a BitmapIndex (about 2 more bytes per row
+ * and column), so that predicates on any of them can be answered by
+ * intersecting and uniting bitmaps of rows, and so that select can plan how
+ * to find the rows of a query.
+ */
+public class SongTable {
+
+    /**
+     * The integer columns of the table, which are all indexed.
+     */
+    public enum Column { YEAR, BPM, ENERGY, DANCEABILITY, LOUDNESS, LIVENESS }
+
+    /**
+     * The ways select can find the rows of a query.
+     */
+    public enum Plan {
+        RANGE_SCAN, // visit the rows in the danceability range, testing their bpm
+        BITMAP // visit the rows of the bpm buckets below the threshold, testing their danceability
+    }
+
+    // A bitmap plan is chosen when a range scan would visit this many times
+    // more rows than the bpm filter lets through
+    private static final int BITMAP_SELECTIVITY = 8;
+
+    // Number of rows in the table
+    private int size = 0;
+
+    // columns
+    private String[] titles = new String[16];
+    private int[] artists = new int[16];
+    private int[] genres = new int[16];
+    private int[] years = new int[16];
+    private int[] bpms = new int[16];
+    private int[] energies = new int[16];
+    private int[] danceabilities = new int[16];
+    private int[] loudnesses = new int[16];
+    private int[] livenesses = new int[16];
+
+    // dictionaries of the distinct artists and genres, and their ids
+    private List<String> artistNames = new ArrayList<String>();
+    private Map<String, Integer> artistIds = new HashMap<String, Integer>();
+    private List<String> genreNames = new ArrayList<String>();
+    private Map<String, Integer> genreIds = new HashMap<String, Integer>();
+
+    // one index per integer column, in the order of Column
+    private BitmapIndex[] indexes = new BitmapIndex[Column.values().length];
+
+    /**
+     * Creates an empty table.
+     */
+    public SongTable() {
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = new BitmapIndex();
+        }
+    }
+
+    /**
+     * Adds a song as the last row of the table.
+     * @param song is the song to add
+     * @throws NullPointerException if song is null
+     */
+    public void add(Song song) throws NullPointerException {
+        if (song == null) throw new NullPointerException("Data is null, not allowed!");
+        if (size == titles.length) grow();
+        titles[size] = song.getTitle();
+        artists[size] = encode(song.getArtist(), artistNames, artistIds);
+        genres[size] = encode(song.getGenres(), genreNames, genreIds);
+        years[size] = song.getYear();
+        bpms[size] = song.getBPM();
+        energies[size] = song.getEnergy();
+        danceabilities[size] = song.getDanceability();
+        loudnesses[size] = song.getLoudness();
+        livenesses[size] = song.getLiveness();
+        indexes[Column.YEAR.ordinal()].add(size, years[size]);
+        indexes[Column.BPM.ordinal()].add(size, bpms[size]);
+        indexes[Column.ENERGY.ordinal()].add(size, energies[size]);
+        indexes[Column.DANCEABILITY.ordinal()].add(size, danceabilities[size]);
+        indexes[Column.LOUDNESS.ordinal()].add(size, loudnesses[size]);
+        indexes[Column.LIVENESS.ordinal()].add(size, livenesses[size]);
+        size++;
+    }
+
+    /**
+     * Adds every song of songs as new rows, in order.
+     * @param songs is the songs to add
+     * @throws NullPointerException if songs or any of its songs is null
+     */
+    public void addAll(Collection<Song> songs) throws NullPointerException {
+        for (Song song : songs) {
+            add(song);
+        }
+    }
+
+    /**
+     * Private helper method to find the id of a string in a dictionary,
+     * adding the string if it is not in it yet.
+     */
+    private static int encode(String value, List<String> names, Map<String, Integer> ids) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = names.size();
+            names.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Private helper method to double the capacity of every column.
+     */
+    private void grow() {
+        int capacity = titles.length * 2;
+        titles = Arrays.copyOf(titles, capacity);
+        artists = Arrays.copyOf(artists, capacity);
+        genres = Arrays.copyOf(genres, capacity);
+        years = Arrays.copyOf(years, capacity);
+        bpms = Arrays.copyOf(bpms, capacity);
+        energies = Arrays.copyOf(energies, capacity);
+        danceabilities = Arrays.copyOf(danceabilities, capacity);
+        loudnesses = Arrays.copyOf(loudnesses, capacity);
+        livenesses = Arrays.copyOf(livenesses, capacity);
+    }
+
+    // accessors
+
+    public int size() { return size; } // number of rows
+    public int distinctArtists() { return artistNames.size(); } // size of the artist dictionary
+    public int distinctGenres() { return genreNames.size(); } // size of the genres dictionary
+
+    public String getTitle(int row) { return titles[check(row)]; }
+    public String getArtist(int row) { return artistNames.get(artists[check(row)]); }
+    public String getGenres(int row) { return genreNames.get(genres[check(row)]); }
+    public int getYear(int row) { return years[check(row)]; }
+    public int getBPM(int row) { return bpms[check(row)]; }
+    public int getEnergy(int row) { return energies[check(row)]; }
+    public int getDanceability(int row) { return danceabilities[check(row)]; }
+    public int getLoudness(int row) { return loudnesses[check(row)]; }
+    public int getLiveness(int row) { return livenesses[check(row)]; }
+
+    /**
+     * Private helper method to check that a row exists.
+     * @return the row
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    private int check(int row) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("No row " + row + " in the table!");
+        }
+        return row;
+    }
+
+    /**
+     * Returns the index of an integer column, whose bitmaps of rows can be
+     * combined with and and or to answer predicates on several columns.
+     * @param column is the column
+     * @return the index of the column, which must not be modified
+     */
+    public BitmapIndex index(Column column) {
+        return indexes[column.ordinal()];
+    }
+
+    /**
+     * Creates a Song object holding the values of a row.
+     * @param row is the row of the song
+     * @return a new Song without a comparator
+     */
+    public Song getSong(int row) {
+        return new Song(getTitle(row), getArtist(row), getGenres(row), years[row], bpms[row],
+                        energies[row], danceabilities[row], loudnesses[row], livenesses[row]);
+    }
+
+    /**
+     * Chooses how select finds the rows of a query, from the histograms of
+     * the danceability and bpm indexes.  A range scan visits every row in
+     * the danceability range, so it is chosen unless the bpm filter lets
+     * far fewer rows through than the range holds.
+     * @param min is the minimum danceability, or null for no minimum
+     * @param max is the maximum danceability, or null for no maximum
+     * @param speedBelow is the bpm that every row must be below, or null
+     * @return the plan select uses for these arguments
+     */
+    public Plan plan(Integer min, Integer max, Integer speedBelow) {
+        if (speedBelow == null) return Plan.RANGE_SCAN;
+        int inRange = index(Column.DANCEABILITY).count(min, max);
+        int fastEnough = speedBelow == Integer.MIN_VALUE
+            ? 0 : index(Column.BPM).count(null, speedBelow - 1);
+        return (long) fastEnough * BITMAP_SELECTIVITY < inRange ? Plan.BITMAP : Plan.RANGE_SCAN;
+    }
+
+    /**
+     * Finds the rows whose danceability is between min and max (including
+     * both) and whose bpm is below speedBelow.  The rows are ordered like an
+     * IterableRedBlackTree of the same songs, ordered by danceability: by
+     * danceability, and of several rows with the same danceability, the
+     * last one added comes first.  A range scan walks the danceability
+     * buckets in order, each from its last row to its first, and tests the
+     * bpm of every row.  A bitmap plan starts from the union of the bpm
+     * buckets below speedBelow instead, keeps the rows in the danceability
+     * range, and orders the few that remain by danceability.
+     * @param min is the minimum danceability, or null for no minimum
+     * @param max is the maximum danceability, or null for no maximum
+     * @param speedBelow is the bpm that every row must be below, or null to
+     *     not filter by bpm
+     * @return the matching rows, in order
+     */
+    public int[] select(Integer min, Integer max, Integer speedBelow) {
+        int low = min == null ? Integer.MIN_VALUE : min;
+        int high = max == null ? Integer.MAX_VALUE : max;
+        if (plan(min, max, speedBelow) == Plan.BITMAP) {
+            if (speedBelow == Integer.MIN_VALUE) return new int[0];
+            int[] fastEnough = index(Column.BPM).rows(null, speedBelow - 1).toArray();
+            // Keep the rows in range from last to first, so that of equal
+            // danceabilities the last row added is found first
+            int[] matches = new int[fastEnough.length];
+            int count = 0;
+            int smallest = Integer.MAX_VALUE;
+            int largest = Integer.MIN_VALUE;
+            for (int i = fastEnough.length - 1; i >= 0; i--) {
+                int danceability = danceabilities[fastEnough[i]];
+                if (danceability >= low && danceability <= high) {
+                    matches[count++] = fastEnough[i];
+                    smallest = Math.min(smallest, danceability);
+                    largest = Math.max(largest, danceability);
+                }
+            }
+            return sortByDanceability(matches, count, smallest, largest);
+        }
+
+        int below = speedBelow == null ? Integer.MAX_VALUE : speedBelow;
+        boolean anySpeed = speedBelow == null;
+        int[] matches = new int[index(Column.DANCEABILITY).count(min, max)];
+        int count = 0;
+        for (RoaringBitmap bucket : index(Column.DANCEABILITY).buckets(min, max).values()) {
+            int[] rows = bucket.toArray();
+            for (int i = rows.length - 1; i >= 0; i--) {
+                if (anySpeed || bpms[rows[i]] < below) matches[count++] = rows[i];
+            }
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Private helper method to order rows by danceability with a stable
+     * counting sort, or a sort of (danceability, position) pairs if the
+     * range of danceabilities is large.
+     * @param rows is the rows to order, of which the first count are used
+     * @param smallest is the smallest danceability of those rows
+     * @param largest is the largest danceability of those rows
+     * @return the count rows, ordered
+     */
+    private int[] sortByDanceability(int[] rows, int count, int smallest, int largest) {
+        int[] sorted = new int[count];
+        if (count == 0) return sorted;
+        long range = (long) largest - smallest + 1;
+        if (range <= Math.max(count, 1 << 16)) {
+            int[] starts = new int[(int) range + 1];
+            for (int i = 0; i < count; i++) {
+                starts[danceabilities[rows[i]] - smallest + 1]++;
+            }
+            for (int value = 1; value <= range; value++) {
+                starts[value] += starts[value - 1];
+            }
+            for (int i = 0; i < count; i++) {
+                sorted[starts[danceabilities[rows[i]] - smallest]++] = rows[i];
+            }
+        } else {
+            long[] pairs = new long[count];
+            for (int i = 0; i < count; i++) {
+                pairs[i] = ((long) danceabilities[rows[i]] << 32) | i;
+            }
+            Arrays.sort(pairs);
+            for (int i = 0; i < count; i++) {
+                sorted[i] = rows[(int) pairs[i]];
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Finds the most recent rows among the provided rows.  Of several rows
+     * from the same year, the one found first in rows comes first.
+     * @param rows is the rows to choose from
+     * @param count is the number of rows to return at most
+     * @return the most recent rows, most recent first
+     */
+    public int[] mostRecent(int[] rows, int count) {
+        int[] recent = new int[Math.min(count, rows.length)];
+        int found = 0;
+        for (int row : rows) {
+            int year = years[row];
+            // Find where the row belongs, after every row that is as recent
+            int position = found;
+            while (position > 0 && years[recent[position - 1]] < year) position--;
+            if (position == recent.length) continue;
+            int moved = Math.min(found, recent.length - 1) - position;
+            System.arraycopy(recent, position, recent, position + 1, moved);
+            recent[position] = row;
+            found = Math.min(found + 1, recent.length);
+        }
+        return recent;
+    }
+
+    ///////////////////Testing////////////////////////////////////////////
+
+    /**
+     * Test for the columns and dictionaries of a few songs
+     */
+    @Test
+    public void testTable1() {
+        SongTable table = new SongTable();
+        for (int i = 0; i < 40; i++) {
+            table.add(new Song("Song " + i, "Artist " + i % 3, i % 2 == 0 ? "dance pop" : "pop",
+                               2000 + i, 100 + i, i, i % 10, -i, i));
+        }
+        Assertions.assertEquals(40, table.size());
+        Assertions.assertEquals(3, table.distinctArtists());
+        Assertions.assertEquals(2, table.distinctGenres());
+        Assertions.assertEquals("Artist 2", table.getArtist(17));
+        Assertions.assertEquals("pop", table.getGenres(17));
+        Assertions.assertEquals(-17, table.getLoudness(17));
+        Assertions.assertEquals("Song 17", table.getSong(17).getTitle());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> table.getYear(40));
+
+        // danceability 3 to 4 is rows 3, 4, 13, 14, 23, 24, 33, 34; bpm below 125 keeps 3 to 24
+        Assertions.assertArrayEquals(new int[] {23, 13, 3, 24, 14, 4}, table.select(3, 4, 125));
+        Assertions.assertArrayEquals(new int[] {39, 29, 19, 9}, table.select(9, null, null));
+        Assertions.assertArrayEquals(new int[0], table.select(11, null, null));
+        Assertions.assertArrayEquals(new int[] {24, 23, 14},
+                                     table.mostRecent(table.select(3, 4, 125), 3));
+    }
+
+    /**
+     * Test that select orders like an IterableRedBlackTree of the same songs,
+     * also for danceabilities spread too far for counting sort
+     */
+    @Test
+    public void testTable2() {
+        for (int spread : new int[] {1, 1_000_000}) {
+            SongTable table = new SongTable();
+            IterableRedBlackTree<Song> tree = new IterableRedBlackTree<>();
+            List<Song> songs = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                songs.add(new Song("" + i, "", "", i % 17, i % 5, 0, (i * 7 % 11) * spread, 0, 0,
+                                   (s1, s2) -> Integer.compare(s1.getDanceability(),
+                                                               s2.getDanceability())));
+            }
+            table.addAll(songs);
+            tree.insertAll(songs);
+
+            List<String> expected = new ArrayList<>();
+            for (Song song : tree) {
+                expected.add(song.getTitle());
+            }
+            List<String> actual = new ArrayList<>();
+            for (int row : table.select(null, null, null)) {
+                actual.add(table.getTitle(row));
+            }
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * Test that both plans find the same rows as testing every row, and
+     * that the planner picks a bitmap plan for a selective bpm filter only
+     */
+    @Test
+    public void testTable3() {
+        SongTable table = new SongTable();
+        for (int i = 0; i < 5000; i++) {
+            table.add(new Song("" + i, "", "", 2000, i * 37 % 200, 0, i * 13 % 101, 0, 0));
+        }
+        Assertions.assertEquals(Plan.RANGE_SCAN, table.plan(10, 90, null));
+        Assertions.assertEquals(Plan.RANGE_SCAN, table.plan(10, 90, 150));
+        Assertions.assertEquals(Plan.BITMAP, table.plan(10, 90, 5));
+        Assertions.assertEquals(Plan.RANGE_SCAN, table.plan(50, 50, 5));
+        Assertions.assertEquals(Plan.BITMAP, table.plan(null, null, Integer.MIN_VALUE));
+
+        for (Integer speedBelow : new Integer[] {null, 150, 20, 5, 0, Integer.MIN_VALUE}) {
+            List<Integer> expected = new ArrayList<>();
+            for (int danceability = 10; danceability <= 90; danceability++) {
+                for (int row = table.size() - 1; row >= 0; row--) {
+                    if (table.getDanceability(row) == danceability
+                            && (speedBelow == null || table.getBPM(row) < speedBelow)) {
+                        expected.add(row);
+                    }
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            for (int row : table.select(10, 90, speedBelow)) {
+                actual.add(row);
+            }
+            Assertions.assertEquals(expected, actual);
+        }
+
+        // Predicates on other columns combine through their indexes
+        RoaringBitmap slow = table.index(Column.BPM).rows(null, 9);
+        RoaringBitmap danceable = table.index(Column.DANCEABILITY).rows(90, null);
+        for (int row : slow.and(danceable).toArray()) {
+            Assertions.assertTrue(table.getBPM(row) <= 9 && table.getDanceability(row) >= 90);
+        }
+        Assertions.assertEquals(slow.cardinality() + danceable.cardinality(),
+                                slow.or(danceable).cardinality() + slow.and(danceable).cardinality());
+    }
+}
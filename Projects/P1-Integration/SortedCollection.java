@@ -1,3 +1,5 @@
+import java.util.Collection;
+
 /**
  * This interface defines an ADT for data structures that support storing a 
  * collection of comparable values in their natural ordering.
@@ -11,6 +13,18 @@ public interface SortedCollection<T extends Comparable<T>> {
      */
     public void insert(T data) throws NullPointerException;
 
+    /**
+     * Inserts every value of data into the sorted collection. Implementations
+     * may override this to load a large batch faster than one insert at a time.
+     * @param data the new values being inserted
+     * @throws NullPointerException if data or any of its values is null
+     */
+    public default void insertAll(Collection<T> data) throws NullPointerException {
+        for (T value : data) {
+            insert(value);
+        }
+    }
+
     /**
      * Check whether data is stored in the tree.
      * @param data the value to check for in the collection
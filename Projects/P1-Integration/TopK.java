@@ -0,0 +1,126 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the k best of a stream of items, ranked by an int value of each
+ * item (the largest values, or the smallest ones).  Of several items with
+ * the same value, the one offered first ranks higher.
+ *
+ * The items are kept in a binary min-heap of at most k items whose keys
+ * are primitive longs, with the worst kept item at the root.  Every offered
+ * item is compared with the root only, and replaces it if it ranks higher,
+ * so offering n items takes O(n log k) time and no memory beyond the heap.
+ * The heap grows as items are kept, so a k far larger than the number of
+ * items offered costs no more memory than those items.
+ */
+public class TopK<T> {
+
+    // Capacity of the heap before any item is kept
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The key of every kept item: its value in the upper 32 bits (flipped
+    // when the smallest values are wanted), and the order in which it was
+    // offered (flipped, so that earlier is larger) in the lower 32 bits
+    private long[] keys;
+    // The kept items, at the same positions as their keys
+    private Object[] items;
+    private final int k;
+    private final boolean largest;
+    private int size = 0;
+    private long offered = 0;
+
+    /**
+     * Creates an empty top-k.
+     * @param k is the number of items to keep
+     * @param largest is true to keep the items with the largest values, or
+     *     false to keep those with the smallest values
+     * @throws IllegalArgumentException if k is negative
+     */
+    public TopK(int k, boolean largest) throws IllegalArgumentException {
+        if (k < 0) throw new IllegalArgumentException("K must not be negative!");
+        this.k = k;
+        this.keys = new long[Math.min(k, INITIAL_CAPACITY)];
+        this.items = new Object[keys.length];
+        this.largest = largest;
+    }
+
+    /**
+     * Offers an item, which is kept if it ranks among the k best so far.
+     * @param value is the value the item is ranked by
+     * @param item is the item
+     */
+    public void offer(int value, T item) {
+        int ranked = largest ? value : ~value;
+        long key = ((long) ranked << 32) | (0xFFFFFFFFL - (offered++ & 0xFFFFFFFFL));
+        if (size < k) {
+            if (size == keys.length) grow();
+            // Add at the end of the heap and move it up
+            int position = size++;
+            while (position > 0 && keys[(position - 1) / 2] > key) {
+                keys[position] = keys[(position - 1) / 2];
+                items[position] = items[(position - 1) / 2];
+                position = (position - 1) / 2;
+            }
+            keys[position] = key;
+            items[position] = item;
+        } else if (size > 0 && key > keys[0]) {
+            siftDown(key, item, size);
+        }
+    }
+
+    /**
+     * Private helper method that doubles the capacity of the heap, up to k.
+     */
+    private void grow() {
+        int capacity = (int) Math.min(k, 2L * keys.length);
+        keys = Arrays.copyOf(keys, capacity);
+        items = Arrays.copyOf(items, capacity);
+    }
+
+    /**
+     * Private helper method that puts an item at the root of the first
+     * count positions of the heap and moves it down to where it belongs.
+     */
+    private void siftDown(long key, Object item, int count) {
+        int position = 0;
+        while (2 * position + 1 < count) {
+            int child = 2 * position + 1;
+            if (child + 1 < count && keys[child + 1] < keys[child]) child++;
+            if (keys[child] >= key) break;
+            keys[position] = keys[child];
+            items[position] = items[child];
+            position = child;
+        }
+        keys[position] = key;
+        items[position] = item;
+    }
+
+    /**
+     * @return the number of items kept so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the kept items from best to worst, and empties the top-k.
+     * @return the best items, best first
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> drain() {
+        // Move the worst item to the end, one after the other
+        Object[] best = new Object[size];
+        for (int end = size - 1; end >= 0; end--) {
+            best[end] = items[0];
+            siftDown(keys[end], items[end], end);
+        }
+        Arrays.fill(items, null);
+        size = 0;
+        List<T> result = new ArrayList<T>(best.length);
+        for (Object item : best) {
+            result.add((T) item);
+        }
+        return result;
+    }
+}
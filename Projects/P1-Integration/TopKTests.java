@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A class for testing the methods of the TopK class. The tests live here
+ * since TopK itself has no constructor without arguments.
+ */
+public class TopKTests {
+
+    /**
+     * Test for the largest and smallest values, with ties and negative values
+     */
+    @Test
+    public void testTopK1() {
+        int[] values = {5, -3, 9, 5, 0, 9, Integer.MIN_VALUE, 5, Integer.MAX_VALUE};
+        TopK<Integer> largest = new TopK<>(4, true);
+        TopK<Integer> smallest = new TopK<>(4, false);
+        for (int i = 0; i < values.length; i++) {
+            largest.offer(values[i], i);
+            smallest.offer(values[i], i);
+        }
+        Assertions.assertEquals(List.of(8, 2, 5, 0), largest.drain());
+        Assertions.assertEquals(List.of(6, 1, 4, 0), smallest.drain());
+        Assertions.assertEquals(List.of(), largest.drain());
+
+        TopK<Integer> none = new TopK<>(0, true);
+        none.offer(1, 1);
+        Assertions.assertEquals(List.of(), none.drain());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TopK<Integer>(-1, true));
+    }
+
+    /**
+     * Test against a stable sort of random values
+     */
+    @Test
+    public void testTopK2() {
+        Random random = new Random(400);
+        List<int[]> offered = new ArrayList<>();
+        TopK<int[]> top = new TopK<>(100, true);
+        for (int i = 0; i < 5000; i++) {
+            int[] item = {random.nextInt(300), i};
+            offered.add(item);
+            top.offer(item[0], item);
+        }
+        offered.sort((a, b) -> Integer.compare(b[0], a[0]));
+        Assertions.assertEquals(offered.subList(0, 100), top.drain());
+    }
+
+    /**
+     * Test for a k far larger than the number of items offered, whose heap
+     * must grow with the items instead of being allocated up front
+     */
+    @Test
+    public void testTopK3() {
+        TopK<Integer> top = new TopK<>(Integer.MAX_VALUE, false);
+        for (int i = 0; i < 1000; i++) {
+            top.offer(i % 10, i);
+        }
+        Assertions.assertEquals(1000, top.size());
+        List<Integer> drained = top.drain();
+        Assertions.assertEquals(List.of(0, 10, 20), drained.subList(0, 3));
+        Assertions.assertEquals(999, (int) drained.get(999));
+    }
+}
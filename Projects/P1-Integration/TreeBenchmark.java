@@ -0,0 +1,819 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Stack;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * This class holds simple wall-clock benchmarks for the tree classes. Each
+ * benchmark is run a few times to warm up the JIT before it is measured.
+ * Run with: java TreeBenchmark [SIZE]
+ * (add -Dtreestats=true to also print the work counters of random inserts)
+ */
+public class TreeBenchmark {
+
+  //How many untimed rounds are run before the timed ones
+  private static final int WARMUP_ROUNDS = 3;
+  //How many timed rounds are averaged
+  private static final int TIMED_ROUNDS = 5;
+
+  //Stops the JIT from removing the benchmarked work as dead code
+  private static long sink = 0;
+
+
+
+
+  /**
+   * Runs the provided task a few times and prints the average time of one run.
+   * @param name the name printed next to the result
+   * @param task the work to measure
+   * @return the average time of one run, in milliseconds
+   */
+  private static double measure(String name, Runnable task) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      task.run();
+    }
+    long total = 0;
+    for (int i = 0; i < TIMED_ROUNDS; i++) {
+      long start = System.nanoTime();
+      task.run();
+      total += System.nanoTime() - start;
+    }
+    double average = total / (TIMED_ROUNDS * 1_000_000.0);
+    System.out.printf("%-40s %10.2f ms%n", name, average);
+    return average;
+  }
+
+
+
+
+  /**
+   * Creates size values between 0 and 100 (like danceability) in random order.
+   * @param size the number of values to create
+   * @return the shuffled values
+   */
+  private static List<Integer> randomValues(int size) {
+    return randomValues(size, 101);
+  }
+
+
+
+
+  /**
+   * Creates size values between 0 and bound - 1 in random order.
+   * @param size the number of values to create
+   * @param bound the number of distinct values that may be created
+   * @return the shuffled values
+   */
+  private static List<Integer> randomValues(int size, int bound) {
+    Random random = new Random(400);
+    List<Integer> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(random.nextInt(bound));
+    }
+    return values;
+  }
+
+
+
+
+  /**
+   * Compares loading a tree with repeated insert calls against insertAll
+   * and fromSorted.
+   * @param size the number of values to load
+   */
+  public static void benchmarkBulkLoad(int size) {
+    List<Integer> values = randomValues(size);
+    List<Integer> sorted = new ArrayList<>(values);
+    Collections.sort(sorted);
+
+    measure("insert x" + size, () -> {
+      IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+      for (Integer value : values) {
+        tree.insert(value);
+      }
+      sink += tree.size();
+    });
+    measure("insertAll (unsorted) x" + size, () -> {
+      IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+      tree.insertAll(values);
+      sink += tree.size();
+    });
+    measure("fromSorted x" + size, () -> {
+      sink += IterableRedBlackTree.fromSorted(sorted).size();
+    });
+  }
+
+
+
+
+  /**
+   * Compares range scans with the parent-walking RBTIterator against the
+   * stack-based iterator it replaced (kept below as StackIterator).
+   * @param size the number of values in the scanned tree
+   */
+  public static void benchmarkRangeScan(int size) {
+    IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+    tree.insertAll(randomValues(size));
+    tree.setIteratorMin(20);
+    tree.setIteratorMax(80);
+
+    measure("RBTIterator scan [20, 80]", () -> {
+      for (Integer value : tree) {
+        sink += value;
+      }
+    });
+    measure("StackIterator scan [20, 80]", () -> {
+      Iterator<Integer> iterator = new StackIterator<>(tree.root, 20, 80);
+      while (iterator.hasNext()) {
+        sink += iterator.next();
+      }
+    });
+
+    //The same values in a multiset tree, with one node per distinct value
+    IterableRedBlackTree<Integer> multiset = new IterableRedBlackTree<>(true);
+    multiset.insertAll(randomValues(size));
+    measure("multiset RBTIterator scan [20, 80]", () -> {
+      for (Iterator<Integer> iterator = multiset.iterator(20, 80); iterator.hasNext();) {
+        sink += iterator.next();
+      }
+    });
+    List<Integer> values = randomValues(size);
+    measure("multiset insert x" + size, () -> {
+      IterableRedBlackTree<Integer> loaded = new IterableRedBlackTree<>(true);
+      for (Integer value : values) {
+        loaded.insert(value);
+      }
+      sink += loaded.size();
+    });
+  }
+
+
+
+
+  /**
+   * Compares insert, point lookup and range scan throughput of BTree against
+   * IterableRedBlackTree, on values with many distinct keys.
+   * @param size the number of values in each tree
+   */
+  public static void benchmarkBTree(int size) {
+    List<Integer> values = randomValues(size, size);
+    //The trees built by the last timed insert round, scanned afterwards
+    List<IterableSortedCollection<Integer>> trees = new ArrayList<>(List.of(
+        new IterableRedBlackTree<Integer>(), new BTree<Integer>()));
+
+    measure("IterableRedBlackTree insert x" + size, () -> {
+      IterableSortedCollection<Integer> tree = new IterableRedBlackTree<>();
+      for (Integer value : values) {
+        tree.insert(value);
+      }
+      trees.set(0, tree);
+    });
+    measure("BTree insert x" + size, () -> {
+      IterableSortedCollection<Integer> tree = new BTree<>();
+      for (Integer value : values) {
+        tree.insert(value);
+      }
+      trees.set(1, tree);
+    });
+
+    String[] names = {"IterableRedBlackTree", "BTree"};
+    for (int i = 0; i < names.length; i++) {
+      IterableSortedCollection<Integer> tree = trees.get(i);
+      measure(names[i] + " contains x" + size, () -> {
+        for (Integer value : values) {
+          sink += tree.contains(value) ? 1 : 0;
+        }
+      });
+      tree.setIteratorMin(size / 4);
+      tree.setIteratorMax(size / 4 * 3);
+      measure(names[i] + " scan half", () -> {
+        for (Integer value : tree) {
+          sink += value;
+        }
+      });
+    }
+  }
+
+
+
+
+  /**
+   * Compares rebuilding a tree by inserting its values against loading it from
+   * a snapshot file written by IterableRedBlackTree.save.
+   * @param size the number of values in the tree
+   */
+  public static void benchmarkSnapshot(int size) {
+    List<Integer> values = randomValues(size, size);
+    try {
+      Path file = Files.createTempFile("benchmark", ".snapshot");
+      try {
+        IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+        tree.insertAll(values);
+        tree.save(file, IterableRedBlackTree.Codec.INTEGER);
+
+        measure("insertAll x" + size, () -> {
+          IterableRedBlackTree<Integer> rebuilt = new IterableRedBlackTree<>();
+          rebuilt.insertAll(values);
+          sink += rebuilt.size();
+        });
+        measure("load snapshot x" + size, () -> {
+          try {
+            sink += IterableRedBlackTree.load(file, IterableRedBlackTree.Codec.INTEGER).size();
+          }
+          catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+      finally {
+        Files.delete(file);
+      }
+    }
+    catch (IOException e) {
+      System.out.println("snapshot benchmark skipped: " + e.getMessage());
+    }
+  }
+
+
+
+
+  /**
+   * Compares loading songs ordered by danceability into a tree that compares them
+   * through each song's comparator against a KeyedSortedCollection that compares keys.
+   * @param size the number of songs to load
+   */
+  public static void benchmarkKeyed(int size) {
+    List<Integer> values = randomValues(size);
+    Comparator<Song> byDanceability = (s1, s2) -> s1.getDanceability() - s2.getDanceability();
+    List<Song> withComparator = new ArrayList<>(size);
+    List<Song> withoutComparator = new ArrayList<>(size);
+    for (Integer value : values) {
+      withComparator.add(new Song("", "", "", 0, 0, 0, value, 0, 0, byDanceability));
+      withoutComparator.add(new Song("", "", "", 0, 0, 0, value, 0, 0));
+    }
+
+    measure("Song comparator insert x" + size, () -> {
+      IterableRedBlackTree<Song> tree = new IterableRedBlackTree<>();
+      for (Song song : withComparator) {
+        tree.insert(song);
+      }
+      sink += tree.size();
+    });
+    measure("keyed insert x" + size, () -> {
+      KeyedSortedCollection<Integer, Song> keyed =
+          new KeyedSortedCollection<>(Song::getDanceability);
+      for (Song song : withoutComparator) {
+        keyed.insert(song);
+      }
+      sink += keyed.size();
+    });
+  }
+
+
+
+
+  /**
+   * Measures how fast CsvReader parses text shaped like songs.csv, reading
+   * the columns that Backend.readData uses and skipping the others.
+   * @param size the number of records to parse
+   */
+  public static void benchmarkCsv(int size) {
+    StringBuilder text = new StringBuilder(
+        "title,artist,top genre,year,bpm,nrgy,dnce,dB,live,val,dur,acous,spch,pop\r\n");
+    for (Integer value : randomValues(size)) {
+      text.append("\"Song, number ").append(value).append("\",Artist ").append(value)
+          .append(",dance pop,").append(1950 + value).append(",120,80,").append(value)
+          .append(",-5,10,50,200,5,4,70\r\n");
+    }
+    String csv = text.toString();
+    String[] columns = {"title", "artist", "top genre", "year", "bpm", "nrgy", "dnce", "dB",
+        "live"};
+
+    measure("CsvReader x" + size + " (" + csv.length() / 1_000_000 + " MB)", () -> {
+      try (CsvReader reader = new CsvReader(new StringReader(csv), columns)) {
+        while (reader.next()) {
+          sink += reader.get(0).length() + reader.get(1).length() + reader.get(2).length();
+          for (int i = 3; i < columns.length; i++) {
+            sink += reader.getInt(i);
+          }
+        }
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+
+
+
+  /**
+   * Measures loading a csv file of size songs with Backend.readData on one
+   * thread, and with the parallel readData on 1 up to all available cores,
+   * and prints the rows per second of each.
+   * @param size the number of songs in the file
+   */
+  public static void benchmarkIngest(int size) {
+    StringBuilder text = new StringBuilder(
+        "title,artist,top genre,year,bpm,nrgy,dnce,dB,live,val,dur,acous,spch,pop\r\n");
+    for (Integer value : randomValues(size)) {
+      text.append("\"Song, number ").append(value).append("\",Artist ").append(value)
+          .append(",dance pop,").append(1950 + value).append(",120,80,").append(value)
+          .append(",-5,10,50,200,5,4,70\r\n");
+    }
+    try {
+      Path file = Files.createTempFile("benchmark", ".csv");
+      try {
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < Runtime.getRuntime().availableProcessors(); threads *= 2) {
+          threadCounts.add(threads);
+        }
+        threadCounts.add(Runtime.getRuntime().availableProcessors());
+
+        double ms = measure("readData x" + size, () -> load(file, 0));
+        System.out.printf("%-40s %10.0f rows/s%n", "", size / ms * 1000);
+        for (int threads : threadCounts) {
+          ms = measure("readData " + threads + " threads x" + size, () -> load(file, threads));
+          System.out.printf("%-40s %10.0f rows/s%n", "", size / ms * 1000);
+        }
+      }
+      finally {
+        Files.delete(file);
+      }
+    }
+    catch (IOException e) {
+      System.out.println("ingest benchmark skipped: " + e.getMessage());
+    }
+  }
+
+
+
+
+  /**
+   * Loads a csv file into a new Backend, with the parallel readData unless
+   * threads is 0.
+   * @param file the file to load
+   * @param threads the number of threads, or 0 for the sequential readData
+   */
+  private static void load(Path file, int threads) {
+    IterableRedBlackTree<Song> tree = new IterableRedBlackTree<>();
+    try {
+      if (threads == 0) {
+        new Backend(tree).readData(file.toString());
+      }
+      else {
+        new Backend(tree).readData(file.toString(), threads);
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    sink += tree.size();
+  }
+
+
+
+
+  /**
+   * Compares finding the 100 songs with the most energy through a TopK heap
+   * against sorting every song and keeping the first 100.
+   * @param size the number of songs to rank
+   */
+  public static void benchmarkTopK(int size) {
+    List<Song> songs = new ArrayList<>(size);
+    for (Integer value : randomValues(size, size)) {
+      songs.add(new Song("", "", "", 0, 0, value, 0, 0, 0));
+    }
+
+    measure("sort then first 100 x" + size, () -> {
+      List<Song> sorted = new ArrayList<>(songs);
+      sorted.sort(Comparator.comparingInt(Song::getEnergy).reversed());
+      sink += sorted.subList(0, 100).size();
+    });
+    measure("TopK 100 x" + size, () -> {
+      TopK<Song> top = new TopK<>(100, true);
+      for (Song song : songs) {
+        top.offer(song.getEnergy(), song);
+      }
+      sink += top.drain().size();
+    });
+  }
+
+
+
+
+  /**
+   * Compares a mix of repeated range, filter and most recent queries on a
+   * backend that caches their results against one that does not.
+   * @param size the number of songs to load
+   */
+  public static void benchmarkCache(int size) {
+    StringBuilder text = new StringBuilder("title,artist,top genre,year,bpm,nrgy,dnce,dB,live\n");
+    for (Integer value : randomValues(size)) {
+      text.append("Song ").append(value).append(",Artist,pop,").append(1950 + value % 70)
+          .append(',').append(60 + value % 140).append(",80,").append(value % 100)
+          .append(",-5,10\n");
+    }
+    try {
+      Path file = Files.createTempFile("benchmark", ".csv");
+      try {
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        Backend uncached = new Backend(new IterableRedBlackTree<>(), null, null);
+        Backend cached = new Backend(new IterableRedBlackTree<>());
+        uncached.readData(file.toString());
+        cached.readData(file.toString());
+
+        //100 queries over 10 distinct ranges, like users paging back and forth
+        for (Backend backend : new Backend[] {uncached, cached}) {
+          measure((backend == cached ? "cached" : "uncached") + " 100 queries x" + size, () -> {
+            for (int i = 0; i < 100; i++) {
+              int low = i % 10 * 8;
+              backend.filterSongs(i % 2 == 0 ? null : 120);
+              sink += backend.getRange(low, low + 20).size() + backend.fiveMost().size();
+            }
+          });
+        }
+        System.out.println("cache: " + cached.getCache());
+      }
+      finally {
+        Files.delete(file);
+      }
+    }
+    catch (IOException e) {
+      System.out.println("cache benchmark skipped: " + e.getMessage());
+    }
+  }
+
+
+
+
+  /**
+   * Compares a danceability range query with a highly selective speed filter
+   * on a tree, which visits every song in the range, against a SongTable,
+   * whose planner intersects the bitmap indexes of danceability and bpm.
+   * @param size the number of songs to store
+   */
+  public static void benchmarkBitmap(int size) {
+    Random random = new Random(400);
+    Comparator<Song> byDanceability = (s1, s2) -> s1.getDanceability() - s2.getDanceability();
+    IterableRedBlackTree<Song> tree = new IterableRedBlackTree<>();
+    SongTable table = new SongTable();
+    for (int i = 0; i < size; i++) {
+      //Attribute ranges like those of songs.csv
+      Song song = new Song("Song " + i, "", "", 1950 + random.nextInt(70), 50 + random.nextInt(160),
+          random.nextInt(101), random.nextInt(101), -random.nextInt(60), random.nextInt(101),
+          byDanceability);
+      tree.insert(song);
+      table.add(song);
+    }
+
+    Comparable<Song> min = other -> Integer.compare(20, other.getDanceability());
+    Comparable<Song> max = other -> Integer.compare(80, other.getDanceability());
+    measure("tree dance 20-80 bpm < 52", () -> {
+      for (Iterator<Song> it = tree.iterator(min, max); it.hasNext();) {
+        Song next = it.next();
+        if (next.getBPM() < 52) {
+          sink += next.getYear();
+        }
+      }
+    });
+    System.out.println("plan for bpm < 52: " + table.plan(20, 80, 52));
+    measure("SongTable dance 20-80 bpm < 52", () -> {
+      for (int row : table.select(20, 80, 52)) {
+        sink += table.getYear(row);
+      }
+    });
+    measure("bitmaps bpm < 52 and energy > 90", () -> {
+      RoaringBitmap slow = table.index(SongTable.Column.BPM).rows(null, 51);
+      sink += slow.and(table.index(SongTable.Column.ENERGY).rows(91, null)).cardinality();
+    });
+  }
+
+
+
+
+  /**
+   * Compares a danceability range query with a speed filter on an
+   * IterableRedBlackTree, which visits every song in the range, against a
+   * PrioritySearchTree, which visits only the songs below the speed, at
+   * several selectivities.
+   * @param size the number of songs to store
+   */
+  public static void benchmarkPrioritySearch(int size) {
+    Random random = new Random(400);
+    Comparator<Song> byDanceability = (s1, s2) -> s1.getDanceability() - s2.getDanceability();
+    List<Song> songs = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      songs.add(new Song("Song " + i, "", "", 1950 + random.nextInt(70), 50 + random.nextInt(160),
+          random.nextInt(101), random.nextInt(101), -random.nextInt(60), random.nextInt(101),
+          byDanceability));
+    }
+    IterableRedBlackTree<Song> tree = new IterableRedBlackTree<>();
+    tree.insertAll(songs);
+    PrioritySearchTree<Song> search = new PrioritySearchTree<>(Song::getDanceability,
+        Song::getBPM);
+    measure("PrioritySearchTree build x" + size, () -> {
+      PrioritySearchTree<Song> built = new PrioritySearchTree<>(Song::getDanceability,
+          Song::getBPM);
+      built.addAll(songs);
+      sink += built.query(0, 0, 0).size();
+    });
+    search.addAll(songs);
+
+    Comparable<Song> min = other -> Integer.compare(20, other.getDanceability());
+    Comparable<Song> max = other -> Integer.compare(80, other.getDanceability());
+    for (int below : new int[] {51, 52, 60, 130}) {
+      measure("tree dance 20-80 bpm < " + below, () -> {
+        for (Iterator<Song> it = tree.iterator(min, max); it.hasNext();) {
+          Song next = it.next();
+          if (next.getBPM() < below) {
+            sink += next.getYear();
+          }
+        }
+      });
+      measure("PrioritySearchTree dance 20-80 bpm < " + below, () -> {
+        for (Song song : search.query(20, 80, below)) {
+          sink += song.getYear();
+        }
+      });
+    }
+  }
+
+
+
+
+  /**
+   * Compares the heap taken by songs stored as Song objects in a tree against
+   * a SongTable, and a danceability range query with a speed filter on both.
+   * @param size the number of songs to store
+   */
+  public static void benchmarkTable(int size) {
+    String[] genres = {"dance pop", "pop", "atl hip hop", "canadian pop", "boy band"};
+    List<Integer> values = randomValues(size);
+    Comparator<Song> byDanceability = (s1, s2) -> s1.getDanceability() - s2.getDanceability();
+
+    //Each store gets its own songs, with their own strings, like after parsing a file
+    IntFunction<Song> song = i -> {
+      int value = values.get(i);
+      return new Song("Song " + i, "Artist " + value, new String(genres[value % genres.length]),
+          1950 + value, 60 + value, value, value, -value / 10, value, byDanceability);
+    };
+
+    long before = usedHeap();
+    IterableRedBlackTree<Song> tree = new IterableRedBlackTree<>();
+    for (int i = 0; i < size; i++) {
+      tree.insert(song.apply(i));
+    }
+    long treeBytes = usedHeap() - before;
+    before = usedHeap();
+    SongTable table = new SongTable();
+    for (int i = 0; i < size; i++) {
+      table.add(song.apply(i));
+    }
+    long tableBytes = usedHeap() - before;
+    System.out.printf("%-40s %10d bytes/song%n", "tree of Song heap", treeBytes / size);
+    System.out.printf("%-40s %10d bytes/song%n", "SongTable heap", tableBytes / size);
+
+    Comparable<Song> min = other -> Integer.compare(20, other.getDanceability());
+    Comparable<Song> max = other -> Integer.compare(80, other.getDanceability());
+    measure("tree dance 20-80 bpm < 100", () -> {
+      for (Iterator<Song> it = tree.iterator(min, max); it.hasNext();) {
+        Song next = it.next();
+        if (next.getBPM() < 100) {
+          sink += next.getYear();
+        }
+      }
+    });
+    measure("SongTable dance 20-80 bpm < 100", () -> {
+      for (int row : table.select(20, 80, 100)) {
+        sink += table.getYear(row);
+      }
+    });
+  }
+
+
+
+
+  /**
+   * Returns the heap in use after asking for a few garbage collections.
+   * @return the used heap in bytes
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+
+
+
+  /**
+   * Compares sorting songs by year with SongSorter against List.sort with a
+   * comparator on the year, which is the stable sort the JDK offers.
+   * @param size the number of songs to sort
+   */
+  public static void benchmarkSort(int size) {
+    List<Integer> years = randomValues(size);
+    List<Song> songs = new ArrayList<>(size);
+    for (Integer year : years) {
+      songs.add(new Song("", "", "", 1950 + year, 0, 0, 0, 0, 0));
+    }
+    SongSorter sorter = new SongSorter();
+
+    measure("List.sort by year x" + size, () -> {
+      List<Song> sorted = new ArrayList<>(songs);
+      sorted.sort(Comparator.comparingInt(Song::getYear));
+      sink += sorted.get(0).getYear();
+    });
+    measure("SongSorter by year x" + size, () -> {
+      sink += sorter.sort(songs, Song::getYear).get(0).getYear();
+    });
+    measure("SongSorter by hash code x" + size, () -> {
+      sink += sorter.sort(songs, Object::hashCode).size();
+    });
+  }
+
+
+
+
+  /**
+   * Compares the throughput of several threads doing a mix of inserts and
+   * range counts on a ConcurrentSkipListCollection against an
+   * IterableRedBlackTree guarded by a single lock, then of threads that each
+   * work on their own range of values on a ShardedSortedCollection.
+   * @param size the number of values inserted across all threads
+   */
+  public static void benchmarkConcurrent(int size) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    List<Integer> values = randomValues(size, size);
+
+    measure("synchronized RBT " + threads + " threads x" + size, () -> {
+      IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+      runThreads(threads, values, value -> {
+        synchronized (tree) {
+          tree.insert(value);
+        }
+      }, value -> {
+        synchronized (tree) {
+          sink += tree.countInRange(value, value + 100);
+        }
+      });
+    });
+    measure("skip list " + threads + " threads x" + size, () -> {
+      ConcurrentSkipListCollection<Integer> list = new ConcurrentSkipListCollection<>();
+      runThreads(threads, values, list::insert,
+          value -> sink += list.countInRange(value, value + 100));
+    });
+
+    //Each thread loads and queries its own range of values, one shard per thread
+    List<Integer> ranged = new ArrayList<>(values);
+    Collections.sort(ranged);
+    List<Integer> splits = new ArrayList<>();
+    for (int t = 1; t < threads; t++) {
+      splits.add(ranged.get(ranged.size() * t / threads));
+    }
+    measure("synchronized RBT disjoint ranges x" + size, () -> {
+      IterableRedBlackTree<Integer> tree = new IterableRedBlackTree<>();
+      runThreads(threads, ranged, value -> {
+        synchronized (tree) {
+          tree.insert(value);
+        }
+      }, value -> {
+        synchronized (tree) {
+          sink += tree.countInRange(value - 100, value);
+        }
+      });
+    });
+    measure("sharded " + threads + " shards disjoint ranges x" + size, () -> {
+      ShardedSortedCollection<Integer> sharded = new ShardedSortedCollection<>(splits);
+      runThreads(threads, ranged, sharded::insert,
+          value -> sink += sharded.countInRange(value - 100, value));
+    });
+  }
+
+
+
+
+  /**
+   * Splits values between threads, which each insert their share and run a
+   * query after every tenth insert. Returns once every thread is done.
+   * @param threads the number of threads to start
+   * @param values the values to insert
+   * @param insert inserts one value
+   * @param query runs one query around a value
+   */
+  private static void runThreads(int threads, List<Integer> values,
+      Consumer<Integer> insert, Consumer<Integer> query) {
+    List<Thread> started = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      List<Integer> share = values.subList(values.size() * t / threads,
+          values.size() * (t + 1) / threads);
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < share.size(); i++) {
+          insert.accept(share.get(i));
+          if (i % 10 == 0) {
+            query.accept(share.get(i));
+          }
+        }
+      });
+      thread.start();
+      started.add(thread);
+    }
+    try {
+      for (Thread thread : started) {
+        thread.join();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
+
+
+  //Runs every benchmark, optionally with the number of values given as argument
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    benchmarkBulkLoad(size);
+    benchmarkRangeScan(size);
+    benchmarkBTree(size);
+    benchmarkSnapshot(size);
+    benchmarkKeyed(size);
+    benchmarkSort(size);
+    benchmarkTopK(size);
+    benchmarkCache(size);
+    benchmarkTable(size);
+    benchmarkBitmap(size);
+    benchmarkPrioritySearch(size);
+    benchmarkCsv(size);
+    benchmarkIngest(size);
+    benchmarkConcurrent(size);
+    if (TreeStats.ENABLED) {
+      RedBlackTree<Integer> tree = new RedBlackTree<>();
+      for (Integer value : randomValues(size, size)) {
+        tree.insert(value);
+      }
+      System.out.println("random inserts: " + tree.stats());
+    }
+    System.out.println("(checksum " + sink + ")");
+  }
+
+
+
+
+  /**
+   * The stack-based range iterator that RBTIterator used before it walked
+   * parent references, kept only as a baseline for benchmarkRangeScan.
+   */
+  private static class StackIterator<R> implements Iterator<R> {
+
+    private Comparable<R> min;
+    private Comparable<R> max;
+    private Stack<BinaryTreeNode<R>> stack = new Stack<>();
+
+    public StackIterator(BinaryTreeNode<R> root, Comparable<R> min, Comparable<R> max) {
+      this.min = min;
+      this.max = max;
+      buildStackHelper(root);
+    }
+
+    private void buildStackHelper(BinaryTreeNode<R> node) {
+      if (node == null) {
+        return;
+      }
+      if (min != null && min.compareTo(node.getData()) > 0) {
+        buildStackHelper(node.childRight());
+      }
+      else {
+        stack.push(node);
+        buildStackHelper(node.childLeft());
+      }
+    }
+
+    public boolean hasNext() {
+      return !stack.isEmpty() && (max == null || max.compareTo(stack.peek().getData()) >= 0);
+    }
+
+    public R next() {
+      BinaryTreeNode<R> current = stack.pop();
+      buildStackHelper(current.childRight());
+      return current.getData();
+    }
+  }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * This class holds a snapshot of the work counters of a BinarySearchTree (and its
+ * subclasses BSTRotation and RedBlackTree), together with the tree's size and height
+ * at the time the snapshot was taken. It helps to tell whether slow inserts come from
+ * deep descents (many comparisons) or from long repair cascades (many rotations,
+ * recolorings and nested ensureRedProperty calls).
+ *
+ * Counting is switched off unless the JVM is started with -Dtreestats=true. The switch
+ * is a static final field, so with counting off the JIT removes the counting code from
+ * the tree operations entirely, and every counter of a snapshot stays zero.
+ */
+public class TreeStats {
+
+    // whether the trees count their work, fixed when this class is loaded
+    public static final boolean ENABLED = Boolean.getBoolean("treestats");
+
+    private final long comparisons;
+    private final long rotations;
+    private final long recolorings;
+    private final long repairCalls;
+    private final int maxRepairDepth;
+    private final int size;
+    private final int height;
+
+    /**
+     * Creates a new snapshot with the provided values.
+     */
+    TreeStats(long comparisons, long rotations, long recolorings, long repairCalls,
+              int maxRepairDepth, int size, int height) {
+        this.comparisons = comparisons;
+        this.rotations = rotations;
+        this.recolorings = recolorings;
+        this.repairCalls = repairCalls;
+        this.maxRepairDepth = maxRepairDepth;
+        this.size = size;
+        this.height = height;
+    }
+
+    // accessors
+
+    public long getComparisons() { return comparisons; } // values compared while searching
+    public long getRotations() { return rotations; } // calls to rotate
+    public long getRecolorings() { return recolorings; } // calls to flipColor while repairing
+    public long getRepairCalls() { return repairCalls; } // calls to ensureRedProperty
+    public int getMaxRepairDepth() { return maxRepairDepth; } // deepest nesting of those calls
+    public int getSize() { return size; } // number of values in the tree
+    public int getHeight() { return height; } // number of nodes on the longest path down
+
+    /**
+     * @return a one line summary of this snapshot
+     */
+    @Override
+    public String toString() {
+        return "size=" + size + " height=" + height + " comparisons=" + comparisons
+            + " rotations=" + rotations + " recolorings=" + recolorings
+            + " repairCalls=" + repairCalls + " maxRepairDepth=" + maxRepairDepth;
+    }
+}
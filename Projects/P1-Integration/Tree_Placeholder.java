@@ -1,6 +1,7 @@
 import java.util.List;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 
 /**
@@ -51,20 +52,60 @@ public class Tree_Placeholder implements IterableSortedCollection<Song> {
     public void setIteratorMin(Comparable<Song> min) { this.min = min; }
     public void setIteratorMax(Comparable<Song> max) { this.max = max; }
 
+    // order statistics are not supported by this placeholder
+    public int rank(Comparable<Song> data) {
+        throw new UnsupportedOperationException("cannot call on placeholder");
+    }
+    public Song select(int k) {
+        throw new UnsupportedOperationException("cannot call on placeholder");
+    }
+    public int countInRange(Comparable<Song> min, Comparable<Song> max) {
+        throw new UnsupportedOperationException("cannot call on placeholder");
+    }
+
+    // removing is not supported by this placeholder
+    public boolean remove(Comparable<Song> data) {
+        throw new UnsupportedOperationException("cannot call on placeholder");
+    }
+    public int removeRange(Comparable<Song> min, Comparable<Song> max) {
+        throw new UnsupportedOperationException("cannot call on placeholder");
+    }
+
     public Iterator<Song> iterator() {
+        return iterator(min, true, max, true);
+    }
+
+    // iterators with their own bounds filter the same list, and the
+    // descending one simply returns the remaining songs in reverse
+    public Iterator<Song> iterator(Comparable<Song> min, boolean minInclusive,
+                                   Comparable<Song> max, boolean maxInclusive) {
+        return filter(min, minInclusive, max, maxInclusive).iterator();
+    }
+    public Iterator<Song> descendingIterator(Comparable<Song> min, boolean minInclusive,
+                                             Comparable<Song> max, boolean maxInclusive) {
+        List<Song> tmp = filter(min, minInclusive, max, maxInclusive);
+        Collections.reverse(tmp);
+        return tmp.iterator();
+    }
+
+    private List<Song> filter(Comparable<Song> min, boolean minInclusive,
+                              Comparable<Song> max, boolean maxInclusive) {
         List<Song> tmp = new ArrayList<>(songs); // make a copy of list
         if(lastAddedSong != null) tmp.add(lastAddedSong); // with added song
 
         // remove all songs that our outside of the specified min-max range
-        for(int i=0;i<tmp.size();i++)
-            if( (min != null && min.compareTo(tmp.get(i)) > 0) ||
-                (max != null && max.compareTo(tmp.get(i)) < 0)) {
+        for(int i=0;i<tmp.size();i++) {
+            int aboveMin = min == null ? 1 : -min.compareTo(tmp.get(i));
+            int belowMax = max == null ? 1 : max.compareTo(tmp.get(i));
+            if( aboveMin < 0 || (aboveMin == 0 && !minInclusive) ||
+                belowMax < 0 || (belowMax == 0 && !maxInclusive)) {
 
                 tmp.remove(i);
                 i--;
             }
+        }
 
-        // and return a new iterator that steps through the remaining values
-        return tmp.iterator();
+        // and return the remaining values
+        return tmp;
     }
 }